@@ -7,13 +7,49 @@ const api = axios.create({
     },
 });
 
-// For future JWT auth
+export const TOKEN_KEY = 'token';
+export const REFRESH_TOKEN_KEY = 'refreshToken';
+export const LOGOUT_EVENT = 'auth:logout';
+
 api.interceptors.request.use((config) => {
-    const token = localStorage.getItem('token');
+    const token = localStorage.getItem(TOKEN_KEY);
     if (token) {
         config.headers.Authorization = `Bearer ${token}`;
     }
     return config;
 });
 
+// Shared so that concurrent 401s trigger a single refresh.
+let refreshing: Promise<string> | null = null;
+
+const refreshAccessToken = (): Promise<string> => {
+    const refreshToken = localStorage.getItem(REFRESH_TOKEN_KEY);
+    if (!refreshToken) return Promise.reject(new Error('No refresh token'));
+    return axios.post(`${api.defaults.baseURL}/usuarios/refresh`, { refreshToken }).then(res => {
+        localStorage.setItem(TOKEN_KEY, res.data.accessToken);
+        localStorage.setItem(REFRESH_TOKEN_KEY, res.data.refreshToken);
+        return res.data.accessToken as string;
+    });
+};
+
+// An expired access token is traded for a new one and the request retried once.
+api.interceptors.response.use(undefined, async (error) => {
+    const original = error.config;
+    if (error.response?.status !== 401 || !original || original._retry || !localStorage.getItem(REFRESH_TOKEN_KEY)) {
+        return Promise.reject(error);
+    }
+    original._retry = true;
+    try {
+        refreshing = refreshing ?? refreshAccessToken().finally(() => { refreshing = null; });
+        const token = await refreshing;
+        original.headers.Authorization = `Bearer ${token}`;
+        return api(original);
+    } catch {
+        localStorage.removeItem(TOKEN_KEY);
+        localStorage.removeItem(REFRESH_TOKEN_KEY);
+        window.dispatchEvent(new Event(LOGOUT_EVENT));
+        return Promise.reject(error);
+    }
+});
+
 export default api;
@@ -1,9 +1,10 @@
-import React, { createContext, useContext, useState } from 'react';
-import type { Usuario } from '../types';
+import React, { createContext, useCallback, useContext, useEffect, useState } from 'react';
+import { LOGOUT_EVENT, REFRESH_TOKEN_KEY, TOKEN_KEY } from '../api/api';
+import type { LoginResponse, Usuario } from '../types';
 
 interface AuthContextType {
     user: Usuario | null;
-    login: (userData: Usuario) => void;
+    login: (response: LoginResponse) => void;
     logout: () => void;
     isAdmin: boolean;
 }
@@ -16,15 +17,25 @@ export const AuthProvider: React.FC<{ children: React.ReactNode }> = ({ children
         return savedUser ? JSON.parse(savedUser) : null;
     });
 
-    const login = (userData: Usuario) => {
-        setUser(userData);
-        localStorage.setItem('proferret_user', JSON.stringify(userData));
+    const login = (response: LoginResponse) => {
+        setUser(response.usuario);
+        localStorage.setItem('proferret_user', JSON.stringify(response.usuario));
+        localStorage.setItem(TOKEN_KEY, response.accessToken);
+        localStorage.setItem(REFRESH_TOKEN_KEY, response.refreshToken);
     };
 
-    const logout = () => {
+    const logout = useCallback(() => {
         setUser(null);
         localStorage.removeItem('proferret_user');
-    };
+        localStorage.removeItem(TOKEN_KEY);
+        localStorage.removeItem(REFRESH_TOKEN_KEY);
+    }, []);
+
+    // The api client signals a session that could not be refreshed.
+    useEffect(() => {
+        window.addEventListener(LOGOUT_EVENT, logout);
+        return () => window.removeEventListener(LOGOUT_EVENT, logout);
+    }, [logout]);
 
     const isAdmin = user?.rol === 'ADMIN';
 
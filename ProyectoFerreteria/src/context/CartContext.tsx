@@ -1,5 +1,7 @@
 import React, { createContext, useContext, useState, useEffect } from 'react';
 import type { Carrito, Producto } from '../types';
+import api from '../api/api';
+import { useAuth } from './AuthContext';
 
 interface CartContextType {
     cart: Carrito[];
@@ -19,10 +21,23 @@ export const CartProvider: React.FC<{ children: React.ReactNode }> = ({ children
         return savedCart ? JSON.parse(savedCart) : [];
     });
 
+    const { user } = useAuth();
+
     useEffect(() => {
         localStorage.setItem('ferreteria_cart', JSON.stringify(cart));
     }, [cart]);
 
+    // Mirror the cart to the server in one request once edits settle.
+    useEffect(() => {
+        if (!user?.id) return;
+        const timer = setTimeout(() => {
+            const items = cart.map(item => ({ producto: { id: item.producto.id }, cantidad: item.cantidad }));
+            api.put(`/carritos/usuario/${user.id}`, items)
+                .catch(error => console.error('Error syncing cart:', error));
+        }, 500);
+        return () => clearTimeout(timer);
+    }, [cart, user?.id]);
+
     const addToCart = (producto: Producto, cantidad: number) => {
         setCart(prev => {
             const existing = prev.find(item => item.producto.id === producto.id);
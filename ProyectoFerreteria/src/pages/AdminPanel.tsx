@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import {
     LayoutDashboard,
     Package,
@@ -18,10 +18,21 @@ import {
 import { useAuth } from '../context/AuthContext';
 import { useNavigate } from 'react-router-dom';
 import api from '../api/api';
-import type { Producto, Categoria, Pedido, Usuario } from '../types';
+import type { Producto, Categoria, Pedido, Usuario, AdminDashboard } from '../types';
 import { ThemeToggle } from '../components/ThemeToggle';
 import { Logo } from '../components/Logo';
 
+type Lista = 'dashboard' | 'productos' | 'categorias' | 'pedidos' | 'usuarios';
+
+// What each tab shows; the product form also needs the categories for its select.
+const LISTAS_POR_TAB: Record<string, Lista[]> = {
+    dashboard: ['dashboard'],
+    products: ['productos', 'categorias'],
+    categories: ['categorias'],
+    orders: ['pedidos'],
+    users: ['usuarios']
+};
+
 interface SidebarItemProps {
     icon: React.ReactNode;
     label: string;
@@ -72,38 +83,53 @@ export const AdminPanel: React.FC = () => {
     const [loading, setLoading] = useState(false);
     const [searchTerm, setSearchTerm] = useState('');
 
-    useEffect(() => {
-        fetchData();
-    }, []);
+    const [dashboard, setDashboard] = useState<AdminDashboard | null>(null);
+
+    // The dashboard comes pre-aggregated from the server; each list is loaded the
+    // first time a tab that shows it is opened, and again only after a write to it.
+    const cargadas = useRef(new Set<Lista>());
 
-    const fetchData = async () => {
+    const cargadores: Record<Lista, () => Promise<void>> = {
+        dashboard: async () => setDashboard((await api.get('/admin/dashboard')).data),
+        productos: async () => setProducts((await api.get('/productos')).data),
+        categorias: async () => setCategories((await api.get('/categorias')).data),
+        pedidos: async () => setOrders((await api.get('/pedidos')).data),
+        usuarios: async () => setUsers((await api.get('/usuarios')).data)
+    };
+
+    const cargar = async (lista: Lista) => {
+        cargadas.current.add(lista);
         try {
-            const [prodRes, catRes, orderRes, userRes] = await Promise.all([
-                api.get('/productos'),
-                api.get('/categorias'),
-                api.get('/pedidos').catch(() => ({ data: [] })), // Graceful handle if endpoint fails
-                api.get('/usuarios').catch(() => ({ data: [] }))
-            ]);
-            setProducts(prodRes.data);
-            setCategories(catRes.data);
-            setOrders(orderRes.data);
-            setUsers(userRes.data);
+            await cargadores[lista]();
         } catch (error) {
-            console.error("Error fetching admin data", error);
+            // Not marked as loaded, so opening the tab again retries.
+            cargadas.current.delete(lista);
+            console.error(`Error fetching ${lista}`, error);
         }
     };
 
-    // Statistics Calculation (Optimized with useMemo)
-    const stats = React.useMemo(() => {
-        const totalSales = orders.reduce((acc, curr) => acc + curr.total, 0);
-        const avgOrderValue = orders.length > 0 ? totalSales / orders.length : 0;
-        const lowStockProducts = products.filter(p => p.stock < 10);
-        const pendingOrders = orders.filter(o => o.estado === 'PENDIENTE' || o.estado === 'PAGADO').length;
-        const recentOrders = [...orders]
-            .sort((a, b) => new Date(b.fecha).getTime() - new Date(a.fecha).getTime())
-            .slice(0, 5);
-        return { totalSales, avgOrderValue, lowStockProducts, pendingOrders, recentOrders };
-    }, [orders, products]);
+    useEffect(() => {
+        (LISTAS_POR_TAB[activeTab] ?? [])
+            .filter(lista => !cargadas.current.has(lista))
+            .forEach(cargar);
+    }, [activeTab]);
+
+    // After a write: the changed list is reloaded now, the lists that show it
+    // on their next visit.
+    const recargar = (lista: Lista, tambien: Lista[] = []) => {
+        ['dashboard' as Lista, ...tambien].forEach(otra => cargadas.current.delete(otra));
+        cargar(lista);
+    };
+
+    const stats = {
+        totalSales: dashboard?.totalVentas ?? 0,
+        avgOrderValue: dashboard?.ticketPromedio ?? 0,
+        lowStockCount: dashboard?.productosBajoStock ?? 0,
+        lowStockProducts: dashboard?.alertasStock ?? [],
+        pendingOrders: dashboard?.pedidosPendientes ?? 0,
+        recentOrders: dashboard?.pedidosRecientes ?? [],
+        totalUsers: dashboard?.totalUsuarios ?? 0
+    };
 
     // Product CRUD
     const handleSaveProduct = async (e: React.FormEvent) => {
@@ -117,7 +143,7 @@ export const AdminPanel: React.FC = () => {
             }
             setIsProductModalOpen(false);
             setEditingProduct(null);
-            fetchData();
+            recargar('productos');
         } catch (error) {
             alert("Error al guardar producto");
         } finally {
@@ -129,7 +155,7 @@ export const AdminPanel: React.FC = () => {
         if (window.confirm("¿Estás seguro de eliminar este producto?")) {
             try {
                 await api.delete(`/productos/${id}`);
-                fetchData();
+                recargar('productos');
             } catch (error) {
                 alert("Error al eliminar");
             }
@@ -148,7 +174,7 @@ export const AdminPanel: React.FC = () => {
             }
             setIsCategoryModalOpen(false);
             setEditingCategory(null);
-            fetchData();
+            recargar('categorias', ['productos']);
         } catch (error) {
             alert("Error al guardar categoría");
         } finally {
@@ -160,7 +186,7 @@ export const AdminPanel: React.FC = () => {
         if (window.confirm("¿Estás seguro de eliminar esta categoría?")) {
             try {
                 await api.delete(`/categorias/${id}`);
-                fetchData();
+                recargar('categorias', ['productos']);
             } catch (error) {
                 alert("Error al eliminar categoría");
             }
@@ -170,7 +196,7 @@ export const AdminPanel: React.FC = () => {
     const handleUpdateOrderStatus = async (id: string, newStatus: string) => {
         try {
             await api.put(`/pedidos/${id}`, { estado: newStatus });
-            fetchData();
+            recargar('pedidos');
         } catch (error) {
             alert("Error al actualizar estado");
         }
@@ -380,8 +406,8 @@ export const AdminPanel: React.FC = () => {
                                     { label: 'Ventas Totales', value: `S/. ${stats.totalSales.toFixed(2)}`, icon: <TrendingUp />, color: '#34C759', description: 'Ingresos brutos acumulados' },
                                     { label: 'Ticket Promedio', value: `S/. ${stats.avgOrderValue.toFixed(2)}`, icon: <ShoppingBag />, color: '#007AFF', description: 'Valor medio por pedido' },
                                     { label: 'Pedidos Pendientes', value: stats.pendingOrders, icon: <ShoppingBag />, color: '#FF9500', description: 'Por procesar o enviar' },
-                                    { label: 'Bajo Stock', value: stats.lowStockProducts.length, icon: <Package />, color: '#FF3B30', description: 'Productos con < 10 unid.' },
-                                    { label: 'Clientes', value: users.length, icon: <Users />, color: '#6C47FF', description: 'Usuarios registrados' }
+                                    { label: 'Bajo Stock', value: stats.lowStockCount, icon: <Package />, color: '#FF3B30', description: 'Productos con < 10 unid.' },
+                                    { label: 'Clientes', value: stats.totalUsers, icon: <Users />, color: '#6C47FF', description: 'Usuarios registrados' }
                                 ].map((stat, i) => (
                                     <div key={i} className="glass-card no-hover-move" style={{ padding: '1.5rem', display: 'flex', flexDirection: 'column', gap: '1rem', border: '1px solid var(--border-color)' }}>
                                         <div style={{ display: 'flex', justifyContent: 'space-between', alignItems: 'flex-start' }}>
@@ -417,7 +443,7 @@ export const AdminPanel: React.FC = () => {
                                         <tbody>
                                             {stats.recentOrders.map(o => (
                                                 <tr key={o.id} style={{ borderBottom: '1px solid rgba(255,255,255,0.05)' }}>
-                                                    <td style={{ padding: '12px 5px', fontSize: '0.85rem', fontWeight: '600' }}>{o.usuario?.nombre}</td>
+                                                    <td style={{ padding: '12px 5px', fontSize: '0.85rem', fontWeight: '600' }}>{o.usuarioNombre}</td>
                                                     <td style={{ padding: '12px 5px', fontSize: '0.8rem', color: 'var(--text-muted)' }}>{new Date(o.fecha).toLocaleDateString()}</td>
                                                     <td style={{ padding: '12px 5px', fontSize: '0.85rem', fontWeight: '700' }}>S/. {o.total.toFixed(2)}</td>
                                                     <td style={{ padding: '12px 5px' }}>
@@ -441,10 +467,10 @@ export const AdminPanel: React.FC = () => {
                             <div className="glass-card no-hover-move" style={{ padding: '1.5rem', border: '1px solid var(--border-color)' }}>
                                 <div style={{ display: 'flex', alignItems: 'center', gap: '0.5rem', marginBottom: '1.5rem' }}>
                                     <h2 style={{ fontSize: '1.2rem', fontWeight: '800' }}>Alertas de Stock</h2>
-                                    <span style={{ fontSize: '0.7rem', padding: '2px 6px', backgroundColor: '#FF3B30', color: '#fff', borderRadius: '4px', fontWeight: '800' }}>{stats.lowStockProducts.length}</span>
+                                    <span style={{ fontSize: '0.7rem', padding: '2px 6px', backgroundColor: '#FF3B30', color: '#fff', borderRadius: '4px', fontWeight: '800' }}>{stats.lowStockCount}</span>
                                 </div>
                                 <div style={{ display: 'flex', flexDirection: 'column', gap: '1rem' }}>
-                                    {stats.lowStockProducts.slice(0, 6).map(p => (
+                                    {stats.lowStockProducts.map(p => (
                                         <div key={p.id} style={{ display: 'flex', alignItems: 'center', gap: '0.8rem', padding: '0.5rem', borderRadius: '8px', backgroundColor: 'rgba(255,59,48,0.05)' }}>
                                             <img src={p.imagen} alt="" style={{ width: '32px', height: '32px', objectFit: 'contain', backgroundColor: '#fff', borderRadius: '4px' }} />
                                             <div style={{ flex: 1, minWidth: 0 }}>
@@ -1,4 +1,4 @@
-import React, { useState } from 'react';
+import React, { useRef, useState } from 'react';
 import { useCart } from '../context/CartContext';
 import { useAuth } from '../context/AuthContext';
 import { useNavigate, Link } from 'react-router-dom';
@@ -12,8 +12,25 @@ import {
     AlertCircle
 } from 'lucide-react';
 import api from '../api/api';
+import type { PedidoSolicitud } from '../types';
 import { motion, AnimatePresence } from 'framer-motion';
 
+const POLL_INTERVAL_MS = 1000;
+const POLL_TIMEOUT_MS = 60000;
+
+const sleep = (ms: number) => new Promise(resolve => setTimeout(resolve, ms));
+
+// The order is queued by the API; wait until the worker has created or rejected it.
+const esperarPedido = async (solicitudId: string): Promise<PedidoSolicitud> => {
+    const limite = Date.now() + POLL_TIMEOUT_MS;
+    while (Date.now() < limite) {
+        const { data } = await api.get<PedidoSolicitud>(`/pedidos/solicitudes/${solicitudId}`);
+        if (data.estado === 'PENDIENTE' || data.estado === 'RECHAZADO') return data;
+        await sleep(POLL_INTERVAL_MS);
+    }
+    throw new Error('Tiempo de espera agotado');
+};
+
 export const Checkout: React.FC = () => {
     const { cart, total, clearCart } = useCart();
     const { user } = useAuth();
@@ -23,6 +40,9 @@ export const Checkout: React.FC = () => {
     const [loading, setLoading] = useState(false);
     const [error, setError] = useState<string | null>(null);
     const [orderId, setOrderId] = useState<string | null>(null);
+    // One key per checkout attempt: a retry after a timeout or a dropped response
+    // gets back the order already queued instead of queueing it twice.
+    const idempotencyKey = useRef<string>(crypto.randomUUID());
 
     const [form, setForm] = useState({
         direccion: '',
@@ -63,8 +83,16 @@ export const Checkout: React.FC = () => {
                     }))
                 };
 
-                const response = await api.post('/pedidos', pedidoData);
-                setOrderId(response.data.id);
+                const response = await api.post<PedidoSolicitud>('/pedidos/async', pedidoData, {
+                    headers: { 'Idempotency-Key': idempotencyKey.current }
+                });
+                const solicitud = await esperarPedido(response.data.id);
+                idempotencyKey.current = crypto.randomUUID();
+                if (solicitud.estado === 'RECHAZADO') {
+                    setError(solicitud.motivo || 'No pudimos registrar tu pedido. Inténtalo de nuevo.');
+                    return;
+                }
+                setOrderId(solicitud.pedidoId ?? solicitud.id);
                 setStep(3);
                 clearCart();
             } catch (err) {
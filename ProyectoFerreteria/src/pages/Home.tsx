@@ -54,9 +54,8 @@ export const Home: React.FC = () => {
 
     useEffect(() => {
         // Fetch products by new fields
-        api.get('/productos').then(res => {
-            const all = res.data;
-            setOffers(all.filter((p: Producto) => p.esOferta));
+        api.get('/productos/resumen', { params: { soloOfertas: true } }).then(res => {
+            setOffers(res.data);
         });
     }, []);
 
@@ -5,6 +5,7 @@ import { useNavigate } from 'react-router-dom';
 import api from '../api/api';
 import { useAuth } from '../context/AuthContext';
 import { Logo } from '../components/Logo';
+import type { LoginResponse } from '../types';
 
 export const Login: React.FC = () => {
     const [isLogin, setIsLogin] = useState(true);
@@ -24,12 +25,12 @@ export const Login: React.FC = () => {
 
         try {
             if (isLogin) {
-                const response = await api.post('/usuarios/login', {
+                const response = await api.post<LoginResponse>('/usuarios/login', {
                     email,
                     contrasena: password
                 });
                 login(response.data);
-                if (response.data.rol === 'ADMIN') {
+                if (response.data.usuario.rol === 'ADMIN') {
                     navigate('/admin');
                 } else {
                     navigate('/');
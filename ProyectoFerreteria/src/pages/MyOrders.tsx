@@ -1,25 +1,43 @@
 import React, { useEffect, useState } from 'react';
 import { useAuth } from '../context/AuthContext';
 import api from '../api/api';
-import type { Pedido } from '../types';
+import type { CursorPage, Pedido } from '../types';
 import { Package, Clock, CheckCircle, Truck, ArrowLeft } from 'lucide-react';
 import { useNavigate } from 'react-router-dom';
 
+const PAGE_SIZE = 10;
+
 export const MyOrders: React.FC = () => {
     const { user } = useAuth();
     const [orders, setOrders] = useState<Pedido[]>([]);
     const [loading, setLoading] = useState(true);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
+    const [loadingMore, setLoadingMore] = useState(false);
     const navigate = useNavigate();
 
+    // Pages arrive newest first; the cursor continues after the last order shown.
+    const fetchPage = (cursor?: string) =>
+        api.get<CursorPage<Pedido>>(`/pedidos/usuario/${user!.id}/page`, { params: { size: PAGE_SIZE, cursor } });
+
     useEffect(() => {
         if (user?.id) {
-            api.get(`/pedidos/usuario/${user.id}`).then(res => {
-                setOrders(res.data);
+            fetchPage().then(res => {
+                setOrders(res.data.content);
+                setNextCursor(res.data.nextCursor);
                 setLoading(false);
             }).catch(() => setLoading(false));
         }
     }, [user]);
 
+    const loadMore = () => {
+        if (!nextCursor) return;
+        setLoadingMore(true);
+        fetchPage(nextCursor).then(res => {
+            setOrders(prev => [...prev, ...res.data.content]);
+            setNextCursor(res.data.nextCursor);
+        }).finally(() => setLoadingMore(false));
+    };
+
     const getStatusIcon = (status: string) => {
         switch (status) {
             case 'PAGADO': return <CheckCircle size={18} color="#34C759" />;
@@ -49,7 +67,7 @@ export const MyOrders: React.FC = () => {
                     </div>
                 ) : (
                     <div style={{ display: 'flex', flexDirection: 'column', gap: '1.5rem' }}>
-                        {orders.sort((a, b) => new Date(b.fecha).getTime() - new Date(a.fecha).getTime()).map(order => (
+                        {orders.map(order => (
                             <div key={order.id} className="glass-card" style={{ padding: '2rem', display: 'flex', justifyContent: 'space-between', alignItems: 'center' }}>
                                 <div style={{ display: 'flex', gap: '2rem', alignItems: 'center' }}>
                                     <div style={{ padding: '1rem', backgroundColor: 'var(--bg-dark)', borderRadius: '12px' }}>
@@ -70,6 +88,11 @@ export const MyOrders: React.FC = () => {
                                 </div>
                             </div>
                         ))}
+                        {nextCursor && (
+                            <button onClick={loadMore} disabled={loadingMore} className="btn-primary" style={{ alignSelf: 'center' }}>
+                                {loadingMore ? 'Cargando...' : 'Ver más pedidos'}
+                            </button>
+                        )}
                     </div>
                 )}
             </div>
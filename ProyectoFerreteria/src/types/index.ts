@@ -6,6 +6,14 @@ export interface Usuario {
     contrasena?: string;
 }
 
+export interface LoginResponse {
+    usuario: Usuario;
+    accessToken: string;
+    refreshToken: string;
+    tokenType: string;
+    expiresIn: number;
+}
+
 export interface Categoria {
     id: string;
     nombre: string;
@@ -38,7 +46,7 @@ export interface Testimonio {
 }
 
 export interface Carrito {
-    id?: number;
+    id?: string;
     usuario?: Usuario;
     producto: Producto;
     cantidad: number;
@@ -58,3 +66,39 @@ export interface Pedido {
     usuario?: Usuario;
     detalles?: DetallePedido[];
 }
+
+export interface PedidoSolicitud {
+    id: string;
+    usuarioId: string;
+    estado: 'EN_COLA' | 'PROCESANDO' | 'PENDIENTE' | 'RECHAZADO';
+    motivo?: string | null;
+    pedidoId?: string | null;
+    creadoEn: string;
+    procesadoEn?: string | null;
+}
+
+export interface PedidoReciente {
+    id: string;
+    fecha: string;
+    total: number;
+    estado: string;
+    usuarioNombre?: string;
+}
+
+export interface AdminDashboard {
+    totalVentas: number;
+    totalPedidos: number;
+    ticketPromedio: number;
+    pedidosPendientes: number;
+    pedidosPorEstado: Record<string, number>;
+    productosBajoStock: number;
+    alertasStock: Pick<Producto, 'id' | 'nombre' | 'imagen' | 'stock'>[];
+    pedidosRecientes: PedidoReciente[];
+    totalUsuarios: number;
+}
+
+export interface CursorPage<T> {
+    content: T[];
+    size: number;
+    nextCursor: string | null;
+}
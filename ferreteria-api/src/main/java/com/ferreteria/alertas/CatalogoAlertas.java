@@ -0,0 +1,77 @@
+package com.ferreteria.alertas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.dto.PedidoEvento;
+import com.ferreteria.dto.PrecioCambiadoEvento;
+import com.ferreteria.entity.OutboxEvento;
+import com.ferreteria.outbox.OutboxHandler;
+import com.ferreteria.outbox.OutboxMensaje;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catalog notifications driven by the outbox: a warning when an order takes a
+ * product below the low-stock threshold, and a notice when a price changes.
+ * Both only log and count, so a repeated delivery at worst repeats a line.
+ */
+@Slf4j
+@Component
+public class CatalogoAlertas implements OutboxHandler {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+    private final int umbral;
+
+    public CatalogoAlertas(NamedParameterJdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            MeterRegistry registry, @Value("${ferreteria.stock.alerta-umbral:10}") int umbral) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.umbral = umbral;
+    }
+
+    @Override
+    public Set<String> tipos() {
+        return Set.of(OutboxEvento.PEDIDO_CREADO, OutboxEvento.PRODUCTO_PRECIO_CAMBIADO);
+    }
+
+    @Override
+    public void manejar(OutboxMensaje mensaje) throws Exception {
+        if (OutboxEvento.PEDIDO_CREADO.equals(mensaje.tipo()))
+            stockBajo(objectMapper.readValue(mensaje.payload(), PedidoEvento.class));
+        else
+            precioCambiado(objectMapper.readValue(mensaje.payload(), PrecioCambiadoEvento.class));
+    }
+
+    private void stockBajo(PedidoEvento evento) {
+        Map<Long, Integer> vendidas = new HashMap<>();
+        for (PedidoEvento.Linea linea : evento.lineas())
+            vendidas.merge(linea.productoId(), linea.cantidad(), Integer::sum);
+        if (vendidas.isEmpty())
+            return;
+        jdbcTemplate.query("SELECT id, nombre, stock FROM productos WHERE id IN (:ids) AND stock < :umbral",
+                Map.of("ids", vendidas.keySet(), "umbral", umbral), rs -> {
+                    int stock = rs.getInt("stock");
+                    // Only the order that crossed the threshold raises the alert.
+                    if (stock + vendidas.getOrDefault(rs.getLong("id"), 0) < umbral)
+                        return;
+                    log.warn("Low stock: producto {} '{}' has {} units left after pedido {}", rs.getLong("id"),
+                            rs.getString("nombre"), stock, evento.pedidoId());
+                    registry.counter("ferreteria.stock.alertas").increment();
+                });
+    }
+
+    private void precioCambiado(PrecioCambiadoEvento evento) {
+        log.info("Price of producto {} changed from {} to {}", evento.productoId(), evento.precioAnterior(),
+                evento.precio());
+        registry.counter("ferreteria.productos.precio.cambios").increment();
+    }
+}
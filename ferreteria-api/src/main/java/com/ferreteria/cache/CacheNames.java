@@ -0,0 +1,17 @@
+package com.ferreteria.cache;
+
+public final class CacheNames {
+
+    public static final String PRODUCTO = "producto";
+    public static final String PRODUCTOS = "productos";
+    public static final String PRODUCTOS_POR_CATEGORIA = "productosPorCategoria";
+    public static final String PRODUCTOS_RESUMEN = "productosResumen";
+    public static final String CATEGORIAS = "categorias";
+    // Short-lived, see CacheConfig.
+    public static final String DASHBOARD = "dashboard";
+
+    public static final String ALL = "'all'";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,554 @@
+package com.ferreteria.cache;
+
+import com.ferreteria.entity.Carrito;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.repository.CarritoRepository;
+import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.repository.UsuarioRepository;
+import com.ferreteria.service.ProductoService;
+import com.ferreteria.util.UuidV7;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind store for shopping carts. Every cart read and edit is served from
+ * memory; repeated edits of a line collapse into one pending write, and pending
+ * writes are flushed to {@code carritos} in JDBC batches every
+ * {@code ferreteria.carrito.flush-interval} and on shutdown. That interval is the
+ * most cart activity a crash can lose.
+ * <p>
+ * Each cart is written in its own transaction, and only carts with pending
+ * changes are visited. Lines whose product was deleted are dropped before the
+ * write, and a cart whose user was deleted is discarded. A cart that still fails
+ * keeps its changes for the next cycle, up to
+ * {@code ferreteria.carrito.max-flush-attempts}; after that its changes are
+ * logged and discarded, so one bad cart never holds back the rest.
+ * <p>
+ * Line ids are UUIDv7 assigned here, so a new line has its id before it reaches
+ * the database and no two instances can hand out the same one. Lines keep only
+ * the product id; the product is looked up (through the catalog cache) whenever
+ * a line is returned, so price and stock are never older than the catalog's. A
+ * whole cart's products are looked up at once, with one query for those not
+ * cached.
+ * Writes of one cart never overlap: each holds the cart's write lock from
+ * taking its pending changes until they are confirmed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CarritoStore {
+
+    // A line never changes owner or product; only its quantity is updated.
+    private static final String UPSERT = "INSERT INTO carritos (id, usuario_id, producto_id, cantidad) "
+            + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE cantidad = VALUES(cantidad)";
+    private static final String DELETE = "DELETE FROM carritos WHERE id = ?";
+
+    private final CarritoRepository carritoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final ProductoRepository productoRepository;
+    private final ProductoService productoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ferreteria.carrito.idle-expiry:PT30M}")
+    private Duration idleExpiry;
+
+    @Value("${ferreteria.carrito.max-flush-attempts:5}")
+    private int maxFlushAttempts;
+
+    private final Map<UUID, CarritoUsuario> carritos = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> usuarioPorLinea = new ConcurrentHashMap<>();
+    // Carts with changes not yet written; the only ones flush() visits.
+    private final Set<CarritoUsuario> pendientes = ConcurrentHashMap.newKeySet();
+
+    public List<Carrito> getCarrito(UUID usuarioId) {
+        return vistas(conCarrito(usuarioId, CarritoUsuario::snapshot));
+    }
+
+    /**
+     * Adds the units to the user's line for that product, creating the line if
+     * the cart does not have one yet.
+     */
+    public Carrito agregar(UUID usuarioId, Long productoId, int cantidad) {
+        Producto producto = productoService.getProductoById(productoId);
+        return vista(conCarrito(usuarioId, carrito -> {
+            Linea linea = carrito.lineas.get(productoId);
+            if (linea == null)
+                linea = nuevaLinea(carrito, productoId, 0);
+            linea.cantidad += cantidad;
+            carrito.sucia(linea.id);
+            return carrito.vista(linea);
+        }), producto);
+    }
+
+    public Optional<Carrito> buscar(UUID id) {
+        UUID usuarioId = usuarioDeLinea(id);
+        if (usuarioId == null)
+            return Optional.empty();
+        return conCarrito(usuarioId, carrito -> carrito.linea(id).map(carrito::vista)).map(this::vista);
+    }
+
+    /**
+     * Sets the line's quantity. Pointing it at another product replaces the line
+     * (or merges it into the cart's line for that product), so the returned line
+     * may have a different id.
+     */
+    public Optional<Carrito> actualizar(UUID id, Long productoId, int cantidad) {
+        UUID usuarioId = usuarioDeLinea(id);
+        if (usuarioId == null)
+            return Optional.empty();
+        if (productoId != null)
+            productoService.getProductoById(productoId);
+        return conCarrito(usuarioId, carrito -> carrito.linea(id).map(linea -> {
+            if (productoId != null && !productoId.equals(linea.productoId)) {
+                quitarLinea(carrito, linea);
+                Linea destino = carrito.lineas.get(productoId);
+                if (destino != null) {
+                    // The cart already has that product: merge into its line.
+                    destino.cantidad += cantidad;
+                } else {
+                    destino = nuevaLinea(carrito, productoId, cantidad);
+                }
+                carrito.sucia(destino.id);
+                return carrito.vista(destino);
+            }
+            linea.cantidad = cantidad;
+            carrito.sucia(linea.id);
+            return carrito.vista(linea);
+        })).map(this::vista);
+    }
+
+    public boolean eliminar(UUID id) {
+        UUID usuarioId = usuarioDeLinea(id);
+        if (usuarioId == null)
+            return false;
+        return conCarrito(usuarioId, carrito -> carrito.linea(id).map(linea -> {
+            quitarLinea(carrito, linea);
+            return true;
+        }).orElse(false));
+    }
+
+    /**
+     * Makes the user's cart exactly {@code cantidades} (productoId to units) and
+     * writes the difference right away, in one transaction, instead of waiting
+     * for the next scheduled flush.
+     */
+    public List<Carrito> reemplazar(UUID usuarioId, Map<Long, Integer> cantidades) {
+        Map<Long, Producto> productos = productoService.getProductosById(cantidades.keySet());
+        for (Long productoId : cantidades.keySet()) {
+            if (!productos.containsKey(productoId))
+                throw new ResourceNotFoundException("Producto not found with id: " + productoId);
+        }
+        CarritoUsuario actualizado = conCarrito(usuarioId, carrito -> {
+            Iterator<Linea> it = carrito.lineas.values().iterator();
+            while (it.hasNext()) {
+                Linea linea = it.next();
+                if (!cantidades.containsKey(linea.productoId)) {
+                    it.remove();
+                    carrito.quitar(linea.id);
+                    usuarioPorLinea.remove(linea.id);
+                }
+            }
+            cantidades.forEach((productoId, cantidad) -> {
+                Linea linea = carrito.lineas.get(productoId);
+                if (linea == null) {
+                    linea = nuevaLinea(carrito, productoId, cantidad);
+                    carrito.sucia(linea.id);
+                } else if (linea.cantidad != cantidad) {
+                    linea.cantidad = cantidad;
+                    carrito.sucia(linea.id);
+                }
+            });
+            return carrito;
+        });
+        // The write lock is taken without the cart lock held, as flush() does.
+        actualizado.escritura.lock();
+        try {
+            escribir(actualizado);
+        } finally {
+            actualizado.escritura.unlock();
+        }
+        return getCarrito(usuarioId);
+    }
+
+    /**
+     * Writes the pending changes of every cart that has some, one transaction per
+     * cart. A failed cart is logged and retried on the next cycle; the others
+     * are written regardless.
+     */
+    @Scheduled(fixedDelayString = "${ferreteria.carrito.flush-interval:PT5S}")
+    public synchronized void flush() {
+        for (CarritoUsuario carrito : List.copyOf(pendientes)) {
+            // Taken off before its changes are, so an edit made meanwhile puts it back.
+            pendientes.remove(carrito);
+            carrito.escritura.lock();
+            try {
+                escribir(carrito);
+            } catch (RuntimeException ex) {
+                log.warn("Cart flush failed for usuario {}, will retry on the next cycle", carrito.usuarioId, ex);
+            } finally {
+                carrito.escritura.unlock();
+            }
+        }
+        expirarInactivos();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Writes the cart's pending changes in one transaction: a batch of deletes
+     * and a batch of upserts. On failure the changes are marked pending again,
+     * and after {@code maxFlushAttempts} failures in a row the cart is discarded.
+     * The caller holds the cart's write lock.
+     */
+    private void escribir(CarritoUsuario carrito) {
+        Pendiente pendiente = carrito.tomarPendiente();
+        if (pendiente == null)
+            return;
+        try {
+            if (!usuarioRepository.existsById(carrito.usuarioId)) {
+                descartar(carrito, "its user no longer exists");
+                return;
+            }
+            pendiente = sinProductosBorrados(pendiente);
+            byte[] usuarioId = UuidV7.toBytes(carrito.usuarioId);
+            List<Object[]> upserts = pendiente.upserts().stream()
+                    .map(l -> new Object[]{UuidV7.toBytes(l.id()), usuarioId, l.productoId(), l.cantidad()})
+                    .toList();
+            List<Object[]> deletes = pendiente.deletes().stream()
+                    .map(id -> new Object[]{UuidV7.toBytes(id)})
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!deletes.isEmpty())
+                    jdbcTemplate.batchUpdate(DELETE, deletes);
+                if (!upserts.isEmpty())
+                    jdbcTemplate.batchUpdate(UPSERT, upserts);
+            });
+            log.debug("Flushed {} cart lines and {} deletions", upserts.size(), deletes.size());
+        } catch (RuntimeException ex) {
+            pendiente.revertir();
+            if (++carrito.fallos >= maxFlushAttempts)
+                descartar(carrito, "it failed " + carrito.fallos + " flushes in a row");
+            throw ex;
+        }
+        pendiente.confirmar();
+        carrito.fallos = 0;
+    }
+
+    /**
+     * Drops the lines whose product was deleted since they were added: their
+     * insert would break the foreign key. Rows already written for them are
+     * deleted in the same write.
+     */
+    private Pendiente sinProductosBorrados(Pendiente pendiente) {
+        if (pendiente.upserts().isEmpty())
+            return pendiente;
+        Set<Long> existentes = new HashSet<>(productoRepository.findIdsExistentes(
+                pendiente.upserts().stream().map(Escritura::productoId).distinct().toList()));
+        List<Escritura> upserts = new ArrayList<>();
+        List<UUID> deletes = new ArrayList<>(pendiente.deletes());
+        CarritoUsuario carrito = pendiente.carrito();
+        carrito.lock.lock();
+        try {
+            for (Escritura escritura : pendiente.upserts()) {
+                if (existentes.contains(escritura.productoId())) {
+                    upserts.add(escritura);
+                    continue;
+                }
+                Linea linea = carrito.lineas.get(escritura.productoId());
+                if (linea != null && linea.id.equals(escritura.id())) {
+                    carrito.lineas.remove(escritura.productoId());
+                    usuarioPorLinea.remove(linea.id);
+                }
+                if (carrito.persistidas.contains(escritura.id()))
+                    deletes.add(escritura.id());
+            }
+        } finally {
+            carrito.lock.unlock();
+        }
+        if (upserts.size() < pendiente.upserts().size())
+            log.info("Dropped {} lines of usuario {}'s cart whose product was deleted",
+                    pendiente.upserts().size() - upserts.size(), carrito.usuarioId);
+        return new Pendiente(carrito, upserts, deletes);
+    }
+
+    /**
+     * Forgets the cart and its unwritten changes; the next access reloads it
+     * from the table (or reports the user missing).
+     */
+    private void descartar(CarritoUsuario carrito, String motivo) {
+        carrito.lock.lock();
+        try {
+            log.error("Discarding usuario {}'s cart and its unwritten changes ({} lines in memory): {}",
+                    carrito.usuarioId, carrito.lineas.size(), motivo);
+            carrito.expirado = true;
+            carrito.lineas.values().forEach(linea -> usuarioPorLinea.remove(linea.id));
+            carritos.remove(carrito.usuarioId, carrito);
+            pendientes.remove(carrito);
+        } finally {
+            carrito.lock.unlock();
+        }
+    }
+
+    private void expirarInactivos() {
+        long limite = System.currentTimeMillis() - idleExpiry.toMillis();
+        carritos.values().removeIf(carrito -> carrito.expirarSiInactivo(limite, usuarioPorLinea));
+    }
+
+    /**
+     * Runs the action under the cart lock, loading the cart on first use. A cart
+     * expired between lookup and locking is reloaded.
+     */
+    private <T> T conCarrito(UUID usuarioId, Function<CarritoUsuario, T> action) {
+        while (true) {
+            CarritoUsuario carrito = carritos.get(usuarioId);
+            if (carrito == null) {
+                carrito = cargar(usuarioId);
+                CarritoUsuario previo = carritos.putIfAbsent(usuarioId, carrito);
+                if (previo != null) {
+                    carrito = previo;
+                } else {
+                    carrito.lineas.values().forEach(linea -> usuarioPorLinea.put(linea.id, usuarioId));
+                    if (!carrito.eliminadas.isEmpty())
+                        pendientes.add(carrito);
+                }
+            }
+            carrito.lock.lock();
+            try {
+                if (carrito.expirado)
+                    continue;
+                carrito.ultimoAcceso = System.currentTimeMillis();
+                return action.apply(carrito);
+            } finally {
+                carrito.lock.unlock();
+            }
+        }
+    }
+
+    private CarritoUsuario cargar(UUID usuarioId) {
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario not found with id: " + usuarioId));
+        CarritoUsuario carrito = new CarritoUsuario(usuarioId, usuario, pendientes);
+        List<Carrito> filas = carritoRepository.findByUsuarioId(usuarioId);
+        Map<Long, Producto> productos = productoService.getProductosById(
+                filas.stream().map(fila -> fila.getProducto().getId()).toList());
+        for (Carrito fila : filas) {
+            Long productoId = fila.getProducto().getId();
+            if (productos.containsKey(productoId)) {
+                carrito.lineas.put(productoId, new Linea(fila.getId(), productoId, fila.getCantidad()));
+                carrito.persistidas.add(fila.getId());
+            } else {
+                carrito.eliminadas.add(fila.getId());
+            }
+        }
+        return carrito;
+    }
+
+    private UUID usuarioDeLinea(UUID id) {
+        UUID usuarioId = usuarioPorLinea.get(id);
+        if (usuarioId == null) {
+            // Not loaded yet: find the owner in the table, then load that whole cart.
+            usuarioId = carritoRepository.findUsuarioIdById(id).orElse(null);
+            if (usuarioId != null)
+                conCarrito(usuarioId, carrito -> null);
+        }
+        return usuarioId;
+    }
+
+    private Linea nuevaLinea(CarritoUsuario carrito, Long productoId, int cantidad) {
+        Linea linea = new Linea(UuidV7.generate(), productoId, cantidad);
+        carrito.lineas.put(productoId, linea);
+        usuarioPorLinea.put(linea.id, carrito.usuarioId);
+        return linea;
+    }
+
+    private void quitarLinea(CarritoUsuario carrito, Linea linea) {
+        carrito.lineas.remove(linea.productoId);
+        carrito.quitar(linea.id);
+        usuarioPorLinea.remove(linea.id);
+    }
+
+    private List<Carrito> vistas(List<Vista> vistas) {
+        Map<Long, Producto> productos = productoService.getProductosById(
+                vistas.stream().map(Vista::productoId).toList());
+        List<Carrito> resultado = new ArrayList<>(vistas.size());
+        for (Vista vista : vistas) {
+            Producto producto = productos.get(vista.productoId());
+            // Missing when the product was deleted after the line was added; it is left out.
+            if (producto != null)
+                resultado.add(vista(vista, producto));
+        }
+        return resultado;
+    }
+
+    private Carrito vista(Vista vista) {
+        return vista(vista, productoService.getProductoById(vista.productoId()));
+    }
+
+    private static Carrito vista(Vista vista, Producto producto) {
+        return Carrito.builder().id(vista.id()).usuario(vista.usuario()).producto(producto)
+                .cantidad(vista.cantidad()).build();
+    }
+
+    private static final class Linea {
+        private final UUID id;
+        private final Long productoId;
+        private int cantidad;
+
+        private Linea(UUID id, Long productoId, int cantidad) {
+            this.id = id;
+            this.productoId = productoId;
+            this.cantidad = cantidad;
+        }
+    }
+
+    // A line as read under the cart lock; the product is resolved after the lock is released.
+    private record Vista(UUID id, Usuario usuario, Long productoId, int cantidad) {
+    }
+
+    private record Escritura(UUID id, Long productoId, int cantidad) {
+    }
+
+    private static final class CarritoUsuario {
+        private final UUID usuarioId;
+        private final Usuario usuario;
+        private final Set<CarritoUsuario> pendientes;
+        // Guards the lines; never held while waiting for the write lock.
+        private final ReentrantLock lock = new ReentrantLock();
+        // Held from tomarPendiente() until the write is confirmed or reverted.
+        private final ReentrantLock escritura = new ReentrantLock();
+        private final Map<Long, Linea> lineas = new LinkedHashMap<>();
+        private final Set<UUID> persistidas = new HashSet<>();
+        private final Set<UUID> sucias = new HashSet<>();
+        private final Set<UUID> eliminadas = new HashSet<>();
+        private volatile long ultimoAcceso = System.currentTimeMillis();
+        private boolean expirado;
+        // Failed writes in a row; guarded by the write lock.
+        private int fallos;
+
+        private CarritoUsuario(UUID usuarioId, Usuario usuario, Set<CarritoUsuario> pendientes) {
+            this.usuarioId = usuarioId;
+            this.usuario = usuario;
+            this.pendientes = pendientes;
+        }
+
+        private Optional<Linea> linea(UUID id) {
+            return lineas.values().stream().filter(l -> l.id.equals(id)).findFirst();
+        }
+
+        private Vista vista(Linea linea) {
+            return new Vista(linea.id, usuario, linea.productoId, linea.cantidad);
+        }
+
+        private List<Vista> snapshot() {
+            return lineas.values().stream().map(this::vista).toList();
+        }
+
+        // Callers hold the cart lock, as for every change to the line sets.
+        private void sucia(UUID id) {
+            sucias.add(id);
+            pendientes.add(this);
+        }
+
+        private void eliminada(UUID id) {
+            eliminadas.add(id);
+            pendientes.add(this);
+        }
+
+        private void quitar(UUID id) {
+            sucias.remove(id);
+            if (persistidas.contains(id))
+                eliminada(id);
+        }
+
+        private Pendiente tomarPendiente() {
+            lock.lock();
+            try {
+                if (sucias.isEmpty() && eliminadas.isEmpty())
+                    return null;
+                List<Escritura> upserts = new ArrayList<>();
+                for (Linea linea : lineas.values()) {
+                    if (sucias.contains(linea.id))
+                        upserts.add(new Escritura(linea.id, linea.productoId, linea.cantidad));
+                }
+                Pendiente pendiente = new Pendiente(this, upserts, new ArrayList<>(eliminadas));
+                // An edit made while this write is in flight marks its line dirty again.
+                sucias.clear();
+                eliminadas.clear();
+                return pendiente;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean expirarSiInactivo(long limite, Map<UUID, UUID> usuarioPorLinea) {
+            lock.lock();
+            try {
+                if (ultimoAcceso > limite || !sucias.isEmpty() || !eliminadas.isEmpty() || escritura.isLocked())
+                    return false;
+                expirado = true;
+                lineas.values().forEach(linea -> usuarioPorLinea.remove(linea.id));
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private record Pendiente(CarritoUsuario carrito, List<Escritura> upserts, List<UUID> deletes) {
+
+        private void confirmar() {
+            carrito.lock.lock();
+            try {
+                deletes.forEach(carrito.persistidas::remove);
+                for (Escritura escrita : upserts) {
+                    if (carrito.linea(escrita.id()).isPresent())
+                        carrito.persistidas.add(escrita.id());
+                    else
+                        // Removed while its insert was in flight: the row now exists and must go.
+                        carrito.eliminada(escrita.id());
+                }
+            } finally {
+                carrito.lock.unlock();
+            }
+        }
+
+        private void revertir() {
+            carrito.lock.lock();
+            try {
+                // Lines removed in the meantime stay removed; the rest are retried.
+                upserts.stream().map(Escritura::id)
+                        .filter(id -> carrito.linea(id).isPresent())
+                        .forEach(carrito::sucia);
+                deletes.forEach(carrito::eliminada);
+            } finally {
+                carrito.lock.unlock();
+            }
+        }
+    }
+}
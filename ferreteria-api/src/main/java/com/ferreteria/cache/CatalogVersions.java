@@ -0,0 +1,69 @@
+package com.ferreteria.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counter per catalog collection, used as the HTTP entity tag of every
+ * GET that reads from it. Counters start at the boot timestamp so tags issued
+ * by a previous run never match after a restart. A product's own tag also
+ * carries a counter of its stock changes, which orders bump without touching
+ * the collection's.
+ * <p>
+ * The catalog caches key their entries by the same versions, so an entry
+ * loaded before a bump can only be found under the tags that were current
+ * when its load began.
+ */
+@Component
+public class CatalogVersions {
+
+    public static final String PRODUCTOS = "productos";
+    public static final String CATEGORIAS = "categorias";
+    public static final String TESTIMONIOS = "testimonios";
+
+    private final long boot = System.currentTimeMillis();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> stockVersions = new ConcurrentHashMap<>();
+
+    public long current(String coleccion) {
+        return counter(coleccion).get();
+    }
+
+    public void bump(String coleccion) {
+        counter(coleccion).incrementAndGet();
+    }
+
+    public void bumpStock(Long productoId) {
+        stockVersions.computeIfAbsent(productoId, id -> new AtomicLong(boot)).incrementAndGet();
+    }
+
+    public String etag(String coleccion) {
+        return "\"" + coleccion + "-" + current(coleccion) + "\"";
+    }
+
+    public String etagProducto(Long productoId) {
+        return "\"" + PRODUCTOS + "-" + current(PRODUCTOS) + "-" + stockVersion(productoId) + "\"";
+    }
+
+    /** Cache key of an entry read from the collection, e.g. {@code @catalogVersions.clave('productos', 'all')}. */
+    public String clave(String coleccion, Object clave) {
+        return current(coleccion) + ":" + clave;
+    }
+
+    /** Cache key of a single product, which also changes with its stock. */
+    public String claveProducto(Long productoId) {
+        return current(PRODUCTOS) + ":" + stockVersion(productoId) + ":" + productoId;
+    }
+
+    private long stockVersion(Long productoId) {
+        AtomicLong stock = stockVersions.get(productoId);
+        return stock != null ? stock.get() : boot;
+    }
+
+    private AtomicLong counter(String coleccion) {
+        return versions.computeIfAbsent(coleccion, c -> new AtomicLong(boot));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ferreteria.cache;
+
+import com.ferreteria.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Invalidation of the catalog read caches, once the write commits. Their keys
+ * carry the collection (and product stock) versions, so bumping a version is
+ * what invalidates: a read that began before the bump stores its result under
+ * the old key, where no later read looks. The entries under the old keys are
+ * then dropped only to free memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogoCache {
+
+    private final CacheManager cacheManager;
+    private final CatalogVersions catalogVersions;
+
+    // Set by orders; the lists are refreshed once per stock-refresh interval.
+    private final AtomicBoolean stockCambiado = new AtomicBoolean();
+
+    /**
+     * A reservation only bumps the touched products' own versions, so each
+     * product page shows its stock right away. The lists are not invalidated
+     * per order: they are refreshed by {@link #refrescarStock()}, so listings
+     * may show stock up to {@code ferreteria.catalogo.stock-refresh} old while
+     * checkouts keep their caches and 304s warm.
+     */
+    public void evictStock(Collection<Long> productoIds) {
+        AfterCommit.run(() -> {
+            for (Long id : productoIds) {
+                String clave = catalogVersions.claveProducto(id);
+                catalogVersions.bumpStock(id);
+                evict(CacheNames.PRODUCTO, clave);
+            }
+            stockCambiado.set(true);
+        });
+    }
+
+    // One list invalidation per interval, however many orders took stock in it.
+    // Like the product tags, every product key moves with it.
+    @Scheduled(fixedDelayString = "${ferreteria.catalogo.stock-refresh:PT10S}")
+    public void refrescarStock() {
+        if (!stockCambiado.getAndSet(false))
+            return;
+        catalogVersions.bump(CatalogVersions.PRODUCTOS);
+        clearProductos();
+    }
+
+    /**
+     * For any product write. The bump hides every cached product as well as
+     * the lists, since a product's key carries the collection version just as
+     * its tag does.
+     */
+    public void evictProductos() {
+        AfterCommit.run(() -> {
+            catalogVersions.bump(CatalogVersions.PRODUCTOS);
+            clearProductos();
+        });
+    }
+
+    public void evictCategorias() {
+        AfterCommit.run(() -> {
+            catalogVersions.bump(CatalogVersions.CATEGORIAS);
+            clear(CacheNames.CATEGORIAS);
+        });
+    }
+
+    /**
+     * The category is embedded in every cached product, so changing or removing
+     * one also invalidates the product entries that may carry it.
+     */
+    public void evictCategoria() {
+        AfterCommit.run(() -> {
+            catalogVersions.bump(CatalogVersions.CATEGORIAS);
+            catalogVersions.bump(CatalogVersions.PRODUCTOS);
+            clear(CacheNames.CATEGORIAS);
+            clearProductos();
+        });
+    }
+
+    private void clearProductos() {
+        clear(CacheNames.PRODUCTO);
+        clear(CacheNames.PRODUCTOS);
+        clear(CacheNames.PRODUCTOS_RESUMEN);
+        clear(CacheNames.PRODUCTOS_POR_CATEGORIA);
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null)
+            cache.evict(key);
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null)
+            cache.clear();
+    }
+}
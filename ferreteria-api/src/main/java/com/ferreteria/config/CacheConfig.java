@@ -0,0 +1,25 @@
+package com.ferreteria.config;
+
+import com.ferreteria.cache.CacheNames;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Aggregates that are not evicted on writes, so they only live for a few seconds.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> shortLivedCaches(
+            @Value("${ferreteria.dashboard.ttl:PT30S}") Duration dashboardTtl) {
+        return manager -> manager.registerCustomCache(CacheNames.DASHBOARD,
+                Caffeine.newBuilder().expireAfterWrite(dashboardTtl).maximumSize(1).recordStats().build());
+    }
+}
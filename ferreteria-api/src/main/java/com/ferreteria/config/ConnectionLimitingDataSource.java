@@ -0,0 +1,116 @@
+package com.ferreteria.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits at most {@code permisos} open connections at a time, in arrival order.
+ * With virtual threads there is no request-thread cap any more, so thousands
+ * of requests can ask the pool for a connection at once; they queue here,
+ * parked cheaply on a fair semaphore, rather than contending inside HikariCP.
+ * A permit is returned when the connection is closed.
+ * <p>
+ * A thread that already holds a permit opens further connections without
+ * taking another: Hibernate allocates pooled ids from the MySQL *_seq tables
+ * on a second connection while the transaction keeps its own, and waiting
+ * here for a second permit could leave every holder waiting on the others.
+ * Those nested connections come straight from the pool, so the permits must
+ * stay below the pool size (see {@link VirtualThreadsConfig}).
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+    private final long esperaMaxMillis;
+    // Connections the current thread has open through this DataSource.
+    private final ThreadLocal<AtomicInteger> abiertas = ThreadLocal.withInitial(AtomicInteger::new);
+
+    public ConnectionLimitingDataSource(DataSource destino, int permisos, Duration esperaMax) {
+        super(destino);
+        this.permisos = new Semaphore(permisos, true);
+        this.esperaMaxMillis = esperaMax.toMillis();
+    }
+
+    public int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    public int getDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return abrir(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return abrir(() -> super.getConnection(username, password));
+    }
+
+    private interface Apertura {
+        Connection abrir() throws SQLException;
+    }
+
+    private Connection abrir(Apertura apertura) throws SQLException {
+        AtomicInteger delHilo = abiertas.get();
+        boolean conPermiso = delHilo.get() == 0;
+        if (conPermiso)
+            adquirir();
+        try {
+            Connection connection = apertura.abrir();
+            delHilo.incrementAndGet();
+            return liberarAlCerrar(connection, delHilo, conPermiso);
+        } catch (SQLException | RuntimeException e) {
+            if (conPermiso)
+                permisos.release();
+            throw e;
+        }
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(esperaMaxMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException(
+                        "No database connection available after " + esperaMaxMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a database connection", e);
+        }
+    }
+
+    private Connection liberarAlCerrar(Connection connection, AtomicInteger delHilo, boolean conPermiso) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (cerrada.compareAndSet(false, true)) {
+                                delHilo.decrementAndGet();
+                                if (conPermiso)
+                                    permisos.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -6,11 +6,13 @@ import com.ferreteria.repository.CategoriaRepository;
 import com.ferreteria.repository.ProductoRepository;
 import com.ferreteria.repository.TestimonioRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class DataInitializer implements CommandLineRunner {
@@ -34,9 +36,9 @@ public class DataInitializer implements CommandLineRunner {
                     .rol("ADMIN")
                     .build();
             usuarioRepository.save(admin);
-            System.out.println("Default admin created: admin@ferreteria.com / admin123");
+            log.info("Default admin created: admin@ferreteria.com");
         }
 
-        System.out.println("Data initialization complete. System ready for Admin management.");
+        log.info("Data initialization complete. System ready for Admin management.");
     }
 }
@@ -0,0 +1,40 @@
+package com.ferreteria.config;
+
+import com.ferreteria.entity.IdSequences;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves each emulated sequence table past the ids already stored, so tables
+ * that were filled through AUTO_INCREMENT keep working after the switch to
+ * pooled sequences. The pooled optimizer hands out the block ending at the
+ * value it reads, hence the extra {@link IdSequences#ALLOCATION_SIZE}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdSequenceInitializer {
+
+    private final JdbcTemplate jdbcTemplate;
+    // Injected so the schema (and the sequence tables) exist before this runs.
+    @SuppressWarnings("unused")
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void alignSequences() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database))
+            return;
+        IdSequences.TABLAS.forEach((secuencia, tabla) -> {
+            int updated = jdbcTemplate.update("UPDATE " + secuencia + " SET next_val = GREATEST(next_val, "
+                    + "(SELECT COALESCE(MAX(id), 0) + " + IdSequences.ALLOCATION_SIZE + " FROM " + tabla + "))");
+            log.debug("Sequence {} aligned with {} ({} rows)", secuencia, tabla, updated);
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package com.ferreteria.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Entities carry @JsonFilter for sparse fieldsets; without a fields= parameter
+    // no filter is registered and every property is written.
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsFilterCustomizer() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+}
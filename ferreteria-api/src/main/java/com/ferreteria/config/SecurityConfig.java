@@ -1,50 +1,143 @@
 package com.ferreteria.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.security.TokenAuthenticationFilter;
+import com.ferreteria.security.TokenClaims;
+import com.ferreteria.security.TokenService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final String ADMIN = TokenClaims.ADMIN;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
     }
 
+    /*
+     * Stateless: every request is authenticated from its bearer token alone.
+     * The catalog is public to read; writing it, the admin endpoints and the
+     * listings across all customers need ADMIN; a customer's own orders, cart
+     * and profile need that customer's token (or an admin's).
+     */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, TokenService tokenService, ObjectMapper objectMapper,
+            @Value("${ferreteria.metrics.scrape-from:}") List<String> redesScrape) throws Exception {
+        AuthenticationEntryPoint entryPoint = (request, response, ex) -> {
+            // A rejected token explains the 401 better than the missing authentication does.
+            Object rechazado = request.getAttribute(TokenAuthenticationFilter.TOKEN_RECHAZADO);
+            String message = rechazado instanceof AuthenticationException token ? token.getMessage() : ex.getMessage();
+            escribirError(response, objectMapper, HttpStatus.UNAUTHORIZED, message);
+        };
+        AccessDeniedHandler accessDenied = (request, response, ex) ->
+                escribirError(response, objectMapper, HttpStatus.FORBIDDEN, ex.getMessage());
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .httpBasic(AbstractHttpConfigurer::disable)
+                .formLogin(AbstractHttpConfigurer::disable)
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(entryPoint).accessDeniedHandler(accessDenied))
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService),
+                        UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests(auth -> auth
-                        .anyRequest().permitAll());
+                        .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        .requestMatchers("/error", "/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/usuarios", "/api/usuarios/login",
+                                "/api/usuarios/refresh").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/prometheus").access(redOAdmin(redesScrape))
+                        .requestMatchers("/actuator/**").hasRole(ADMIN)
+                        .requestMatchers("/api/admin/**", "/api/admins/**", "/api/detalles-pedido/**").hasRole(ADMIN)
+                        .requestMatchers(HttpMethod.GET, "/api/pedidos", "/api/pedidos/page", "/api/pedidos/export",
+                                "/api/usuarios", "/api/usuarios/page", "/api/carritos").hasRole(ADMIN)
+                        .requestMatchers("/api/pedidos/usuario/{usuarioId}/**", "/api/carritos/usuario/{usuarioId}/**",
+                                "/api/usuarios/{usuarioId}").access(mismoUsuarioOAdmin())
+                        .requestMatchers(HttpMethod.PUT, "/api/pedidos/**").hasRole(ADMIN)
+                        .requestMatchers(HttpMethod.DELETE, "/api/pedidos/**").hasRole(ADMIN)
+                        .requestMatchers("/api/productos/import/**").hasRole(ADMIN)
+                        .requestMatchers(HttpMethod.GET, "/api/productos/**", "/api/categorias/**",
+                                "/api/testimonios/**").permitAll()
+                        .requestMatchers("/api/productos/**", "/api/categorias/**").hasRole(ADMIN)
+                        .anyRequest().authenticated());
         return http.build();
     }
 
+    // The {usuarioId} path variable must be the caller's own id, unless the caller is an admin.
+    private static AuthorizationManager<RequestAuthorizationContext> mismoUsuarioOAdmin() {
+        return (authentication, context) -> {
+            if (authentication.get().getPrincipal() instanceof TokenClaims claims) {
+                return new AuthorizationDecision(claims.esAdmin()
+                        || claims.usuarioId().toString().equalsIgnoreCase(context.getVariables().get("usuarioId")));
+            }
+            return new AuthorizationDecision(false);
+        };
+    }
+
+    // Lets the Prometheus scraper in by source address; anyone else needs an admin token.
+    private static AuthorizationManager<RequestAuthorizationContext> redOAdmin(List<String> redes) {
+        List<IpAddressMatcher> matchers = redes.stream().map(String::trim).filter(r -> !r.isEmpty())
+                .map(IpAddressMatcher::new).toList();
+        return (authentication, context) -> {
+            if (matchers.stream().anyMatch(m -> m.matches(context.getRequest())))
+                return new AuthorizationDecision(true);
+            return new AuthorizationDecision(authentication.get().getPrincipal() instanceof TokenClaims claims
+                    && claims.esAdmin());
+        };
+    }
+
+    private static void escribirError(HttpServletResponse response, ObjectMapper objectMapper, HttpStatus status,
+            String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", status.getReasonPhrase(),
+                "message", message != null ? message : status.getReasonPhrase()));
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         // Permitimos tanto el localhost como tu URL de Railway
         configuration.setAllowedOrigins(Arrays.asList("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Accept",
+                "If-None-Match", "Idempotency-Key"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag", "X-Query-Count", "X-Query-Time"));
         configuration.setAllowCredentials(false); // Con "*" no se puede usar true
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
     }
-}
\ No newline at end of file
+}
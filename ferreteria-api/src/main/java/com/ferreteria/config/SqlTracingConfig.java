@@ -0,0 +1,52 @@
+package com.ferreteria.config;
+
+import com.ferreteria.diagnostics.SqlTracingDataSource;
+import com.ferreteria.diagnostics.SqlTracingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Per-request SQL accounting (ferreteria.sql-tracing): the DataSource is
+ * wrapped in a {@link SqlTracingDataSource} and every request runs through a
+ * {@link SqlTracingFilter}. The headers are only on in the dev profile.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ferreteria.sql-tracing", name = "enabled", matchIfMissing = true)
+public class SqlTracingConfig {
+
+    @Bean
+    static BeanPostProcessor sqlTracingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource
+                        && DataSourceUnwrapper.unwrap(dataSource, SqlTracingDataSource.class) == null)
+                    return new SqlTracingDataSource(dataSource);
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<SqlTracingFilter> sqlTracingFilter(MeterRegistry registry,
+            @Value("${ferreteria.sql-tracing.headers:false}") boolean cabeceras,
+            @Value("${ferreteria.sql-tracing.max-statements:30}") int maxSentencias,
+            @Value("${ferreteria.sql-tracing.max-time:500ms}") Duration maxTiempo,
+            @Value("${ferreteria.sql-tracing.n-plus-one-threshold:5}") int umbralNMas1) {
+        FilterRegistrationBean<SqlTracingFilter> registro = new FilterRegistrationBean<>(
+                new SqlTracingFilter(registry, cabeceras, maxSentencias, maxTiempo, umbralNMas1));
+        // Ahead of Spring Security, so the statements of the whole request are counted.
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registro;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ferreteria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Opt-in mode (--spring.profiles.active=virtual-threads, Java 21+): requests,
+ * @Scheduled and @Async work run on virtual threads (spring.threads.virtual.enabled),
+ * and the DataSource is fronted by a {@link ConnectionLimitingDataSource} with
+ * fewer permits than the Hikari pool has connections. The mode promises no
+ * throughput or latency gain: nothing in the repo measures it, so compare it
+ * with the default under load against MySQL before turning it on.
+ */
+@Slf4j
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadsConfig {
+
+    private static final int HIKARI_POOL_POR_DEFECTO = 10;
+
+    @Bean
+    static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // The DataSource may already be wrapped (SQL tracing); look through it for the pool.
+                if (!(bean instanceof DataSource dataSource)
+                        || DataSourceUnwrapper.unwrap(dataSource, ConnectionLimitingDataSource.class) != null)
+                    return bean;
+                HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class);
+                if (hikari == null)
+                    return bean;
+                if (Runtime.version().feature() < 21)
+                    log.warn("The virtual-threads profile needs Java 21+; running on {} with platform threads",
+                            Runtime.version());
+                int permisos = permisos(env, hikari);
+                log.info("Database connections limited to {} concurrent holders", permisos);
+                return new ConnectionLimitingDataSource(dataSource, permisos,
+                        Duration.ofMillis(hikari.getConnectionTimeout()));
+            }
+        };
+    }
+
+    /**
+     * db-permits, or the pool size less db-headroom when it is 0, and never the
+     * whole pool: connections a permit holder opens for pooled id allocation
+     * skip the limiter and must still find one free.
+     */
+    static int permisos(Environment env, HikariDataSource hikari) {
+        // Hikari reports -1 until the pool starts when maximum-pool-size is not set.
+        int pool = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : HIKARI_POOL_POR_DEFECTO;
+        int permisos = env.getProperty("ferreteria.virtual-threads.db-permits", Integer.class, 0);
+        if (permisos <= 0)
+            permisos = pool - env.getProperty("ferreteria.virtual-threads.db-headroom", Integer.class, 2);
+        if (permisos >= pool) {
+            log.warn("db-permits {} leaves no pool connection for id allocation; using {}", permisos, pool - 1);
+            permisos = pool - 1;
+        }
+        if (permisos < 1) {
+            log.warn("A pool of {} leaves no room for the connection limiter's headroom; using 1 permit", pool);
+            permisos = 1;
+        }
+        return permisos;
+    }
+
+    @Bean
+    MeterBinder connectionLimitMetrics(DataSource dataSource) {
+        return registry -> {
+            ConnectionLimitingDataSource limitado = DataSourceUnwrapper.unwrap(dataSource,
+                    ConnectionLimitingDataSource.class);
+            if (limitado != null) {
+                Gauge.builder("ferreteria.datasource.waiting", limitado, ConnectionLimitingDataSource::getEsperando)
+                        .description("Threads waiting for a connection permit").register(registry);
+                Gauge.builder("ferreteria.datasource.permits", limitado, ConnectionLimitingDataSource::getDisponibles)
+                        .description("Connection permits available").register(registry);
+            }
+        };
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admins")
@@ -23,7 +24,7 @@ public class AdminController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Admin> getAdminById(@PathVariable String id) {
+    public ResponseEntity<Admin> getAdminById(@PathVariable UUID id) {
         return ResponseEntity.ok(adminService.getAdminById(id));
     }
 
@@ -33,12 +34,12 @@ public class AdminController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Admin> updateAdmin(@PathVariable String id, @Valid @RequestBody Admin admin) {
+    public ResponseEntity<Admin> updateAdmin(@PathVariable UUID id, @Valid @RequestBody Admin admin) {
         return ResponseEntity.ok(adminService.updateAdmin(id, admin));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteAdmin(@PathVariable String id) {
+    public ResponseEntity<Void> deleteAdmin(@PathVariable UUID id) {
         adminService.deleteAdmin(id);
         return ResponseEntity.noContent().build();
     }
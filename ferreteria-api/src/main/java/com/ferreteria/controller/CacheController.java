@@ -0,0 +1,39 @@
+package com.ferreteria.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/caches")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CacheManager cacheManager;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                CacheStats stats = cache.getNativeCache().stats();
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("size", cache.getNativeCache().estimatedSize());
+                values.put("hits", stats.hitCount());
+                values.put("misses", stats.missCount());
+                values.put("hitRate", stats.hitRate());
+                values.put("evictions", stats.evictionCount());
+                result.put(name, values);
+            }
+        }
+        return ResponseEntity.ok(result);
+    }
+}
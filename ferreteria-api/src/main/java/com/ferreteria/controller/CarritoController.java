@@ -1,14 +1,19 @@
 package com.ferreteria.controller;
 
 import com.ferreteria.entity.Carrito;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.security.TokenClaims;
+import com.ferreteria.security.UsuarioActual;
 import com.ferreteria.service.CarritoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/carritos")
@@ -19,12 +24,18 @@ public class CarritoController {
 
     @PostMapping
     public ResponseEntity<Carrito> createCarrito(@Valid @RequestBody Carrito carrito) {
+        // A customer always adds to their own cart; only an admin may name another usuario.
+        TokenClaims claims = UsuarioActual.claims().orElseThrow(() -> new AccessDeniedException("Access denied"));
+        if (!claims.esAdmin() || carrito.getUsuario() == null || carrito.getUsuario().getId() == null)
+            carrito.setUsuario(Usuario.builder().id(claims.usuarioId()).build());
         return new ResponseEntity<>(carritoService.createCarrito(carrito), HttpStatus.CREATED);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Carrito> getCarritoById(@PathVariable Long id) {
-        return ResponseEntity.ok(carritoService.getCarritoById(id));
+    public ResponseEntity<Carrito> getCarritoById(@PathVariable UUID id) {
+        Carrito carrito = carritoService.getCarritoById(id);
+        comprobarPropietario(carrito);
+        return ResponseEntity.ok(carrito);
     }
 
     @GetMapping
@@ -33,18 +44,34 @@ public class CarritoController {
     }
 
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<List<Carrito>> getCarritoByUsuario(@PathVariable String usuarioId) {
+    public ResponseEntity<List<Carrito>> getCarritoByUsuario(@PathVariable UUID usuarioId) {
         return ResponseEntity.ok(carritoService.getCarritoByUsuario(usuarioId));
     }
 
+    @PutMapping("/usuario/{usuarioId}")
+    public ResponseEntity<List<Carrito>> replaceCarritoByUsuario(@PathVariable UUID usuarioId,
+            @RequestBody List<Carrito> items) {
+        return ResponseEntity.ok(carritoService.replaceCarritoByUsuario(usuarioId, items));
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<Carrito> updateCarrito(@PathVariable Long id, @Valid @RequestBody Carrito carrito) {
+    public ResponseEntity<Carrito> updateCarrito(@PathVariable UUID id, @Valid @RequestBody Carrito carrito) {
+        comprobarPropietario(carritoService.getCarritoById(id));
         return ResponseEntity.ok(carritoService.updateCarrito(id, carrito));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteCarrito(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteCarrito(@PathVariable UUID id) {
+        comprobarPropietario(carritoService.getCarritoById(id));
         carritoService.deleteCarrito(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    // A cart line belongs to its usuario; anyone else but an admin is refused.
+    private static void comprobarPropietario(Carrito carrito) {
+        TokenClaims claims = UsuarioActual.claims().orElseThrow(() -> new AccessDeniedException("Access denied"));
+        UUID usuarioId = carrito.getUsuario() != null ? carrito.getUsuario().getId() : null;
+        if (!claims.esAdmin() && !claims.usuarioId().equals(usuarioId))
+            throw new AccessDeniedException("Access denied");
+    }
+}
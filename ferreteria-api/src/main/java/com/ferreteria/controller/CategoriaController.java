@@ -1,5 +1,6 @@
 package com.ferreteria.controller;
 
+import com.ferreteria.cache.CatalogVersions;
 import com.ferreteria.entity.Categoria;
 import com.ferreteria.service.CategoriaService;
 import jakarta.validation.Valid;
@@ -7,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,6 +18,7 @@ import java.util.List;
 public class CategoriaController {
 
     private final CategoriaService categoriaService;
+    private final ConditionalGet conditionalGet;
 
     @PostMapping
     public ResponseEntity<Categoria> createCategoria(@Valid @RequestBody Categoria categoria) {
@@ -23,13 +26,13 @@ public class CategoriaController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Categoria> getCategoriaById(@PathVariable String id) {
-        return ResponseEntity.ok(categoriaService.getCategoriaById(id));
+    public ResponseEntity<Categoria> getCategoriaById(@PathVariable String id, WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.CATEGORIAS, () -> categoriaService.getCategoriaById(id));
     }
 
     @GetMapping
-    public ResponseEntity<List<Categoria>> getAllCategorias() {
-        return ResponseEntity.ok(categoriaService.getAllCategorias());
+    public ResponseEntity<List<Categoria>> getAllCategorias(WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.CATEGORIAS, categoriaService::getAllCategorias);
     }
 
     @PutMapping("/{id}")
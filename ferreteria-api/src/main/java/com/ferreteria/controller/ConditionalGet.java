@@ -0,0 +1,67 @@
+package com.ferreteria.controller;
+
+import com.ferreteria.cache.CatalogVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Answers catalog GETs with a strong ETag derived from the collection version.
+ * When the client already holds that version the body supplier is never called,
+ * so nothing is loaded or serialized for a 304.
+ */
+@Component
+@RequiredArgsConstructor
+class ConditionalGet {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePublic();
+
+    private final CatalogVersions catalogVersions;
+
+    <T> ResponseEntity<T> respond(WebRequest request, String coleccion, Supplier<T> body) {
+        return respondWithTag(request, catalogVersions.etag(coleccion), body);
+    }
+
+    // A single product, whose tag also changes when an order takes its stock.
+    <T> ResponseEntity<T> respondProducto(WebRequest request, Long productoId, Supplier<T> body) {
+        return respondWithTag(request, catalogVersions.etagProducto(productoId), body);
+    }
+
+    private <T> ResponseEntity<T> respondWithTag(WebRequest request, String etag, Supplier<T> body) {
+        String[] ifNoneMatch = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (contiene(ifNoneMatch, etag))
+            return notModified(etag);
+        T valor = body.get();
+        // "*" only matches a resource that exists; a missing one has already
+        // thrown its 404 from the supplier.
+        if (valor != null && contiene(ifNoneMatch, "*"))
+            return notModified(etag);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CACHE_CONTROL).body(valor);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+    }
+
+    // If-None-Match uses the weak comparison, so a W/ prefix added by a proxy still matches.
+    private static boolean contiene(String[] ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/"))
+                    tag = tag.substring(2);
+                if (tag.equals(etag))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.ferreteria.controller;
+
+import com.ferreteria.dto.AdminDashboard;
+import com.ferreteria.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    @GetMapping
+    public ResponseEntity<AdminDashboard> getDashboard() {
+        return ResponseEntity.ok(dashboardService.getDashboard());
+    }
+}
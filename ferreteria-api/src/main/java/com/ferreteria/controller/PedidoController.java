@@ -1,14 +1,28 @@
 package com.ferreteria.controller;
 
+import com.ferreteria.dto.CursorPage;
+import com.ferreteria.dto.FormatoArchivo;
 import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.PedidoSolicitud;
+import com.ferreteria.security.TokenClaims;
+import com.ferreteria.security.UsuarioActual;
+import com.ferreteria.service.PedidoIntakeService;
 import com.ferreteria.service.PedidoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/pedidos")
@@ -16,15 +30,42 @@ import java.util.List;
 public class PedidoController {
 
     private final PedidoService pedidoService;
+    private final PedidoIntakeService pedidoIntakeService;
 
     @PostMapping
     public ResponseEntity<Pedido> createPedido(@Valid @RequestBody Pedido pedido) {
+        comprobarPropietario(pedido);
         return new ResponseEntity<>(pedidoService.createPedido(pedido), HttpStatus.CREATED);
     }
 
+    /**
+     * Asynchronous checkout: the order is queued and answered with 202 at once;
+     * poll the Location (GET /api/pedidos/solicitudes/{id}) until its estado is
+     * PENDIENTE, with pedidoId set, or RECHAZADO, with the motivo. A request
+     * repeating an earlier Idempotency-Key gets that earlier solicitud back.
+     */
+    @PostMapping("/async")
+    public ResponseEntity<PedidoSolicitud> createPedidoAsync(@RequestBody Pedido pedido,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        comprobarPropietario(pedido);
+        PedidoSolicitud solicitud = pedidoIntakeService.encolar(pedido, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/pedidos/solicitudes/" + solicitud.getId()))
+                .body(solicitud);
+    }
+
+    @GetMapping("/solicitudes/{id}")
+    public ResponseEntity<PedidoSolicitud> getSolicitud(@PathVariable UUID id) {
+        PedidoSolicitud solicitud = pedidoIntakeService.getSolicitud(id);
+        comprobarPropietario(solicitud.getUsuarioId());
+        return ResponseEntity.ok(solicitud);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Pedido> getPedidoById(@PathVariable String id) {
-        return ResponseEntity.ok(pedidoService.getPedidoById(id));
+    public ResponseEntity<Pedido> getPedidoById(@PathVariable UUID id) {
+        Pedido pedido = pedidoService.getPedidoById(id);
+        comprobarPropietario(pedido);
+        return ResponseEntity.ok(pedido);
     }
 
     @GetMapping
@@ -32,19 +73,62 @@ public class PedidoController {
         return ResponseEntity.ok(pedidoService.getAllPedidos());
     }
 
+    /** Orders newest first; pass the previous page's nextCursor as cursor to continue. */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Pedido>> getPedidosPage(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(pedidoService.getPedidosPage(cursor, size));
+    }
+
+    /**
+     * Order lines between two dates (inclusive, both optional) as a CSV or
+     * NDJSON download, streamed straight from the database cursor.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPedidos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+        FormatoArchivo formato = FormatoArchivo.of(format);
+        String nombre = "pedidos" + (from != null ? "-" + from : "") + (to != null ? "-" + to : "")
+                + "." + formato.getExtension();
+        return ResponseEntity.ok()
+                .contentType(formato.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(nombre).build().toString())
+                .body(salida -> pedidoService.exportPedidos(from, to, formato, salida));
+    }
+
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<List<Pedido>> getPedidosByUsuario(@PathVariable String usuarioId) {
+    public ResponseEntity<List<Pedido>> getPedidosByUsuario(@PathVariable UUID usuarioId) {
         return ResponseEntity.ok(pedidoService.getPedidosByUsuario(usuarioId));
     }
 
+    @GetMapping("/usuario/{usuarioId}/page")
+    public ResponseEntity<CursorPage<Pedido>> getPedidosByUsuarioPage(@PathVariable UUID usuarioId,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(pedidoService.getPedidosByUsuarioPage(usuarioId, cursor, size));
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<Pedido> updatePedido(@PathVariable String id, @Valid @RequestBody Pedido pedido) {
+    public ResponseEntity<Pedido> updatePedido(@PathVariable UUID id, @Valid @RequestBody Pedido pedido) {
         return ResponseEntity.ok(pedidoService.updatePedido(id, pedido));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deletePedido(@PathVariable String id) {
+    public ResponseEntity<Void> deletePedido(@PathVariable UUID id) {
         pedidoService.deletePedido(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    // Customers may only place and read their own orders.
+    private static void comprobarPropietario(Pedido pedido) {
+        comprobarPropietario(pedido.getUsuario() != null ? pedido.getUsuario().getId() : null);
+    }
+
+    private static void comprobarPropietario(UUID usuarioId) {
+        TokenClaims claims = UsuarioActual.claims().orElseThrow(() -> new AccessDeniedException("Access denied"));
+        if (!claims.esAdmin() && !claims.usuarioId().equals(usuarioId))
+            throw new AccessDeniedException("Access denied");
+    }
+}
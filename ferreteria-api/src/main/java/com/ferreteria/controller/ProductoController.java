@@ -1,14 +1,31 @@
 package com.ferreteria.controller;
 
+import com.ferreteria.cache.CatalogVersions;
+import com.ferreteria.dto.FormatoArchivo;
+import com.ferreteria.dto.PageResponse;
+import com.ferreteria.dto.ProductoFacetFilter;
+import com.ferreteria.dto.ProductoFacets;
+import com.ferreteria.dto.ProductoImportReport;
+import com.ferreteria.dto.ProductoResumen;
+import com.ferreteria.dto.ProductoSearchCriteria;
 import com.ferreteria.entity.Producto;
+import com.ferreteria.service.ProductoImportService;
 import com.ferreteria.service.ProductoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/productos")
@@ -16,25 +33,113 @@ import java.util.List;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final ProductoImportService productoImportService;
+    private final ConditionalGet conditionalGet;
 
     @PostMapping
     public ResponseEntity<Producto> createProducto(@Valid @RequestBody Producto producto) {
         return new ResponseEntity<>(productoService.createProducto(producto), HttpStatus.CREATED);
     }
 
+    /**
+     * Bulk upsert from a CSV ({@code text/csv}) or NDJSON
+     * ({@code application/x-ndjson}) body, streamed as it is read in the
+     * Content-Type charset (UTF-8 when none is given). While it runs,
+     * GET /api/productos/import lists it with its progress.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ProductoImportReport> importProductos(InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestParam(required = false) Integer chunkSize) {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return ResponseEntity.ok(productoImportService.importProductos(body, FormatoArchivo.of(contentType), charset,
+                chunkSize));
+    }
+
+    // Running and recent imports, newest first; counts move after every chunk.
+    @GetMapping("/import")
+    public ResponseEntity<List<ProductoImportReport>> getImportaciones() {
+        return ResponseEntity.ok(productoImportService.getImportaciones());
+    }
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<ProductoImportReport> getImportacion(@PathVariable UUID id) {
+        return ResponseEntity.ok(productoImportService.getImportacion(id));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Producto> getProductoById(@PathVariable Long id) {
-        return ResponseEntity.ok(productoService.getProductoById(id));
+    public ResponseEntity<Producto> getProductoById(@PathVariable Long id, WebRequest request) {
+        return conditionalGet.respondProducto(request, id, () -> productoService.getProductoById(id));
     }
 
     @GetMapping
-    public ResponseEntity<List<Producto>> getAllProductos() {
-        return ResponseEntity.ok(productoService.getAllProductos());
+    public ResponseEntity<List<Producto>> getAllProductos(WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.PRODUCTOS, productoService::getAllProductos);
+    }
+
+    @GetMapping("/resumen")
+    public ResponseEntity<List<ProductoResumen>> getProductosResumen(
+            @RequestParam(required = false) String categoriaId,
+            @RequestParam(defaultValue = "false") boolean soloOfertas,
+            WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.PRODUCTOS,
+                () -> productoService.getProductosResumen(categoriaId, soloOfertas));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<PageResponse<Producto>> searchProductos(
+            @RequestParam(required = false) String categoriaId,
+            @RequestParam(required = false) List<String> marcas,
+            @RequestParam(required = false) BigDecimal precioMin,
+            @RequestParam(required = false) BigDecimal precioMax,
+            @RequestParam(required = false) String texto,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size,
+            WebRequest request) {
+        ProductoSearchCriteria criteria = new ProductoSearchCriteria();
+        criteria.setCategoriaId(categoriaId);
+        criteria.setMarcas(marcas);
+        criteria.setPrecioMin(precioMin);
+        criteria.setPrecioMax(precioMax);
+        criteria.setTexto(texto);
+        criteria.setSort(sort);
+        criteria.setPage(page);
+        criteria.setSize(size);
+        return conditionalGet.respond(request, CatalogVersions.PRODUCTOS, () -> productoService.searchProductos(criteria));
+    }
+
+    @GetMapping("/buscar")
+    public ResponseEntity<List<Producto>> searchProductosByText(@RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit, WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.PRODUCTOS,
+                () -> productoService.searchProductosByText(q, limit));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<ProductoFacets> getFacets(
+            @RequestParam(required = false) List<String> categorias,
+            @RequestParam(required = false) List<String> marcas,
+            @RequestParam(required = false) List<String> rangosPrecio,
+            @RequestParam(required = false) Boolean esOferta,
+            @RequestParam(required = false) Boolean esNuevo,
+            @RequestParam(required = false) Boolean esMasVendido,
+            WebRequest request) {
+        ProductoFacetFilter filter = new ProductoFacetFilter();
+        filter.setCategorias(categorias);
+        filter.setMarcas(marcas);
+        filter.setRangosPrecio(rangosPrecio);
+        filter.setEsOferta(esOferta);
+        filter.setEsNuevo(esNuevo);
+        filter.setEsMasVendido(esMasVendido);
+        return conditionalGet.respond(request, CatalogVersions.PRODUCTOS, () -> productoService.getFacets(filter));
     }
 
     @GetMapping("/categoria/{categoriaId}")
-    public ResponseEntity<List<Producto>> getProductosByCategoria(@PathVariable String categoriaId) {
-        return ResponseEntity.ok(productoService.getProductosByCategoria(categoriaId));
+    public ResponseEntity<List<Producto>> getProductosByCategoria(@PathVariable String categoriaId,
+            WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.PRODUCTOS,
+                () -> productoService.getProductosByCategoria(categoriaId));
     }
 
     @PutMapping("/{id}")
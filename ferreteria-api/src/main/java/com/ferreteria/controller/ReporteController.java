@@ -0,0 +1,68 @@
+package com.ferreteria.controller;
+
+import com.ferreteria.dto.VentasPorCategoria;
+import com.ferreteria.dto.VentasPorDia;
+import com.ferreteria.dto.VentasPorProducto;
+import com.ferreteria.service.ReporteService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sales reports. Ranges are inclusive and default to the last 30 days.
+ */
+@RestController
+@RequestMapping("/api/admin/reportes/ventas")
+@RequiredArgsConstructor
+public class ReporteController {
+
+    private static final int DIAS_POR_DEFECTO = 30;
+
+    private final ReporteService reporteService;
+
+    @GetMapping("/diarias")
+    public ResponseEntity<List<VentasPorDia>> getVentasPorDia(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate hasta = hasta(to);
+        return ResponseEntity.ok(reporteService.getVentasPorDia(desde(from, hasta), hasta));
+    }
+
+    @GetMapping("/categorias")
+    public ResponseEntity<List<VentasPorCategoria>> getVentasPorCategoria(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate hasta = hasta(to);
+        return ResponseEntity.ok(reporteService.getVentasPorCategoria(desde(from, hasta), hasta));
+    }
+
+    @GetMapping("/productos")
+    public ResponseEntity<List<VentasPorProducto>> getTopProductos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        LocalDate hasta = hasta(to);
+        return ResponseEntity.ok(reporteService.getTopProductos(desde(from, hasta), hasta, limit));
+    }
+
+    /** Recomputes the rollups from the orders; without dates, for all of them. */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildVentas(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(Map.of("filas", reporteService.rebuildVentas(from, to)));
+    }
+
+    private static LocalDate hasta(LocalDate to) {
+        return to != null ? to : LocalDate.now();
+    }
+
+    private static LocalDate desde(LocalDate from, LocalDate hasta) {
+        return from != null ? from : hasta.minusDays(DIAS_POR_DEFECTO - 1);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ferreteria.controller;
+
+import com.ferreteria.util.SparseFieldsFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies {@code ?fields=id,nombre,precio} to the JSON written by the catalog and
+ * order endpoints.
+ */
+@ControllerAdvice(assignableTypes = {ProductoController.class, PedidoController.class})
+public class SparseFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+            MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest))
+            return;
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        String fields = httpRequest.getParameter("fields");
+        if (!StringUtils.hasText(fields))
+            return;
+        Set<String> names = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toSet());
+        bodyContainer.setFilters(new SimpleFilterProvider()
+                .addFilter(SparseFieldsFilter.ID, new SparseFieldsFilter(names)));
+    }
+}
@@ -1,5 +1,6 @@
 package com.ferreteria.controller;
 
+import com.ferreteria.cache.CatalogVersions;
 import com.ferreteria.entity.Testimonio;
 import com.ferreteria.repository.TestimonioRepository;
 import lombok.RequiredArgsConstructor;
@@ -7,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -15,9 +17,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TestimonioController {
     private final TestimonioRepository testimonioRepository;
+    private final ConditionalGet conditionalGet;
 
+    // Testimonials have no write endpoint; their version only changes on restart.
     @GetMapping
-    public ResponseEntity<List<Testimonio>> getAllTestimonios() {
-        return ResponseEntity.ok(testimonioRepository.findAll());
+    public ResponseEntity<List<Testimonio>> getAllTestimonios(WebRequest request) {
+        return conditionalGet.respond(request, CatalogVersions.TESTIMONIOS, testimonioRepository::findAll);
     }
 }
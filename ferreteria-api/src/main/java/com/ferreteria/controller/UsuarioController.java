@@ -1,8 +1,13 @@
 package com.ferreteria.controller;
 
+import com.ferreteria.dto.CursorPage;
 import com.ferreteria.dto.LoginRequest;
+import com.ferreteria.dto.LoginResponse;
+import com.ferreteria.dto.RefreshRequest;
 import com.ferreteria.entity.Usuario;
+import com.ferreteria.security.LoginThrottle;
 import com.ferreteria.service.UsuarioService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -10,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/usuarios")
@@ -17,19 +23,29 @@ import java.util.List;
 public class UsuarioController {
 
     private final UsuarioService usuarioService;
+    private final LoginThrottle loginThrottle;
 
     @PostMapping("/login")
-    public ResponseEntity<Usuario> login(@RequestBody LoginRequest loginRequest) {
-        return ResponseEntity.ok(usuarioService.login(loginRequest));
+    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        loginThrottle.intentoLogin(loginRequest.getEmail(), request.getRemoteAddr());
+        LoginResponse response = usuarioService.login(loginRequest);
+        loginThrottle.loginCorrecto(loginRequest.getEmail());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(@RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(usuarioService.refresh(request.getRefreshToken()));
     }
 
     @PostMapping
-    public ResponseEntity<Usuario> createUsuario(@Valid @RequestBody Usuario usuario) {
+    public ResponseEntity<Usuario> createUsuario(@Valid @RequestBody Usuario usuario, HttpServletRequest request) {
+        loginThrottle.intentoRegistro(request.getRemoteAddr());
         return new ResponseEntity<>(usuarioService.createUsuario(usuario), HttpStatus.CREATED);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Usuario> getUsuarioById(@PathVariable String id) {
+    public ResponseEntity<Usuario> getUsuarioById(@PathVariable UUID id) {
         return ResponseEntity.ok(usuarioService.getUsuarioById(id));
     }
 
@@ -38,13 +54,20 @@ public class UsuarioController {
         return ResponseEntity.ok(usuarioService.getAllUsuarios());
     }
 
+    /** Users by nombre; pass the previous page's nextCursor as cursor to continue. */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Usuario>> getUsuariosPage(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(usuarioService.getUsuariosPage(cursor, size));
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<Usuario> updateUsuario(@PathVariable String id, @RequestBody Usuario usuario) {
+    public ResponseEntity<Usuario> updateUsuario(@PathVariable UUID id, @RequestBody Usuario usuario) {
         return ResponseEntity.ok(usuarioService.updateUsuario(id, usuario));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUsuario(@PathVariable String id) {
+    public ResponseEntity<Void> deleteUsuario(@PathVariable UUID id) {
         usuarioService.deleteUsuario(id);
         return ResponseEntity.noContent().build();
     }
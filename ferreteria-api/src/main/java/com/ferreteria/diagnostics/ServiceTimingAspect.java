@@ -0,0 +1,41 @@
+package com.ferreteria.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public method of the *ServiceImpl beans as ferreteria.service,
+ * tagged with class, method and the exception thrown (or "none"). Calls a
+ * service makes to its own methods do not go through the proxy and are
+ * counted in the caller only.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceTimingAspect {
+
+    private final MeterRegistry registry;
+
+    @Around("execution(public * com.ferreteria.service.impl.*ServiceImpl.*(..))")
+    public Object medir(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("ferreteria.service")
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
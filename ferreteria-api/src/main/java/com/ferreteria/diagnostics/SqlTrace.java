@@ -0,0 +1,89 @@
+package com.ferreteria.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The statements one HTTP request has run, filled in by
+ * {@link SqlTracingDataSource} on the request thread. Statements are keyed by
+ * their raw SQL while the request runs; {@link #formas()} folds them into
+ * normalized shapes (literals and IN lists collapsed) only when asked.
+ */
+public final class SqlTrace {
+
+    private static final ThreadLocal<SqlTrace> ACTUAL = new ThreadLocal<>();
+
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+    private static final Pattern CADENAS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMEROS = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern LISTAS_IN = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    /** A normalized statement and how often, and for how long, the request ran it. */
+    public record Forma(String sql, int veces, long nanos) {
+    }
+
+    private static final class Contador {
+        int veces;
+        long nanos;
+    }
+
+    private final Map<String, Contador> porSql = new HashMap<>();
+    private int sentencias;
+    private long nanos;
+
+    static SqlTrace iniciar() {
+        SqlTrace traza = new SqlTrace();
+        ACTUAL.set(traza);
+        return traza;
+    }
+
+    static void terminar() {
+        ACTUAL.remove();
+    }
+
+    static SqlTrace actual() {
+        return ACTUAL.get();
+    }
+
+    void registrar(String sql, long duracion) {
+        Contador contador = porSql.computeIfAbsent(sql, k -> new Contador());
+        contador.veces++;
+        contador.nanos += duracion;
+        sentencias++;
+        nanos += duracion;
+    }
+
+    public int getSentencias() {
+        return sentencias;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /** Shapes run by the request, most frequent first. */
+    public List<Forma> formas() {
+        Map<String, Contador> porForma = new HashMap<>();
+        porSql.forEach((sql, c) -> {
+            Contador total = porForma.computeIfAbsent(normalizar(sql), k -> new Contador());
+            total.veces += c.veces;
+            total.nanos += c.nanos;
+        });
+        List<Forma> formas = new ArrayList<>(porForma.size());
+        porForma.forEach((sql, c) -> formas.add(new Forma(sql, c.veces, c.nanos)));
+        formas.sort(Comparator.comparingInt(Forma::veces).reversed().thenComparing(Forma::nanos,
+                Comparator.reverseOrder()));
+        return formas;
+    }
+
+    static String normalizar(String sql) {
+        String forma = ESPACIOS.matcher(sql.trim()).replaceAll(" ");
+        forma = CADENAS.matcher(forma).replaceAll("?");
+        forma = NUMEROS.matcher(forma).replaceAll("?");
+        return LISTAS_IN.matcher(forma).replaceAll("in (?)");
+    }
+}
@@ -0,0 +1,80 @@
+package com.ferreteria.diagnostics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Times every execute* call on statements created through this DataSource and
+ * records it in the calling thread's {@link SqlTrace}, if there is one. Work
+ * outside an HTTP request (schedulers, the outbox poller) goes straight
+ * through.
+ */
+public class SqlTracingDataSource extends DelegatingDataSource {
+
+    private static final String SIN_SQL = "(batch)";
+
+    public SqlTracingDataSource(DataSource destino) {
+        super(destino);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trazar(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return trazar(super.getConnection(username, password));
+    }
+
+    private static Connection trazar(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object resultado = invocar(connection, method, args);
+                    if (resultado instanceof Statement statement && creaSentencia(method)) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return trazar(statement, method.getReturnType(), sql);
+                    }
+                    return resultado;
+                });
+    }
+
+    private static boolean creaSentencia(Method method) {
+        return switch (method.getName()) {
+            case "createStatement", "prepareStatement", "prepareCall" -> true;
+            default -> false;
+        };
+    }
+
+    // tipo is Statement, PreparedStatement or CallableStatement, as the factory method declared.
+    private static Object trazar(Statement statement, Class<?> tipo, String sqlPreparada) {
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{tipo},
+                (proxy, method, args) -> {
+                    SqlTrace traza = SqlTrace.actual();
+                    if (traza == null || !method.getName().startsWith("execute"))
+                        return invocar(statement, method, args);
+                    String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : sqlPreparada;
+                    long inicio = System.nanoTime();
+                    try {
+                        return invocar(statement, method, args);
+                    } finally {
+                        traza.registrar(sql != null ? sql : SIN_SQL, System.nanoTime() - inicio);
+                    }
+                });
+    }
+
+    private static Object invocar(Object destino, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
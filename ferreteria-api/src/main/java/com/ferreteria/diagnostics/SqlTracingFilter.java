@@ -0,0 +1,150 @@
+package com.ferreteria.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Opens a {@link SqlTrace} for each request. When enabled, X-Query-Count and
+ * X-Query-Time (ms) are set just before the response starts, so they cover
+ * the statements run up to then; the checks below cover the whole request. A
+ * request over the statement or SQL-time budget, or running one shape at
+ * least n-plus-one-threshold times, is logged with its shapes. Statements run
+ * on other threads (streamed exports, async work) are not seen.
+ */
+@Slf4j
+public class SqlTracingFilter extends OncePerRequestFilter {
+
+    static final String CABECERA_CUENTA = "X-Query-Count";
+    static final String CABECERA_TIEMPO = "X-Query-Time";
+    private static final int FORMAS_EN_LOG = 10;
+
+    private final MeterRegistry registry;
+    private final boolean cabeceras;
+    private final int maxSentencias;
+    private final long maxNanos;
+    private final int umbralNMas1;
+
+    public SqlTracingFilter(MeterRegistry registry, boolean cabeceras, int maxSentencias, Duration maxTiempo,
+            int umbralNMas1) {
+        this.registry = registry;
+        this.cabeceras = cabeceras;
+        this.maxSentencias = maxSentencias;
+        this.maxNanos = maxTiempo.toNanos();
+        this.umbralNMas1 = umbralNMas1;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlTrace traza = SqlTrace.iniciar();
+        try {
+            chain.doFilter(request, cabeceras ? new ConCabeceras(response, traza) : response);
+        } finally {
+            SqlTrace.terminar();
+            if (cabeceras && !response.isCommitted())
+                escribirCabeceras(response, traza);
+            revisar(request, traza);
+        }
+    }
+
+    private void revisar(HttpServletRequest request, SqlTrace traza) {
+        if (traza.getSentencias() == 0)
+            return;
+        boolean excedido = traza.getSentencias() > maxSentencias || traza.getNanos() > maxNanos;
+        if (!excedido && traza.getSentencias() < umbralNMas1)
+            return;
+        List<SqlTrace.Forma> formas = traza.formas();
+        boolean nMas1 = formas.get(0).veces() >= umbralNMas1;
+        if (!excedido && !nMas1)
+            return;
+
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron != null ? patron.toString() : request.getRequestURI();
+        if (nMas1)
+            registry.counter("ferreteria.sql.n_plus_one", "uri", patron != null ? uri : "UNKNOWN").increment();
+        StringBuilder detalle = new StringBuilder();
+        formas.stream().limit(FORMAS_EN_LOG).forEach(f -> detalle.append("\n  ")
+                .append(f.veces() >= umbralNMas1 ? "[N+1?] " : "")
+                .append(f.veces()).append("x ").append(milis(f.nanos())).append(" ms  ").append(f.sql()));
+        if (formas.size() > FORMAS_EN_LOG)
+            detalle.append("\n  ... ").append(formas.size() - FORMAS_EN_LOG).append(" more shapes");
+        log.warn("{} {} ran {} statements in {} ms of SQL{}{}{}", request.getMethod(), uri, traza.getSentencias(),
+                milis(traza.getNanos()), excedido ? " (over budget)" : "",
+                nMas1 ? " with repeated shapes, suspected N+1:" : ":", detalle);
+    }
+
+    private static void escribirCabeceras(HttpServletResponse response, SqlTrace traza) {
+        response.setHeader(CABECERA_CUENTA, Integer.toString(traza.getSentencias()));
+        response.setHeader(CABECERA_TIEMPO, milis(traza.getNanos()));
+    }
+
+    private static String milis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    // Sets the headers the moment the body (or an error) is about to be written.
+    private static final class ConCabeceras extends HttpServletResponseWrapper {
+
+        private final SqlTrace traza;
+
+        ConCabeceras(HttpServletResponse response, SqlTrace traza) {
+            super(response);
+            this.traza = traza;
+        }
+
+        private void antesDeEscribir() {
+            if (!isCommitted())
+                escribirCabeceras((HttpServletResponse) getResponse(), traza);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            antesDeEscribir();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            antesDeEscribir();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            antesDeEscribir();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            antesDeEscribir();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            antesDeEscribir();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            antesDeEscribir();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ferreteria.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the JFR jdk.VirtualThreadPinned event: a virtual thread that blocked
+ * while holding a monitor (a synchronized block, e.g. inside a JDBC driver
+ * under a @Transactional service method) and so kept its carrier thread busy.
+ * Each pinning is counted as ferreteria.vthreads.pinned, tagged with the first
+ * application frame on the stack; the first one per location is logged with
+ * its stack.
+ */
+@Slf4j
+@Component
+@Profile("virtual-threads")
+@RequiredArgsConstructor
+public class VirtualThreadPinningMonitor {
+
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+    private static final String PAQUETE_APP = "com.ferreteria.";
+
+    private final MeterRegistry registry;
+    private final Set<String> vistos = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @Value("${ferreteria.virtual-threads.pinned-threshold:20ms}")
+    private Duration umbral;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (Runtime.version().feature() < 21)
+            return;
+        stream = new RecordingStream();
+        stream.enable(EVENTO).withThreshold(umbral).withStackTrace();
+        stream.onEvent(EVENTO, this::registrar);
+        stream.startAsync();
+        log.info("Watching for virtual threads pinned longer than {}", umbral);
+    }
+
+    private void registrar(RecordedEvent evento) {
+        List<RecordedFrame> frames = evento.getStackTrace() != null ? evento.getStackTrace().getFrames() : List.of();
+        String donde = frames.stream()
+                .filter(f -> f.getMethod().getType().getName().startsWith(PAQUETE_APP))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(f -> simple(f.getMethod().getType().getName()) + "." + f.getMethod().getName())
+                .orElse("unknown");
+        registry.counter("ferreteria.vthreads.pinned", "at", donde).increment();
+        if (vistos.add(donde)) {
+            StringBuilder pila = new StringBuilder();
+            frames.stream().limit(25).forEach(f -> pila.append("\n\tat ").append(f.getMethod().getType().getName())
+                    .append('.').append(f.getMethod().getName()).append(':').append(f.getLineNumber()));
+            log.warn("Virtual thread pinned for {} ms in {}{}", evento.getDuration().toMillis(), donde, pila);
+        }
+    }
+
+    private static String simple(String clase) {
+        return clase.substring(clase.lastIndexOf('.') + 1);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null)
+            stream.close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminDashboard {
+    private BigDecimal totalVentas;
+    private long totalPedidos;
+    private BigDecimal ticketPromedio;
+    // PENDIENTE + PAGADO: orders still to be processed or shipped.
+    private long pedidosPendientes;
+    private Map<String, Long> pedidosPorEstado;
+    private long productosBajoStock;
+    private List<ProductoResumen> alertasStock;
+    private List<PedidoReciente> pedidosRecientes;
+    private long totalUsuarios;
+}
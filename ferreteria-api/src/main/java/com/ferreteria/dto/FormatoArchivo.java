@@ -0,0 +1,40 @@
+package com.ferreteria.dto;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/** File formats accepted by the bulk import and produced by the exports. */
+public enum FormatoArchivo {
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    FormatoArchivo(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static FormatoArchivo of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unsupported format: " + value + " (expected csv or ndjson)");
+        }
+    }
+
+    public static FormatoArchivo of(MediaType contentType) {
+        return contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON) ? NDJSON : CSV;
+    }
+}
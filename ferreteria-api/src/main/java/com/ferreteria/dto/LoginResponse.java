@@ -0,0 +1,26 @@
+package com.ferreteria.dto;
+
+import com.ferreteria.entity.Usuario;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a login or refresh. The access token goes in
+ * {@code Authorization: Bearer}; once it expires the refresh token is traded
+ * at /api/usuarios/refresh for a new pair.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginResponse {
+    private Usuario usuario;
+    private String accessToken;
+    private String refreshToken;
+    @Builder.Default
+    private String tokenType = "Bearer";
+    // Seconds until the access token expires.
+    private long expiresIn;
+}
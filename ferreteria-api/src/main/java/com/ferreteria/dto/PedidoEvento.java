@@ -0,0 +1,60 @@
+package com.ferreteria.dto;
+
+import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Payload of the PEDIDO_* outbox events: the order as it was when the event
+ * was written (lines included), plus the previous estado and fecha for
+ * PEDIDO_MODIFICADO, so handlers never need to read the order back. For
+ * PEDIDO_LINEAS_MODIFICADAS the lines are the change: a removed line with its
+ * cantidad negated, an added one as is, an edited one as both.
+ */
+public record PedidoEvento(UUID pedidoId, UUID usuarioId, LocalDate fecha, String estado,
+        LocalDate fechaAnterior, String estadoAnterior, List<Linea> lineas) {
+
+    public record Linea(Long productoId, String categoriaId, Integer cantidad, BigDecimal precioUnitario) {
+
+        public Linea negada() {
+            return new Linea(productoId, categoriaId, -cantidad, precioUnitario);
+        }
+    }
+
+    public static PedidoEvento of(Pedido pedido) {
+        return of(pedido, null, null);
+    }
+
+    public static PedidoEvento of(Pedido pedido, String estadoAnterior, LocalDate fechaAnterior) {
+        List<Linea> lineas = pedido.getDetalles() == null ? List.of() : pedido.getDetalles().stream()
+                .filter(PedidoEvento::vendible)
+                .map(PedidoEvento::linea)
+                .toList();
+        return new PedidoEvento(pedido.getId(), pedido.getUsuario() != null ? pedido.getUsuario().getId() : null,
+                pedido.getFecha(), pedido.getEstado(), fechaAnterior, estadoAnterior, lineas);
+    }
+
+    public static PedidoEvento deLineas(Pedido pedido, List<Linea> cambios) {
+        return new PedidoEvento(pedido.getId(), pedido.getUsuario() != null ? pedido.getUsuario().getId() : null,
+                pedido.getFecha(), pedido.getEstado(), null, null, cambios);
+    }
+
+    // A line without product or cantidad never counts as sold.
+    public static boolean vendible(DetallePedido detalle) {
+        return detalle.getProducto() != null && detalle.getCantidad() != null;
+    }
+
+    // Lines ordered before categoriaId was recorded fall back to the product's.
+    public static Linea linea(DetallePedido detalle) {
+        Producto producto = detalle.getProducto();
+        String categoriaId = detalle.getCategoriaId();
+        if (categoriaId == null && producto.getCategoria() != null)
+            categoriaId = producto.getCategoria().getId();
+        return new Linea(producto.getId(), categoriaId, detalle.getCantidad(), detalle.getPrecioUnitario());
+    }
+}
@@ -0,0 +1,25 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/** One order line, flattened with its order, customer and product for exports. */
+@Data
+@AllArgsConstructor
+public class PedidoExportRow {
+    private UUID pedidoId;
+    private LocalDate fecha;
+    private String estado;
+    private BigDecimal total;
+    private UUID usuarioId;
+    private String usuarioEmail;
+    private Long detalleId;
+    private Long productoId;
+    private String productoNombre;
+    private Integer cantidad;
+    private BigDecimal precioUnitario;
+}
@@ -0,0 +1,20 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoReciente {
+    private UUID id;
+    private LocalDate fecha;
+    private BigDecimal total;
+    private String estado;
+    private String usuarioNombre;
+}
@@ -0,0 +1,11 @@
+package com.ferreteria.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** What an asynchronous checkout stores: the order date and its lines. */
+public record PedidoSolicitudPayload(LocalDate fecha, List<Linea> lineas) {
+
+    public record Linea(Long productoId, Integer cantidad) {
+    }
+}
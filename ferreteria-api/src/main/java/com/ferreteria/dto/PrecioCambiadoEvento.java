@@ -0,0 +1,14 @@
+package com.ferreteria.dto;
+
+import java.math.BigDecimal;
+
+/** Payload of PRODUCTO_PRECIO_CAMBIADO. */
+public record PrecioCambiadoEvento(Long productoId, BigDecimal precioAnterior, BigDecimal precio) {
+
+    // 10.0 and 10.00 are the same price.
+    public static boolean cambia(BigDecimal anterior, BigDecimal nuevo) {
+        if (anterior == null || nuevo == null)
+            return anterior != nuevo;
+        return anterior.compareTo(nuevo) != 0;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ferreteria.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProductoFacetFilter {
+    private List<String> categorias;
+    private List<String> marcas;
+    // Keys of ProductoFacetIndex price buckets, e.g. "50-100" or "1000+"
+    private List<String> rangosPrecio;
+    private Boolean esOferta;
+    private Boolean esNuevo;
+    private Boolean esMasVendido;
+}
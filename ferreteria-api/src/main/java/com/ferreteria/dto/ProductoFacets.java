@@ -0,0 +1,18 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoFacets {
+    private long total;
+    private Map<String, Long> marcas;
+    private Map<String, Long> categorias;
+    private Map<String, Long> rangosPrecio;
+    private Map<String, Long> flags;
+}
@@ -0,0 +1,59 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a product import, and its progress while it runs: the counts are
+ * updated after every chunk and readable through GET /api/productos/import/{id}.
+ */
+@Data
+@NoArgsConstructor
+public class ProductoImportReport {
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String TERMINADA = "TERMINADA";
+    // Stopped by an unexpected error; the counts show what was committed.
+    public static final String INTERRUMPIDA = "INTERRUMPIDA";
+
+    private UUID id;
+    private String estado;
+    private Instant inicio;
+    private long filas;
+    private long creados;
+    private long actualizados;
+    private long fallidos;
+    private long duracionMs;
+    private long filasPorSegundo;
+    // Only the first errors are listed; fallidos has the full count.
+    private List<ErrorFila> errores = new ArrayList<>();
+
+    // Snapshot for status readers; the running import keeps changing this one.
+    public ProductoImportReport copia() {
+        ProductoImportReport copia = new ProductoImportReport();
+        copia.setId(id);
+        copia.setEstado(estado);
+        copia.setInicio(inicio);
+        copia.setFilas(filas);
+        copia.setCreados(creados);
+        copia.setActualizados(actualizados);
+        copia.setFallidos(fallidos);
+        copia.setDuracionMs(duracionMs);
+        copia.setFilasPorSegundo(filasPorSegundo);
+        copia.setErrores(new ArrayList<>(errores));
+        return copia;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErrorFila {
+        private long fila;
+        private String mensaje;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ferreteria.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One product in an import file. {@code categoria} is a category id or name.
+ */
+@Data
+public class ProductoImportRow {
+    private String nombre;
+    private String marca;
+    private String descripcion;
+    private BigDecimal precio;
+    private BigDecimal precioAnterior;
+    private Integer stock;
+    private String imagen;
+    private List<String> imagenesAdicionales;
+    private Boolean esOferta;
+    private Boolean esNuevo;
+    private Boolean esMasVendido;
+    private Double puntuacion;
+    private String categoria;
+}
@@ -0,0 +1,29 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Listing columns of a product, without descripcion, imagenesAdicionales or the
+ * nested Categoria. Selected directly by ProductoRepository constructor queries.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoResumen {
+    private Long id;
+    private String nombre;
+    private String marca;
+    private BigDecimal precio;
+    private BigDecimal precioAnterior;
+    private String imagen;
+    private Integer stock;
+    private Boolean esOferta;
+    private Boolean esNuevo;
+    private Boolean esMasVendido;
+    private Double puntuacion;
+    private String categoriaId;
+}
@@ -0,0 +1,19 @@
+package com.ferreteria.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class ProductoSearchCriteria {
+    private String categoriaId;
+    private List<String> marcas;
+    private BigDecimal precioMin;
+    private BigDecimal precioMax;
+    private String texto;
+    // price-asc, price-desc, top-rated, newest (same keys used by Shop.tsx)
+    private String sort;
+    private int page;
+    private int size = 12;
+}
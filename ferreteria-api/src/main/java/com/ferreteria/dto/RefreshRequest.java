@@ -0,0 +1,8 @@
+package com.ferreteria.dto;
+
+import lombok.Data;
+
+@Data
+public class RefreshRequest {
+    private String refreshToken;
+}
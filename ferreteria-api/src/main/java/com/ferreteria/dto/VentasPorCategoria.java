@@ -0,0 +1,17 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentasPorCategoria {
+    private String categoriaId;
+    private String categoriaNombre;
+    private Long unidades;
+    private BigDecimal importe;
+}
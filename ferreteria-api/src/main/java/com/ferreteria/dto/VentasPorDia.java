@@ -0,0 +1,17 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentasPorDia {
+    private LocalDate fecha;
+    private Long unidades;
+    private BigDecimal importe;
+}
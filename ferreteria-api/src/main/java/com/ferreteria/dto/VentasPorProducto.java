@@ -0,0 +1,17 @@
+package com.ferreteria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentasPorProducto {
+    private Long productoId;
+    private String productoNombre;
+    private Long unidades;
+    private BigDecimal importe;
+}
@@ -1,5 +1,8 @@
 package com.ferreteria.entity;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.ferreteria.util.SparseFieldsFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -11,6 +14,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@JsonFilter(SparseFieldsFilter.ID)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "categorias")
 public class Categoria {
 
@@ -1,6 +1,8 @@
 package com.ferreteria.entity;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ferreteria.util.SparseFieldsFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,11 +15,13 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@JsonFilter(SparseFieldsFilter.ID)
 @Table(name = "detalle_pedidos")
 public class DetallePedido {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_pedidos_seq")
+    @SequenceGenerator(name = "detalle_pedidos_seq", sequenceName = "detalle_pedidos_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -25,10 +29,16 @@ public class DetallePedido {
     @JsonIgnore
     private Pedido pedido;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id")
     private Producto producto;
 
     private Integer cantidad;
     private BigDecimal precioUnitario;
+
+    // Category of the product when the line was ordered, so the sales rollup
+    // takes the line back out of the same category after the product moves.
+    @JsonIgnore
+    @Column(name = "categoria_id")
+    private String categoriaId;
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.ferreteria.entity;
+
+import java.util.Map;
+
+/**
+ * Pooled id sequences. Hibernate reserves {@link #ALLOCATION_SIZE} ids per
+ * round trip, so inserts no longer need the generated key back and can be
+ * batched. MySQL has no sequences; Hibernate emulates each one with a
+ * single-row table of the same name.
+ */
+public final class IdSequences {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    /** Sequence name to the table whose ids it generates. */
+    public static final Map<String, String> TABLAS = Map.of(
+            "detalle_pedidos_seq", "detalle_pedidos",
+            "productos_seq", "productos",
+            "testimonios_seq", "testimonios");
+
+    private IdSequences() {
+    }
+}
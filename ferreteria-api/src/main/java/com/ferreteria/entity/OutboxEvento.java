@@ -0,0 +1,66 @@
+package com.ferreteria.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A domain event written in the same transaction as the change it describes
+ * and delivered afterwards by {@link com.ferreteria.outbox.OutboxPoller}. The
+ * table is written and read with plain JDBC; the mapping defines its schema.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_eventos", indexes = {
+        @Index(name = "idx_outbox_pendientes", columnList = "procesado_en, id"),
+        @Index(name = "idx_outbox_agregado", columnList = "agregado_tipo, agregado_id, procesado_en, id")
+})
+public class OutboxEvento {
+
+    public static final String PEDIDO = "PEDIDO";
+    public static final String PRODUCTO = "PRODUCTO";
+
+    public static final String PEDIDO_CREADO = "PEDIDO_CREADO";
+    public static final String PEDIDO_MODIFICADO = "PEDIDO_MODIFICADO";
+    // Lines added, changed or removed through /api/detalles-pedido; carries the deltas.
+    public static final String PEDIDO_LINEAS_MODIFICADAS = "PEDIDO_LINEAS_MODIFICADAS";
+    public static final String PEDIDO_ELIMINADO = "PEDIDO_ELIMINADO";
+    public static final String PRODUCTO_PRECIO_CAMBIADO = "PRODUCTO_PRECIO_CAMBIADO";
+
+    // Auto-increment: delivery order within an aggregate is id order.
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "agregado_tipo", nullable = false, length = 30)
+    private String agregadoTipo;
+
+    @Column(name = "agregado_id", nullable = false, length = 64)
+    private String agregadoId;
+
+    @Column(nullable = false, length = 50)
+    private String tipo;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    private int intentos;
+
+    @Column(name = "reintentar_en")
+    private LocalDateTime reintentarEn;
+
+    @Column(name = "procesado_en")
+    private LocalDateTime procesadoEn;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+}
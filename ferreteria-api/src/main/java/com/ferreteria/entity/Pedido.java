@@ -1,35 +1,58 @@
 package com.ferreteria.entity;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.ferreteria.util.SparseFieldsFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "pedidos")
+@JsonFilter(SparseFieldsFilter.ID)
+@Table(name = "pedidos", indexes = {
+        @Index(name = "idx_pedidos_fecha", columnList = "fecha, id"),
+        @Index(name = "idx_pedidos_usuario_fecha", columnList = "usuario_id, fecha, id")
+})
+@NamedEntityGraph(name = Pedido.GRAFO_COMPLETO, attributeNodes = {
+        @NamedAttributeNode("usuario"),
+        @NamedAttributeNode(value = "detalles", subgraph = "detalles")
+}, subgraphs = {
+        @NamedSubgraph(name = "detalles", attributeNodes = @NamedAttributeNode(value = "producto", subgraph = "producto")),
+        @NamedSubgraph(name = "producto", attributeNodes = @NamedAttributeNode("categoria"))
+})
 public class Pedido {
 
+    public static final String GRAFO_COMPLETO = "Pedido.completo";
+    // A cancelled order holds no stock and counts in no sales.
+    public static final String CANCELADO = "CANCELADO";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(length = 36)
-    private String id;
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id")
     private Usuario usuario;
 
+    // Part of the keyset page order and cursor; createPedido defaults it to today.
+    @Column(nullable = false)
     private LocalDate fecha;
     private String estado;
     private BigDecimal total;
 
-    @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<DetallePedido> detalles;
 }
\ No newline at end of file
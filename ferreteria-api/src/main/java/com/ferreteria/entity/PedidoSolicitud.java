@@ -0,0 +1,82 @@
+package com.ferreteria.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A checkout accepted for asynchronous processing. It is written when the
+ * request arrives, claimed by {@link com.ferreteria.intake.PedidoIntakeWorker},
+ * and ends as PENDIENTE (with the id of the created pedido) or RECHAZADO (with
+ * the reason).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "pedido_solicitudes", indexes = {
+        @Index(name = "idx_solicitudes_estado", columnList = "estado, creado_en")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_solicitudes_idempotencia", columnNames = {"usuario_id", "clave_idempotencia"})
+})
+public class PedidoSolicitud {
+
+    public static final String EN_COLA = "EN_COLA";
+    public static final String PROCESANDO = "PROCESANDO";
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String RECHAZADO = "RECHAZADO";
+
+    @Id
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "usuario_id", length = 16, nullable = false)
+    private UUID usuarioId;
+
+    // The client's Idempotency-Key, unique per customer; null when none was sent.
+    @JsonIgnore
+    @Column(name = "clave_idempotencia", length = 64)
+    private String claveIdempotencia;
+
+    // The order lines as JSON (PedidoSolicitudPayload).
+    @JsonIgnore
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(nullable = false, length = 20)
+    private String estado;
+
+    @Column(length = 500)
+    private String motivo;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "pedido_id", length = 16)
+    private UUID pedidoId;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    // When the current claim was taken; also identifies that claim.
+    @JsonIgnore
+    @Column(name = "tomado_en")
+    private LocalDateTime tomadoEn;
+
+    @Column(name = "procesado_en")
+    private LocalDateTime procesadoEn;
+
+    @JsonIgnore
+    private int intentos;
+}
@@ -1,10 +1,14 @@
 package com.ferreteria.entity;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.ferreteria.util.SparseFieldsFilter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -13,11 +17,17 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "productos")
+@JsonFilter(SparseFieldsFilter.ID)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "productos", indexes = {
+        @Index(name = "idx_productos_marca", columnList = "marca"),
+        @Index(name = "idx_productos_precio", columnList = "precio")
+})
 public class Producto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     private String nombre;
@@ -32,6 +42,7 @@ public class Producto {
     private String imagen; // Principal image
 
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "producto_imagenes", joinColumns = @JoinColumn(name = "producto_id"))
     @Column(name = "imagen_url")
     private List<String> imagenesAdicionales;
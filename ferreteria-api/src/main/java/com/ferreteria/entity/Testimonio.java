@@ -14,7 +14,8 @@ import lombok.NoArgsConstructor;
 @Table(name = "testimonios")
 public class Testimonio {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "testimonios_seq")
+    @SequenceGenerator(name = "testimonios_seq", sequenceName = "testimonios_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     private String cliente;
@@ -1,31 +1,44 @@
 package com.ferreteria.entity;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ferreteria.util.SparseFieldsFilter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "usuarios")
+@JsonFilter(SparseFieldsFilter.ID)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "usuarios", indexes = @Index(name = "idx_usuarios_nombre", columnList = "nombre, id"))
 public class Usuario {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(length = 36)
-    private String id;
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
 
     private String nombre;
 
     @Column(unique = true)
     private String email;
 
+    // Accepted on create/update, never serialized back.
     @NotNull
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String contrasena;
 
     private String rol;
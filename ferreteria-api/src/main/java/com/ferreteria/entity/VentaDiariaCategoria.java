@@ -0,0 +1,43 @@
+package com.ferreteria.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Units and revenue of one category on one day, kept up to date by
+ * {@link com.ferreteria.report.VentasRollup}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(VentaDiariaCategoria.Clave.class)
+@Table(name = "ventas_diarias_categoria")
+public class VentaDiariaCategoria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Column(name = "categoria_id")
+    private String categoriaId;
+
+    private Long unidades;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal importe;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private LocalDate fecha;
+        private String categoriaId;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ferreteria.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Units and revenue of one product on one day, kept up to date by
+ * {@link com.ferreteria.report.VentasRollup}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(VentaDiariaProducto.Clave.class)
+@Table(name = "ventas_diarias_producto", indexes = {
+        @Index(name = "idx_ventas_producto_producto", columnList = "producto_id, fecha")
+})
+public class VentaDiariaProducto {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    private Long unidades;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal importe;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private LocalDate fecha;
+        private Long productoId;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ferreteria.exception;
+
+public class ServicioSaturadoException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServicioSaturadoException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ferreteria.exception;
+
+public class StockInsuficienteException extends RuntimeException {
+    public StockInsuficienteException(String message) {
+        super(message);
+    }
+}
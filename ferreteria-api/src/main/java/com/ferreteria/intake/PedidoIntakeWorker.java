@@ -0,0 +1,197 @@
+package com.ferreteria.intake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.dto.PedidoSolicitudPayload;
+import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.PedidoSolicitud;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.exception.StockInsuficienteException;
+import com.ferreteria.service.PedidoService;
+import com.ferreteria.util.UuidV7;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Drains pedido_solicitudes. Each tick claims as many queued requests as there
+ * are free worker slots with SELECT ... FOR UPDATE SKIP LOCKED, so several
+ * instances take disjoint batches, and marks them PROCESANDO. Every request is
+ * then turned into an order through {@link PedidoService#createPedido} in the
+ * same transaction that records the outcome, so a crash either leaves the
+ * claim to be retried after its lease or the order and PENDIENTE together.
+ * Business failures (stock, unknown product or customer, invalid line) end as RECHAZADO;
+ * anything else is retried up to max-attempts.
+ */
+@Slf4j
+@Component
+public class PedidoIntakeWorker {
+
+    private static final String RECLAMAR = "SELECT id, usuario_id, payload, intentos FROM pedido_solicitudes "
+            + "WHERE estado = ? OR (estado = ? AND tomado_en < ?) ORDER BY creado_en LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final PedidoService pedidoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final int capacidad;
+    private final int tamanoLote;
+    private final Duration lease;
+    private final int maxIntentos;
+
+    public PedidoIntakeWorker(PedidoService pedidoService, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, ObjectMapper objectMapper, MeterRegistry registry,
+            @Value("${ferreteria.pedidos.intake.workers:4}") int workers,
+            @Value("${ferreteria.pedidos.intake.batch-size:20}") int tamanoLote,
+            @Value("${ferreteria.pedidos.intake.lease:PT2M}") Duration lease,
+            @Value("${ferreteria.pedidos.intake.max-attempts:5}") int maxIntentos) {
+        this.pedidoService = pedidoService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.tamanoLote = tamanoLote;
+        this.lease = lease;
+        this.maxIntentos = maxIntentos;
+        // Claims never exceed the free slots, so the queue can never overflow.
+        this.capacidad = workers * 2;
+        AtomicInteger secuencia = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidad), r -> new Thread(r, "pedido-intake-" + secuencia.incrementAndGet()));
+    }
+
+    private record Reclamo(UUID id, UUID usuarioId, String payload, int intentos, Timestamp tomadoEn) {
+    }
+
+    @Scheduled(fixedDelayString = "${ferreteria.pedidos.intake.poll-interval:PT0.5S}")
+    public void procesarCola() {
+        int libres = Math.min(capacidad - enCurso.get(), tamanoLote);
+        if (libres <= 0)
+            return;
+        List<Reclamo> reclamos = reclamar(libres);
+        for (Reclamo reclamo : reclamos) {
+            enCurso.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    procesar(reclamo);
+                } finally {
+                    enCurso.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private List<Reclamo> reclamar(int limite) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        Timestamp vencidos = Timestamp.valueOf(ahora.toLocalDateTime().minus(lease));
+        return transactionTemplate.execute(status -> {
+            List<Reclamo> reclamos = jdbcTemplate.query(RECLAMAR, (rs, i) -> new Reclamo(
+                            UuidV7.fromBytes(rs.getBytes("id")), UuidV7.fromBytes(rs.getBytes("usuario_id")),
+                            rs.getString("payload"), rs.getInt("intentos") + 1, ahora),
+                    PedidoSolicitud.EN_COLA, PedidoSolicitud.PROCESANDO, vencidos, limite);
+            List<Object[]> filas = new ArrayList<>(reclamos.size());
+            reclamos.forEach(r -> filas.add(new Object[]{PedidoSolicitud.PROCESANDO, ahora, UuidV7.toBytes(r.id())}));
+            jdbcTemplate.batchUpdate("UPDATE pedido_solicitudes SET estado = ?, tomado_en = ?, intentos = intentos + 1 "
+                    + "WHERE id = ?", filas);
+            return reclamos;
+        });
+    }
+
+    private void procesar(Reclamo reclamo) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Pedido creado = pedidoService.createPedido(construirPedido(reclamo));
+                // Only the holder of the current claim may record the outcome.
+                int filas = jdbcTemplate.update("UPDATE pedido_solicitudes SET estado = ?, pedido_id = ?, "
+                                + "procesado_en = ?, motivo = NULL WHERE id = ? AND estado = ? AND tomado_en = ?",
+                        PedidoSolicitud.PENDIENTE, UuidV7.toBytes(creado.getId()), Timestamp.valueOf(LocalDateTime.now()),
+                        UuidV7.toBytes(reclamo.id()), PedidoSolicitud.PROCESANDO, reclamo.tomadoEn());
+                if (filas == 0)
+                    throw new IllegalStateException("Claim on solicitud " + reclamo.id() + " was lost");
+            });
+            contar("pendiente");
+        } catch (StockInsuficienteException | ResourceNotFoundException | IllegalArgumentException
+                 | DataIntegrityViolationException e) {
+            String motivo = e instanceof DataIntegrityViolationException
+                    ? "El usuario o un producto del pedido no existe"
+                    : e.getMessage();
+            finalizar(reclamo, PedidoSolicitud.RECHAZADO, motivo);
+            contar("rechazado");
+        } catch (RuntimeException e) {
+            if (reclamo.intentos() >= maxIntentos) {
+                log.error("Giving up on solicitud {} after {} attempts", reclamo.id(), reclamo.intentos(), e);
+                finalizar(reclamo, PedidoSolicitud.RECHAZADO, "No se pudo procesar el pedido");
+                contar("rechazado");
+            } else {
+                log.warn("Solicitud {} failed (attempt {}), will retry: {}", reclamo.id(), reclamo.intentos(),
+                        e.getMessage());
+                finalizar(reclamo, PedidoSolicitud.EN_COLA, null);
+                contar("reintento");
+            }
+        }
+    }
+
+    private Pedido construirPedido(Reclamo reclamo) {
+        PedidoSolicitudPayload payload;
+        try {
+            payload = objectMapper.readValue(reclamo.payload(), PedidoSolicitudPayload.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Solicitud ilegible", e);
+        }
+        List<DetallePedido> detalles = payload.lineas().stream()
+                .map(l -> DetallePedido.builder()
+                        .producto(Producto.builder().id(l.productoId()).build())
+                        .cantidad(l.cantidad())
+                        .build())
+                .collect(Collectors.toCollection(ArrayList::new));
+        return Pedido.builder()
+                .usuario(Usuario.builder().id(reclamo.usuarioId()).build())
+                .fecha(payload.fecha())
+                .estado(PedidoSolicitud.PENDIENTE)
+                .detalles(detalles)
+                .build();
+    }
+
+    private void finalizar(Reclamo reclamo, String estado, String motivo) {
+        if (motivo != null && motivo.length() > 500)
+            motivo = motivo.substring(0, 500);
+        jdbcTemplate.update("UPDATE pedido_solicitudes SET estado = ?, motivo = ?, procesado_en = ? "
+                        + "WHERE id = ? AND estado = ? AND tomado_en = ?",
+                estado, motivo, PedidoSolicitud.EN_COLA.equals(estado) ? null : Timestamp.valueOf(LocalDateTime.now()),
+                UuidV7.toBytes(reclamo.id()), PedidoSolicitud.PROCESANDO, reclamo.tomadoEn());
+    }
+
+    private void contar(String resultado) {
+        registry.counter("ferreteria.pedidos.intake", "resultado", resultado).increment();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
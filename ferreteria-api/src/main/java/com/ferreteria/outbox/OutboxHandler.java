@@ -0,0 +1,16 @@
+package com.ferreteria.outbox;
+
+import java.util.Set;
+
+/**
+ * Consumer of outbox events. Delivery is at least once: a handler runs inside
+ * the poller's transaction, rolled back to a savepoint if it throws, so JDBC
+ * writes commit together with the event being marked as processed; any other
+ * side effect may be repeated after a failure and must tolerate that.
+ */
+public interface OutboxHandler {
+
+    Set<String> tipos();
+
+    void manejar(OutboxMensaje mensaje) throws Exception;
+}
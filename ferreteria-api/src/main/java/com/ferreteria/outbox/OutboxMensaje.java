@@ -0,0 +1,6 @@
+package com.ferreteria.outbox;
+
+/** An outbox event as handed to the handlers. */
+public record OutboxMensaje(long id, String agregadoTipo, String agregadoId, String tipo, String payload,
+        int intentos) {
+}
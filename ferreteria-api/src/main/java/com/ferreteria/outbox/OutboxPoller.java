@@ -0,0 +1,168 @@
+package com.ferreteria.outbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delivers outbox events. Each batch is claimed in id order with
+ * SELECT ... FOR UPDATE SKIP LOCKED, so several instances work on disjoint
+ * batches, and is handled inside that same transaction with a savepoint per
+ * event: an event is marked processed only together with its handlers' JDBC
+ * writes. Events of one aggregate are delivered in id order; while an earlier
+ * event of the aggregate is pending (held by another poller or waiting for a
+ * retry) its later events wait too. A failing event is retried with
+ * exponential backoff and, after max-attempts, logged and set aside.
+ */
+@Slf4j
+@Component
+public class OutboxPoller {
+
+    private static final String RECLAMAR = "SELECT id, agregado_tipo, agregado_id, tipo, payload, intentos "
+            + "FROM outbox_eventos WHERE procesado_en IS NULL AND (reintentar_en IS NULL OR reintentar_en <= ?) "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String ANTERIORES_PENDIENTES = "SELECT COUNT(*) FROM outbox_eventos "
+            + "WHERE agregado_tipo = ? AND agregado_id = ? AND procesado_en IS NULL AND id < ?";
+    private static final RowMapper<OutboxMensaje> MAPPER = (rs, i) -> new OutboxMensaje(rs.getLong("id"),
+            rs.getString("agregado_tipo"), rs.getString("agregado_id"), rs.getString("tipo"),
+            rs.getString("payload"), rs.getInt("intentos"));
+
+    private final Map<String, List<OutboxHandler>> handlersPorTipo = new HashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lote;
+    private final TransactionTemplate evento;
+    private final MeterRegistry registry;
+    private final int tamanoLote;
+    private final int maxIntentos;
+    private final Duration retencion;
+
+    public OutboxPoller(List<OutboxHandler> handlers, JdbcTemplate jdbcTemplate,
+            DataSource dataSource, MeterRegistry registry,
+            @Value("${ferreteria.outbox.batch-size:100}") int tamanoLote,
+            @Value("${ferreteria.outbox.max-attempts:10}") int maxIntentos,
+            @Value("${ferreteria.outbox.retention:P7D}") Duration retencion) {
+        for (OutboxHandler handler : handlers)
+            handler.tipos().forEach(t -> handlersPorTipo.computeIfAbsent(t, k -> new ArrayList<>()).add(handler));
+        this.jdbcTemplate = jdbcTemplate;
+        // Plain JDBC transactions: handlers only use JDBC, and unlike the JPA
+        // transaction manager this one supports the per-event savepoints.
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.lote = new TransactionTemplate(transactionManager);
+        this.evento = new TransactionTemplate(transactionManager);
+        this.evento.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.registry = registry;
+        this.tamanoLote = tamanoLote;
+        this.maxIntentos = maxIntentos;
+        this.retencion = retencion;
+    }
+
+    @Scheduled(fixedDelayString = "${ferreteria.outbox.poll-interval:PT1S}")
+    public void despachar() {
+        // Keep going while batches come back full of delivered events.
+        Integer entregados;
+        do {
+            entregados = lote.execute(status -> procesarLote());
+        } while (entregados != null && entregados == tamanoLote);
+    }
+
+    private int procesarLote() {
+        List<OutboxMensaje> mensajes = jdbcTemplate.query(RECLAMAR, MAPPER, Timestamp.valueOf(LocalDateTime.now()),
+                tamanoLote);
+        Set<String> comprobados = new HashSet<>();
+        Set<String> bloqueados = new HashSet<>();
+        int entregados = 0;
+        for (OutboxMensaje mensaje : mensajes) {
+            String agregado = mensaje.agregadoTipo() + ":" + mensaje.agregadoId();
+            if (bloqueados.contains(agregado))
+                continue;
+            // Earlier events of the aggregate in this batch were just handled; only older ones outside it matter.
+            if (comprobados.add(agregado) && hayAnterioresPendientes(mensaje)) {
+                bloqueados.add(agregado);
+                continue;
+            }
+            if (entregar(mensaje))
+                entregados++;
+            else
+                bloqueados.add(agregado);
+        }
+        return entregados;
+    }
+
+    private boolean hayAnterioresPendientes(OutboxMensaje mensaje) {
+        Integer anteriores = jdbcTemplate.queryForObject(ANTERIORES_PENDIENTES, Integer.class,
+                mensaje.agregadoTipo(), mensaje.agregadoId(), mensaje.id());
+        return anteriores != null && anteriores > 0;
+    }
+
+    // True when the event is done with (delivered or set aside), false when it will be retried.
+    private boolean entregar(OutboxMensaje mensaje) {
+        int intentos = mensaje.intentos() + 1;
+        try {
+            evento.executeWithoutResult(status -> {
+                for (OutboxHandler handler : handlersPorTipo.getOrDefault(mensaje.tipo(), List.of())) {
+                    try {
+                        handler.manejar(mensaje);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                jdbcTemplate.update("UPDATE outbox_eventos SET procesado_en = ?, intentos = ?, ultimo_error = NULL "
+                        + "WHERE id = ?", Timestamp.valueOf(LocalDateTime.now()), intentos, mensaje.id());
+            });
+            contar("entregado");
+            return true;
+        } catch (RuntimeException e) {
+            String error = e.getMessage() != null && e.getMessage().length() > 500
+                    ? e.getMessage().substring(0, 500)
+                    : e.getMessage();
+            if (intentos >= maxIntentos) {
+                log.error("Outbox event {} ({} {}) failed {} times, setting it aside", mensaje.id(), mensaje.tipo(),
+                        mensaje.agregadoId(), intentos, e);
+                jdbcTemplate.update("UPDATE outbox_eventos SET procesado_en = ?, intentos = ?, ultimo_error = ? "
+                        + "WHERE id = ?", Timestamp.valueOf(LocalDateTime.now()), intentos, error, mensaje.id());
+                contar("descartado");
+                return true;
+            }
+            Duration espera = Duration.ofSeconds(Math.min(600, 5L << Math.min(intentos - 1, 10)));
+            log.warn("Outbox event {} ({} {}) failed, retrying in {}s: {}", mensaje.id(), mensaje.tipo(),
+                    mensaje.agregadoId(), espera.toSeconds(), error);
+            jdbcTemplate.update("UPDATE outbox_eventos SET intentos = ?, reintentar_en = ?, ultimo_error = ? "
+                    + "WHERE id = ?", intentos, Timestamp.valueOf(LocalDateTime.now().plus(espera)), error,
+                    mensaje.id());
+            contar("reintento");
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ferreteria.outbox.purge-interval:PT1H}")
+    public void purgar() {
+        int borrados = jdbcTemplate.update("DELETE FROM outbox_eventos WHERE procesado_en < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(retencion)));
+        if (borrados > 0)
+            log.info("Purged {} processed outbox events", borrados);
+    }
+
+    private void contar(String resultado) {
+        registry.counter("ferreteria.outbox", "resultado", resultado).increment();
+    }
+}
@@ -0,0 +1,37 @@
+package com.ferreteria.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Records a domain event in outbox_eventos. Must run inside the transaction of
+ * the change it describes: both commit or neither does.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publicar(String agregadoTipo, Object agregadoId, String tipo, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + tipo + " event", e);
+        }
+        jdbcTemplate.update("INSERT INTO outbox_eventos (agregado_tipo, agregado_id, tipo, payload, creado_en, intentos) "
+                + "VALUES (?, ?, ?, ?, ?, 0)", agregadoTipo, String.valueOf(agregadoId), tipo, json,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,198 @@
+package com.ferreteria.report;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.dto.PedidoEvento;
+import com.ferreteria.entity.OutboxEvento;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.outbox.OutboxHandler;
+import com.ferreteria.outbox.OutboxMensaje;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Daily sales per product and per category, maintained incrementally. Every
+ * order that is not CANCELADO contributes its lines to the day of its fecha; an
+ * order that is created, cancelled, re-opened, re-dated or deleted applies the
+ * difference as upserts when its PEDIDO_* outbox event is delivered. Line edits
+ * made through /api/detalles-pedido arrive as PEDIDO_LINEAS_MODIFICADAS with
+ * the line deltas, applied to the order's day while it counts.
+ * {@link #rebuild} recomputes a date range from pedidos for backfill or repair.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VentasRollup implements OutboxHandler {
+
+    // Key for products without a category: the rollup primary key cannot be null.
+    public static final String SIN_CATEGORIA = "-";
+
+    private static final String UPSERT_PRODUCTO = "INSERT INTO ventas_diarias_producto "
+            + "(fecha, producto_id, unidades, importe) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "unidades = unidades + VALUES(unidades), importe = importe + VALUES(importe)";
+    private static final String UPSERT_CATEGORIA = "INSERT INTO ventas_diarias_categoria "
+            + "(fecha, categoria_id, unidades, importe) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "unidades = unidades + VALUES(unidades), importe = importe + VALUES(importe)";
+
+    private static final String LINEAS_VENDIDAS = " FROM pedidos p JOIN detalle_pedidos d ON d.pedido_id = p.id "
+            + "JOIN productos pr ON pr.id = d.producto_id "
+            + "WHERE p.fecha BETWEEN ? AND ? AND (p.estado IS NULL OR p.estado <> '" + Pedido.CANCELADO + "') "
+            + "AND d.cantidad IS NOT NULL";
+
+    // The category recorded on the line, as the events use it; older lines
+    // without one take the product's current category.
+    private static final String CATEGORIA_LINEA =
+            "COALESCE(d.categoria_id, pr.categoria_id, '" + SIN_CATEGORIA + "')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public static boolean cuenta(String estado) {
+        return !Pedido.CANCELADO.equals(estado);
+    }
+
+    @Override
+    public Set<String> tipos() {
+        return Set.of(OutboxEvento.PEDIDO_CREADO, OutboxEvento.PEDIDO_MODIFICADO, OutboxEvento.PEDIDO_ELIMINADO,
+                OutboxEvento.PEDIDO_LINEAS_MODIFICADAS);
+    }
+
+    @Override
+    public void manejar(OutboxMensaje mensaje) {
+        PedidoEvento evento = leer(mensaje);
+        for (Cambio cambio : cambios(mensaje.tipo(), evento))
+            aplicar(evento.lineas(), cambio.fecha(), cambio.signo());
+    }
+
+    private PedidoEvento leer(OutboxMensaje mensaje) {
+        try {
+            return objectMapper.readValue(mensaje.payload(), PedidoEvento.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable " + mensaje.tipo() + " event " + mensaje.id(), e);
+        }
+    }
+
+    // A day the event adds its lines to (+1) or takes them away from (-1).
+    private record Cambio(LocalDate fecha, int signo) {
+    }
+
+    private static List<Cambio> cambios(String tipo, PedidoEvento evento) {
+        List<Cambio> cambios = new ArrayList<>(2);
+        switch (tipo) {
+            case OutboxEvento.PEDIDO_CREADO, OutboxEvento.PEDIDO_LINEAS_MODIFICADAS -> {
+                if (cuenta(evento.estado()))
+                    cambios.add(new Cambio(evento.fecha(), 1));
+            }
+            case OutboxEvento.PEDIDO_ELIMINADO -> {
+                if (cuenta(evento.estado()))
+                    cambios.add(new Cambio(evento.fecha(), -1));
+            }
+            case OutboxEvento.PEDIDO_MODIFICADO -> {
+                boolean antes = cuenta(evento.estadoAnterior());
+                boolean despues = cuenta(evento.estado());
+                if (antes == despues && (!antes || Objects.equals(evento.fechaAnterior(), evento.fecha())))
+                    break;
+                if (antes)
+                    cambios.add(new Cambio(evento.fechaAnterior(), -1));
+                if (despues)
+                    cambios.add(new Cambio(evento.fecha(), 1));
+            }
+            default -> {
+            }
+        }
+        return cambios;
+    }
+
+    /**
+     * Replaces the rollup rows of {@code [desde, hasta]} with totals recomputed
+     * from the orders. Returns the number of product-day rows written.
+     * <p>
+     * The orders already reflect changes whose events are still in the outbox;
+     * those events are locked and their effect on the range taken back out, so
+     * delivering them afterwards does not count the change twice.
+     */
+    @Transactional
+    public int rebuild(LocalDate desde, LocalDate hasta) {
+        Date inicio = Date.valueOf(desde);
+        Date fin = Date.valueOf(hasta);
+        jdbcTemplate.update("DELETE FROM ventas_diarias_producto WHERE fecha BETWEEN ? AND ?", inicio, fin);
+        jdbcTemplate.update("DELETE FROM ventas_diarias_categoria WHERE fecha BETWEEN ? AND ?", inicio, fin);
+        int filas = jdbcTemplate.update("INSERT INTO ventas_diarias_producto (fecha, producto_id, unidades, importe) "
+                + "SELECT p.fecha, d.producto_id, SUM(d.cantidad), SUM(d.cantidad * COALESCE(d.precio_unitario, 0))"
+                + LINEAS_VENDIDAS + " GROUP BY p.fecha, d.producto_id", inicio, fin);
+        jdbcTemplate.update("INSERT INTO ventas_diarias_categoria (fecha, categoria_id, unidades, importe) "
+                + "SELECT p.fecha, " + CATEGORIA_LINEA + ", SUM(d.cantidad), "
+                + "SUM(d.cantidad * COALESCE(d.precio_unitario, 0))"
+                + LINEAS_VENDIDAS + " GROUP BY p.fecha, " + CATEGORIA_LINEA,
+                inicio, fin);
+        List<OutboxMensaje> pendientes = jdbcTemplate.query("SELECT id, agregado_tipo, agregado_id, tipo, payload, "
+                + "intentos FROM outbox_eventos WHERE agregado_tipo = ? AND procesado_en IS NULL ORDER BY id FOR UPDATE",
+                (rs, i) -> new OutboxMensaje(rs.getLong("id"), rs.getString("agregado_tipo"),
+                        rs.getString("agregado_id"), rs.getString("tipo"), rs.getString("payload"),
+                        rs.getInt("intentos")),
+                OutboxEvento.PEDIDO);
+        for (OutboxMensaje pendiente : pendientes) {
+            if (!tipos().contains(pendiente.tipo()))
+                continue;
+            PedidoEvento evento = leer(pendiente);
+            for (Cambio cambio : cambios(pendiente.tipo(), evento)) {
+                if (cambio.fecha() != null && !cambio.fecha().isBefore(desde) && !cambio.fecha().isAfter(hasta))
+                    aplicar(evento.lineas(), cambio.fecha(), -cambio.signo());
+            }
+        }
+        log.info("Sales rollup rebuilt from {} to {}: {} product-day rows", desde, hasta, filas);
+        return filas;
+    }
+
+    private record Totales(long unidades, BigDecimal importe) {
+        Totales mas(long otrasUnidades, BigDecimal otroImporte) {
+            return new Totales(unidades + otrasUnidades, importe.add(otroImporte));
+        }
+    }
+
+    private void aplicar(List<PedidoEvento.Linea> lineas, LocalDate fecha, int signo) {
+        if (fecha == null || lineas == null)
+            return;
+        Map<Long, Totales> porProducto = new HashMap<>();
+        Map<String, Totales> porCategoria = new HashMap<>();
+        boolean resta = false;
+        for (PedidoEvento.Linea linea : lineas) {
+            if (linea.productoId() == null || linea.cantidad() == null)
+                continue;
+            long unidades = (long) signo * linea.cantidad();
+            resta |= unidades < 0;
+            BigDecimal precio = linea.precioUnitario() != null ? linea.precioUnitario() : BigDecimal.ZERO;
+            BigDecimal importe = precio.multiply(BigDecimal.valueOf(unidades));
+            String categoriaId = linea.categoriaId() != null ? linea.categoriaId() : SIN_CATEGORIA;
+            porProducto.merge(linea.productoId(), new Totales(unidades, importe),
+                    (a, b) -> a.mas(b.unidades(), b.importe()));
+            porCategoria.merge(categoriaId, new Totales(unidades, importe),
+                    (a, b) -> a.mas(b.unidades(), b.importe()));
+        }
+        Date dia = Date.valueOf(fecha);
+        List<Object[]> productos = new ArrayList<>(porProducto.size());
+        porProducto.forEach((id, t) -> productos.add(new Object[]{dia, id, t.unidades(), t.importe()}));
+        List<Object[]> categorias = new ArrayList<>(porCategoria.size());
+        porCategoria.forEach((id, t) -> categorias.add(new Object[]{dia, id, t.unidades(), t.importe()}));
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCTO, productos);
+        jdbcTemplate.batchUpdate(UPSERT_CATEGORIA, categorias);
+        if (resta) {
+            // Do not leave empty rows behind once a day's sales are fully reverted.
+            jdbcTemplate.update("DELETE FROM ventas_diarias_producto WHERE fecha = ? AND unidades = 0", dia);
+            jdbcTemplate.update("DELETE FROM ventas_diarias_categoria WHERE fecha = ? AND unidades = 0", dia);
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.ferreteria.repository;
 
 import com.ferreteria.entity.Carrito;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface CarritoRepository extends JpaRepository<Carrito, Long> {
-    List<Carrito> findByUsuarioId(String usuarioId);
-}
\ No newline at end of file
+public interface CarritoRepository extends JpaRepository<Carrito, UUID> {
+    List<Carrito> findByUsuarioId(UUID usuarioId);
+
+    @Override
+    @EntityGraph(attributePaths = {"usuario", "producto", "producto.categoria", "producto.imagenesAdicionales"})
+    List<Carrito> findAll();
+
+    @Query("select c.usuario.id from Carrito c where c.id = :id")
+    Optional<UUID> findUsuarioIdById(UUID id);
+}
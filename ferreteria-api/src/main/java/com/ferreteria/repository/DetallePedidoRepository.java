@@ -1,9 +1,27 @@
 package com.ferreteria.repository;
 
 import com.ferreteria.entity.DetallePedido;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
 @Repository
 public interface DetallePedidoRepository extends JpaRepository<DetallePedido, Long> {
-}
\ No newline at end of file
+
+    @Override
+    @EntityGraph(attributePaths = {"producto", "producto.categoria", "producto.imagenesAdicionales"})
+    List<DetallePedido> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = {"producto", "producto.categoria", "producto.imagenesAdicionales"})
+    Optional<DetallePedido> findById(Long id);
+
+    @Query("select coalesce(sum(d.cantidad * d.precioUnitario), 0) from DetallePedido d where d.pedido.id = :pedidoId")
+    BigDecimal sumImporteByPedidoId(UUID pedidoId);
+}
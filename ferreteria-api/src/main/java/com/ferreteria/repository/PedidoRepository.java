@@ -1,12 +1,63 @@
 package com.ferreteria.repository;
 
+import com.ferreteria.dto.PedidoReciente;
 import com.ferreteria.entity.Pedido;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, String> {
-    List<Pedido> findByUsuarioId(String usuarioId);
-}
\ No newline at end of file
+public interface PedidoRepository extends JpaRepository<Pedido, UUID> {
+
+    // Loads the order, its customer, its lines and their products in a single statement.
+    @EntityGraph(Pedido.GRAFO_COMPLETO)
+    List<Pedido> findByUsuarioId(UUID usuarioId);
+
+    @Override
+    @EntityGraph(Pedido.GRAFO_COMPLETO)
+    List<Pedido> findAll();
+
+    @Override
+    @EntityGraph(Pedido.GRAFO_COMPLETO)
+    Optional<Pedido> findById(UUID id);
+
+    @EntityGraph(Pedido.GRAFO_COMPLETO)
+    List<Pedido> findByIdIn(Collection<UUID> ids);
+
+    /*
+     * Keyset pagination, newest first. Each page seeks past the (fecha, id) of the
+     * previous page's last order instead of skipping rows, so it walks the
+     * idx_pedidos_fecha / idx_pedidos_usuario_fecha index and a deep page costs the
+     * same as the first one. Only ids are selected: a row limit cannot be applied
+     * to a fetch join of the order lines, so the page is loaded with findByIdIn.
+     */
+    @Query("select p.id from Pedido p order by p.fecha desc, p.id desc")
+    List<UUID> findPaginaIds(Pageable pageable);
+
+    @Query("select p.id from Pedido p where p.fecha < :fecha or (p.fecha = :fecha and p.id < :id) "
+            + "order by p.fecha desc, p.id desc")
+    List<UUID> findPaginaIdsDespuesDe(LocalDate fecha, UUID id, Pageable pageable);
+
+    @Query("select p.id from Pedido p where p.usuario.id = :usuarioId order by p.fecha desc, p.id desc")
+    List<UUID> findPaginaIdsByUsuario(UUID usuarioId, Pageable pageable);
+
+    @Query("select p.id from Pedido p where p.usuario.id = :usuarioId "
+            + "and (p.fecha < :fecha or (p.fecha = :fecha and p.id < :id)) order by p.fecha desc, p.id desc")
+    List<UUID> findPaginaIdsByUsuarioDespuesDe(UUID usuarioId, LocalDate fecha, UUID id, Pageable pageable);
+
+    // estado, number of orders, sum of their totals.
+    @Query("select p.estado, count(p), sum(p.total) from Pedido p group by p.estado")
+    List<Object[]> resumenPorEstado();
+
+    @Query("select new com.ferreteria.dto.PedidoReciente(p.id, p.fecha, p.total, p.estado, u.nombre) "
+            + "from Pedido p left join p.usuario u order by p.fecha desc, p.id desc")
+    List<PedidoReciente> findRecientes(Pageable pageable);
+}
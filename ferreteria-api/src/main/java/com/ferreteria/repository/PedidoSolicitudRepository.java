@@ -0,0 +1,13 @@
+package com.ferreteria.repository;
+
+import com.ferreteria.entity.PedidoSolicitud;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface PedidoSolicitudRepository extends JpaRepository<PedidoSolicitud, UUID> {
+    Optional<PedidoSolicitud> findByUsuarioIdAndClaveIdempotencia(UUID usuarioId, String claveIdempotencia);
+}
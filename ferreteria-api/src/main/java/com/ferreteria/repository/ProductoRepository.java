@@ -1,12 +1,53 @@
 package com.ferreteria.repository;
 
+import com.ferreteria.dto.ProductoResumen;
 import com.ferreteria.entity.Producto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto> {
+    String SELECT_RESUMEN = "select new com.ferreteria.dto.ProductoResumen(p.id, p.nombre, p.marca, p.precio, "
+            + "p.precioAnterior, p.imagen, p.stock, p.esOferta, p.esNuevo, p.esMasVendido, p.puntuacion, "
+            + "p.categoria.id) from Producto p";
+
     List<Producto> findByCategoriaId(String categoriaId);
-}
\ No newline at end of file
+
+    @Query(SELECT_RESUMEN + " order by p.id desc")
+    List<ProductoResumen> findAllResumen();
+
+    @Query(SELECT_RESUMEN + " where p.categoria.id = :categoriaId order by p.id desc")
+    List<ProductoResumen> findResumenByCategoriaId(String categoriaId);
+
+    @Query(SELECT_RESUMEN + " where p.esOferta = true order by p.id desc")
+    List<ProductoResumen> findResumenOfertas();
+
+    long countByStockLessThan(int stock);
+
+    @Query(SELECT_RESUMEN + " where p.stock < :stock order by p.stock, p.id")
+    List<ProductoResumen> findResumenStockBajo(int stock, Pageable pageable);
+
+    // id, nombre, marca of every product: the natural key used by the bulk import.
+    @Query("select p.id, p.nombre, p.marca from Producto p")
+    List<Object[]> findClavesNaturales();
+
+    @Query("select p.id from Producto p where p.id in :ids")
+    List<Long> findIdsExistentes(Collection<Long> ids);
+
+    // Conditional decrement: returns 0 instead of overselling when stock is short.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock - :cantidad where p.id = :id and p.stock >= :cantidad")
+    int reservarStock(Long id, int cantidad);
+
+    // Gives units back; a product deleted since then has nothing to return them to.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Producto p set p.stock = p.stock + :cantidad where p.id = :id")
+    int devolverStock(Long id, int cantidad);
+}
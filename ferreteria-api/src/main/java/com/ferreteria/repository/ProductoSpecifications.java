@@ -0,0 +1,39 @@
+package com.ferreteria.repository;
+
+import com.ferreteria.entity.Producto;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+public final class ProductoSpecifications {
+
+    private ProductoSpecifications() {
+    }
+
+    public static Specification<Producto> enCategoria(String categoriaId) {
+        return (root, query, cb) -> cb.equal(root.get("categoria").get("id"), categoriaId);
+    }
+
+    public static Specification<Producto> deMarcas(Collection<String> marcas) {
+        return (root, query, cb) -> root.get("marca").in(marcas);
+    }
+
+    public static Specification<Producto> precioDesde(BigDecimal precioMin) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("precio"), precioMin);
+    }
+
+    public static Specification<Producto> precioHasta(BigDecimal precioMax) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("precio"), precioMax);
+    }
+
+    public static Specification<Producto> contieneTexto(String texto) {
+        String patron = "%" + texto.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("nombre")), patron, '\\'),
+                cb.like(cb.lower(root.get("marca")), patron, '\\'));
+    }
+}
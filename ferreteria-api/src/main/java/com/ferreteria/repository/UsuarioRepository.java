@@ -1,11 +1,32 @@
 package com.ferreteria.repository;
 
 import com.ferreteria.entity.Usuario;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface UsuarioRepository extends JpaRepository<Usuario, String> {
+public interface UsuarioRepository extends JpaRepository<Usuario, UUID> {
     Optional<Usuario> findByEmail(String email);
-}
\ No newline at end of file
+
+    /*
+     * Keyset pagination by (nombre, id) over idx_usuarios_nombre. Users without a
+     * nombre sort first (as MySQL orders nulls), so a cursor taken among them
+     * continues with the rest of those and then every named user.
+     */
+    @Query("select u from Usuario u order by u.nombre, u.id")
+    List<Usuario> findPagina(Pageable pageable);
+
+    @Query("select u from Usuario u where u.nombre > :nombre or (u.nombre = :nombre and u.id > :id) "
+            + "order by u.nombre, u.id")
+    List<Usuario> findPaginaDespuesDe(String nombre, UUID id, Pageable pageable);
+
+    @Query("select u from Usuario u where (u.nombre is null and u.id > :id) or u.nombre is not null "
+            + "order by u.nombre, u.id")
+    List<Usuario> findPaginaDespuesDeSinNombre(UUID id, Pageable pageable);
+}
@@ -0,0 +1,27 @@
+package com.ferreteria.repository;
+
+import com.ferreteria.dto.VentasPorCategoria;
+import com.ferreteria.dto.VentasPorDia;
+import com.ferreteria.entity.VentaDiariaCategoria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Every sold line lands in exactly one category row, so daily totals are read from here.
+@Repository
+public interface VentaDiariaCategoriaRepository extends JpaRepository<VentaDiariaCategoria, VentaDiariaCategoria.Clave> {
+
+    @Query("select new com.ferreteria.dto.VentasPorDia(v.fecha, sum(v.unidades), sum(v.importe)) "
+            + "from VentaDiariaCategoria v where v.fecha between :desde and :hasta "
+            + "group by v.fecha order by v.fecha")
+    List<VentasPorDia> findPorDia(LocalDate desde, LocalDate hasta);
+
+    @Query("select new com.ferreteria.dto.VentasPorCategoria(v.categoriaId, c.nombre, sum(v.unidades), sum(v.importe)) "
+            + "from VentaDiariaCategoria v left join Categoria c on c.id = v.categoriaId "
+            + "where v.fecha between :desde and :hasta "
+            + "group by v.categoriaId, c.nombre order by sum(v.importe) desc, v.categoriaId")
+    List<VentasPorCategoria> findPorCategoria(LocalDate desde, LocalDate hasta);
+}
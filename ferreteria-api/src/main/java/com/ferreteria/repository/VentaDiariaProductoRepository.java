@@ -0,0 +1,21 @@
+package com.ferreteria.repository;
+
+import com.ferreteria.dto.VentasPorProducto;
+import com.ferreteria.entity.VentaDiariaProducto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VentaDiariaProductoRepository extends JpaRepository<VentaDiariaProducto, VentaDiariaProducto.Clave> {
+
+    @Query("select new com.ferreteria.dto.VentasPorProducto(v.productoId, p.nombre, sum(v.unidades), sum(v.importe)) "
+            + "from VentaDiariaProducto v left join Producto p on p.id = v.productoId "
+            + "where v.fecha between :desde and :hasta "
+            + "group by v.productoId, p.nombre order by sum(v.importe) desc, v.productoId")
+    List<VentasPorProducto> findTopProductos(LocalDate desde, LocalDate hasta, Pageable pageable);
+}
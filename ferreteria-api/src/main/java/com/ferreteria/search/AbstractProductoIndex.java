@@ -0,0 +1,114 @@
+package com.ferreteria.search;
+
+import com.ferreteria.entity.Producto;
+import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.util.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index over every product, kept in step with the table. Writes
+ * reach it after their transaction commits, and a rebuild replays the ones
+ * committed while it was reading, so neither loses a change. Subclasses hold
+ * the data and read it under {@link #lock}.
+ */
+@Slf4j
+public abstract class AbstractProductoIndex {
+
+    private final ProductoRepository productoRepository;
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    // Changes committed while rebuild() reads the table; null when no rebuild runs.
+    private List<Cambio> durante;
+
+    // An index or remove (producto null) of one product.
+    private record Cambio(Long id, Producto producto) {
+    }
+
+    protected AbstractProductoIndex(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Reloads every product. Changes committed while the table is being read
+     * are replayed on top of what was read, since the read may or may not have
+     * seen them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            durante = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            List<Producto> productos = productoRepository.findAll();
+            lock.writeLock().lock();
+            try {
+                clearLocked();
+                productos.forEach(this::addLocked);
+                durante.forEach(this::aplicarLocked);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("{} built with {} productos in {} ms", getClass().getSimpleName(), productos.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                durante = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Whether the first rebuild has finished; until then the index is empty. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Producto producto) {
+        aplicar(new Cambio(producto.getId(), producto));
+    }
+
+    public void remove(Long id) {
+        aplicar(new Cambio(id, null));
+    }
+
+    protected abstract void clearLocked();
+
+    protected abstract void addLocked(Producto producto);
+
+    protected abstract void removeLocked(Long id);
+
+    // Applied to the live index and, while a rebuild is loading, kept for it to replay.
+    private void aplicar(Cambio cambio) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                aplicarLocked(cambio);
+                if (durante != null)
+                    durante.add(cambio);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void aplicarLocked(Cambio cambio) {
+        removeLocked(cambio.id());
+        if (cambio.producto() != null)
+            addLocked(cambio.producto());
+    }
+}
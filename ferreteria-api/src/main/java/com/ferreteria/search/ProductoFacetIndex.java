@@ -0,0 +1,198 @@
+package com.ferreteria.search;
+
+import com.ferreteria.dto.ProductoFacetFilter;
+import com.ferreteria.dto.ProductoFacets;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.repository.ProductoRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Compressed bitmaps of product ids per marca, categoria, price bucket and flag.
+ * A facet request is answered with bitmap intersections; each facet is counted
+ * against every filter except its own, so the sidebar keeps showing the other
+ * brands (or categories) the shopper could still switch to.
+ */
+@Component
+public class ProductoFacetIndex extends AbstractProductoIndex {
+
+    private static final int[] LIMITES_PRECIO = {50, 100, 250, 500, 1000};
+    private static final String[] RANGOS_PRECIO = {"0-50", "50-100", "100-250", "250-500", "500-1000", "1000+"};
+
+    private static final String OFERTA = "esOferta";
+    private static final String NUEVO = "esNuevo";
+    private static final String MAS_VENDIDO = "esMasVendido";
+
+    private final RoaringBitmap todos = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> porMarca = new HashMap<>();
+    private final Map<String, RoaringBitmap> porCategoria = new HashMap<>();
+    private final Map<String, RoaringBitmap> porRangoPrecio = new HashMap<>();
+    private final Map<String, RoaringBitmap> porFlag = new HashMap<>();
+    private final Map<Integer, Entrada> entradas = new HashMap<>();
+
+    private record Entrada(String marca, String categoriaId, String rangoPrecio, List<String> flags) {
+    }
+
+    public ProductoFacetIndex(ProductoRepository productoRepository) {
+        super(productoRepository);
+    }
+
+    @Override
+    protected void clearLocked() {
+        todos.clear();
+        porMarca.clear();
+        porCategoria.clear();
+        porRangoPrecio.clear();
+        porFlag.clear();
+        entradas.clear();
+    }
+
+    public ProductoFacets facets(ProductoFacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categorias = union(porCategoria, filter.getCategorias());
+            RoaringBitmap marcas = union(porMarca, filter.getMarcas());
+            RoaringBitmap rangos = union(porRangoPrecio, filter.getRangosPrecio());
+            RoaringBitmap flags = flags(filter);
+
+            RoaringBitmap sinCategoria = and(marcas, rangos, flags);
+            RoaringBitmap sinMarca = and(categorias, rangos, flags);
+            RoaringBitmap sinRango = and(categorias, marcas, flags);
+            RoaringBitmap sinFlags = and(categorias, marcas, rangos);
+            RoaringBitmap resultado = and(sinFlags, flags);
+
+            return new ProductoFacets(
+                    resultado.getLongCardinality(),
+                    count(porMarca, sinMarca, new TreeMap<>()),
+                    count(porCategoria, sinCategoria, new TreeMap<>()),
+                    count(porRangoPrecio, sinRango, rangosEnOrden()),
+                    count(porFlag, sinFlags, new TreeMap<>()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap flags(ProductoFacetFilter filter) {
+        RoaringBitmap result = todos;
+        if (Boolean.TRUE.equals(filter.getEsOferta()))
+            result = RoaringBitmap.and(result, porFlag.getOrDefault(OFERTA, new RoaringBitmap()));
+        if (Boolean.TRUE.equals(filter.getEsNuevo()))
+            result = RoaringBitmap.and(result, porFlag.getOrDefault(NUEVO, new RoaringBitmap()));
+        if (Boolean.TRUE.equals(filter.getEsMasVendido()))
+            result = RoaringBitmap.and(result, porFlag.getOrDefault(MAS_VENDIDO, new RoaringBitmap()));
+        return result;
+    }
+
+    // An empty or missing selection does not restrict the result.
+    private RoaringBitmap union(Map<String, RoaringBitmap> facet, Collection<String> keys) {
+        if (keys == null || keys.isEmpty())
+            return todos;
+        RoaringBitmap result = new RoaringBitmap();
+        for (String key : keys) {
+            RoaringBitmap bitmap = facet.get(key);
+            if (bitmap != null)
+                result.or(bitmap);
+        }
+        return result;
+    }
+
+    private static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b, RoaringBitmap c) {
+        return RoaringBitmap.and(RoaringBitmap.and(a, b), c);
+    }
+
+    private static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        return RoaringBitmap.and(a, b);
+    }
+
+    private static Map<String, Long> count(Map<String, RoaringBitmap> facet, RoaringBitmap scope,
+            Map<String, Long> target) {
+        facet.forEach((key, bitmap) -> target.put(key, (long) RoaringBitmap.andCardinality(bitmap, scope)));
+        target.values().removeIf(Predicate.isEqual(0L));
+        return target;
+    }
+
+    private static Map<String, Long> rangosEnOrden() {
+        Map<String, Long> ordered = new LinkedHashMap<>();
+        for (String rango : RANGOS_PRECIO)
+            ordered.put(rango, 0L);
+        return ordered;
+    }
+
+    @Override
+    protected void addLocked(Producto producto) {
+        if (producto.getId() == null)
+            return;
+        int id = Math.toIntExact(producto.getId());
+        String categoriaId = producto.getCategoria() != null ? producto.getCategoria().getId() : null;
+        Entrada entrada = new Entrada(producto.getMarca(), categoriaId, rangoPrecio(producto.getPrecio()),
+                flagsDe(producto));
+
+        todos.add(id);
+        addTo(porMarca, entrada.marca(), id);
+        addTo(porCategoria, entrada.categoriaId(), id);
+        addTo(porRangoPrecio, entrada.rangoPrecio(), id);
+        entrada.flags().forEach(flag -> addTo(porFlag, flag, id));
+        entradas.put(id, entrada);
+    }
+
+    @Override
+    protected void removeLocked(Long productoId) {
+        if (productoId == null)
+            return;
+        int id = Math.toIntExact(productoId);
+        Entrada entrada = entradas.remove(id);
+        if (entrada == null)
+            return;
+        todos.remove(id);
+        removeFrom(porMarca, entrada.marca(), id);
+        removeFrom(porCategoria, entrada.categoriaId(), id);
+        removeFrom(porRangoPrecio, entrada.rangoPrecio(), id);
+        entrada.flags().forEach(flag -> removeFrom(porFlag, flag, id));
+    }
+
+    private static void addTo(Map<String, RoaringBitmap> facet, String key, int id) {
+        if (key != null)
+            facet.computeIfAbsent(key, k -> new RoaringBitmap()).add(id);
+    }
+
+    private static void removeFrom(Map<String, RoaringBitmap> facet, String key, int id) {
+        if (key == null)
+            return;
+        RoaringBitmap bitmap = facet.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty())
+                facet.remove(key);
+        }
+    }
+
+    private static List<String> flagsDe(Producto producto) {
+        return Stream.of(
+                        Boolean.TRUE.equals(producto.getEsOferta()) ? OFERTA : null,
+                        Boolean.TRUE.equals(producto.getEsNuevo()) ? NUEVO : null,
+                        Boolean.TRUE.equals(producto.getEsMasVendido()) ? MAS_VENDIDO : null)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    static String rangoPrecio(BigDecimal precio) {
+        if (precio == null)
+            return null;
+        for (int i = 0; i < LIMITES_PRECIO.length; i++) {
+            if (precio.compareTo(BigDecimal.valueOf(LIMITES_PRECIO[i])) < 0)
+                return RANGOS_PRECIO[i];
+        }
+        return RANGOS_PRECIO[RANGOS_PRECIO.length - 1];
+    }
+}
@@ -0,0 +1,246 @@
+package com.ferreteria.search;
+
+import com.ferreteria.dto.ProductoSearchCriteria;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.repository.ProductoRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over nombre, marca, descripcion and the category name
+ * of every product. Queries are ranked with BM25 and every query term also matches
+ * as a prefix ("mart" finds "martillo"), so the storefront search never hits MySQL.
+ * Each document also keeps the fields the catalog filters and sorts on, so a
+ * filtered text search is paged here and only the page is read from the table.
+ */
+@Component
+public class ProductoSearchIndex extends AbstractProductoIndex {
+
+    private static final float PESO_NOMBRE = 3.0f;
+    private static final float PESO_MARCA = 2.0f;
+    private static final float PESO_CATEGORIA = 1.5f;
+    private static final float PESO_DESCRIPCION = 1.0f;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_BOOST = 0.7;
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Documento> documentos = new HashMap<>();
+    private double totalLength;
+
+    public record SearchHit(Long id, double score) {
+    }
+
+    public record Pagina(List<Long> ids, long total) {
+    }
+
+    private record Documento(float length, Collection<String> terms, String categoriaId, String marca,
+            BigDecimal precio, Double puntuacion) {
+    }
+
+    public ProductoSearchIndex(ProductoRepository productoRepository) {
+        super(productoRepository);
+    }
+
+    @Override
+    protected void clearLocked() {
+        postings.clear();
+        documentos.clear();
+        totalLength = 0;
+    }
+
+    /**
+     * Returns the best matching product ids, highest score first. Every query
+     * term has to match (exactly or as a prefix) for a product to be returned.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        return score(query).entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(e -> new SearchHit(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    /**
+     * One page of the products matching the criteria's texto and its other
+     * filters, in the order {@code sort} gives the catalog query, with the
+     * number of matches over all pages. Every prefix expansion counts, however
+     * short the term.
+     */
+    public Pagina page(ProductoSearchCriteria criteria, int page, int size) {
+        List<String> tokens = TextNormalizer.tokenize(criteria.getTexto());
+        if (tokens.isEmpty())
+            return new Pagina(List.of(), 0);
+
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = null;
+            for (String token : tokens) {
+                Set<Long> tokenIds = idsDe(token);
+                if (ids == null)
+                    ids = tokenIds;
+                else
+                    ids.retainAll(tokenIds);
+                if (ids.isEmpty())
+                    return new Pagina(List.of(), 0);
+            }
+            List<Map.Entry<Long, Documento>> filtrados = ids.stream()
+                    .map(id -> Map.entry(id, documentos.get(id)))
+                    .filter(e -> cumple(e.getValue(), criteria))
+                    .sorted(orden(criteria.getSort()))
+                    .toList();
+            List<Long> pagina = filtrados.stream()
+                    .skip((long) page * size)
+                    .limit(size)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            return new Pagina(pagina, filtrados.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> idsDe(String token) {
+        Set<Long> ids = new HashSet<>();
+        for (Map<Long, Float> termPostings : postings.subMap(token, true, token + Character.MAX_VALUE, false).values())
+            ids.addAll(termPostings.keySet());
+        return ids;
+    }
+
+    // Same conditions as the ProductoSpecifications the table query uses.
+    private static boolean cumple(Documento documento, ProductoSearchCriteria criteria) {
+        if (StringUtils.hasText(criteria.getCategoriaId()) && !criteria.getCategoriaId().equals(documento.categoriaId()))
+            return false;
+        if (criteria.getMarcas() != null && !criteria.getMarcas().isEmpty()
+                && !criteria.getMarcas().contains(documento.marca()))
+            return false;
+        if (criteria.getPrecioMin() != null
+                && (documento.precio() == null || documento.precio().compareTo(criteria.getPrecioMin()) < 0))
+            return false;
+        return criteria.getPrecioMax() == null
+                || (documento.precio() != null && documento.precio().compareTo(criteria.getPrecioMax()) <= 0);
+    }
+
+    // The catalog query's sort keys, with MySQL's null ordering (first ascending, last descending).
+    private static Comparator<Map.Entry<Long, Documento>> orden(String sort) {
+        Comparator<Map.Entry<Long, Documento>> porId = Map.Entry.<Long, Documento>comparingByKey().reversed();
+        if (sort == null)
+            return porId;
+        Comparator<Map.Entry<Long, Documento>> porPrecio = Comparator.comparing(e -> e.getValue().precio(),
+                Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder()));
+        Comparator<Map.Entry<Long, Documento>> porPuntuacion = Comparator.comparing(e -> e.getValue().puntuacion(),
+                Comparator.nullsFirst(Comparator.<Double>naturalOrder()));
+        return switch (sort) {
+            case "price-asc" -> porPrecio.thenComparing(porId);
+            case "price-desc" -> porPrecio.reversed().thenComparing(porId);
+            case "top-rated" -> porPuntuacion.reversed().thenComparing(porId);
+            default -> porId;
+        };
+    }
+
+    private Map<Long, Double> score(String query) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty())
+            return Map.of();
+
+        lock.readLock().lock();
+        try {
+            if (documentos.isEmpty())
+                return Map.of();
+            double avgLength = totalLength / documentos.size();
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = scoreToken(token, avgLength);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty())
+                    return Map.of();
+            }
+            return scores;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreToken(String token, double avgLength) {
+        Map<Long, Double> best = new HashMap<>();
+        Map<Long, Float> exact = postings.get(token);
+        if (exact != null)
+            accumulate(best, exact, 1.0, avgLength);
+
+        for (Map<Long, Float> termPostings : postings.subMap(token, false, token + Character.MAX_VALUE, false).values())
+            accumulate(best, termPostings, PREFIX_BOOST, avgLength);
+        return best;
+    }
+
+    private void accumulate(Map<Long, Double> best, Map<Long, Float> termPostings, double boost, double avgLength) {
+        int n = documentos.size();
+        int df = termPostings.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        termPostings.forEach((id, tf) -> {
+            double length = documentos.get(id).length();
+            double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+            // A product matched through several expansions keeps its best one.
+            best.merge(id, boost * idf * norm, Math::max);
+        });
+    }
+
+    @Override
+    protected void addLocked(Producto producto) {
+        if (producto.getId() == null)
+            return;
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, producto.getNombre(), PESO_NOMBRE);
+        length += addField(frequencies, producto.getMarca(), PESO_MARCA);
+        length += addField(frequencies, producto.getDescripcion(), PESO_DESCRIPCION);
+        if (producto.getCategoria() != null)
+            length += addField(frequencies, producto.getCategoria().getNombre(), PESO_CATEGORIA);
+
+        frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>())
+                .put(producto.getId(), tf));
+        String categoriaId = producto.getCategoria() != null ? producto.getCategoria().getId() : null;
+        documentos.put(producto.getId(), new Documento(length, new ArrayList<>(frequencies.keySet()), categoriaId,
+                producto.getMarca(), producto.getPrecio(), producto.getPuntuacion()));
+        totalLength += length;
+    }
+
+    private static float addField(Map<String, Float> frequencies, String text, float weight) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        tokens.forEach(token -> frequencies.merge(token, weight, Float::sum));
+        return tokens.size() * weight;
+    }
+
+    @Override
+    protected void removeLocked(Long id) {
+        Documento documento = documentos.remove(id);
+        if (documento == null)
+            return;
+        totalLength -= documento.length();
+        for (String term : documento.terms()) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty())
+                    postings.remove(term);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ferreteria.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Case and accent folding used both when indexing and when querying,
+ * so "martillo" matches "Martíllo" and "CAÑERÍA" matches "caneria".
+ */
+public final class TextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null)
+            return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ferreteria.security;
+
+import com.ferreteria.exception.DemasiadosIntentosException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caps login attempts per email and per client IP, and signups per IP, over a
+ * sliding window. Checked before any password hashing, so a throttled request
+ * costs no BCrypt work. Windows live in a size-bounded cache that forgets idle
+ * keys, which keeps memory flat under a spray of random emails.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Limite porEmail;
+    private final Limite porIp;
+    private final Limite registroPorIp;
+    private final Counter throttled;
+
+    public LoginThrottle(MeterRegistry registry,
+            @Value("${ferreteria.security.login.per-email:10}") int porEmail,
+            @Value("${ferreteria.security.login.per-ip:30}") int porIp,
+            @Value("${ferreteria.security.signup.per-ip:10}") int registroPorIp,
+            @Value("${ferreteria.security.login.window:PT5M}") Duration ventana,
+            @Value("${ferreteria.security.login.max-keys:100000}") long maxClaves) {
+        this.porEmail = new Limite(porEmail, ventana, maxClaves);
+        this.porIp = new Limite(porIp, ventana, maxClaves);
+        this.registroPorIp = new Limite(registroPorIp, ventana, maxClaves);
+        this.throttled = Counter.builder("ferreteria.login.throttled")
+                .description("Login and signup attempts rejected with 429").register(registry);
+    }
+
+    public void intentoLogin(String email, String ip) {
+        comprobar(porIp, ip);
+        if (email != null)
+            comprobar(porEmail, email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /** A successful login clears the email's window so its owner is not locked out. */
+    public void loginCorrecto(String email) {
+        if (email != null)
+            porEmail.ventanas.invalidate(email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public void intentoRegistro(String ip) {
+        comprobar(registroPorIp, ip);
+    }
+
+    private void comprobar(Limite limite, String clave) {
+        if (clave == null)
+            return;
+        long espera = limite.ventanas.get(clave, k -> new Ventana(limite.maximo)).registrar(System.nanoTime(),
+                limite.ventanaNanos);
+        if (espera > 0) {
+            throttled.increment();
+            throw new DemasiadosIntentosException("Too many attempts, try again later",
+                    Math.max(1, Duration.ofNanos(espera).toSeconds()));
+        }
+    }
+
+    private static final class Limite {
+        final int maximo;
+        final long ventanaNanos;
+        final Cache<String, Ventana> ventanas;
+
+        Limite(int maximo, Duration ventana, long maxClaves) {
+            this.maximo = maximo;
+            this.ventanaNanos = ventana.toNanos();
+            this.ventanas = Caffeine.newBuilder()
+                    .maximumSize(maxClaves)
+                    .expireAfterAccess(ventana)
+                    .build();
+        }
+    }
+
+    /**
+     * The times of the last {@code maximo} accepted attempts in a ring. A new
+     * attempt is accepted when the slot it would overwrite, the attempt
+     * {@code maximo} places back, is already outside the window. Lock-free: a
+     * CAS on the cursor claims the slot.
+     */
+    private static final class Ventana {
+        private final AtomicLongArray marcas;
+        private final AtomicLong cursor = new AtomicLong();
+
+        Ventana(int maximo) {
+            this.marcas = new AtomicLongArray(Math.max(1, maximo));
+        }
+
+        // 0 when accepted, otherwise nanoseconds until a slot frees up.
+        long registrar(long ahora, long ventanaNanos) {
+            while (true) {
+                long posicion = cursor.get();
+                int slot = (int) (posicion % marcas.length());
+                long anterior = marcas.get(slot);
+                if (posicion >= marcas.length() && ahora - anterior < ventanaNanos)
+                    return ventanaNanos - (ahora - anterior);
+                if (cursor.compareAndSet(posicion, posicion + 1)) {
+                    marcas.set(slot, ahora);
+                    return 0;
+                }
+            }
+        }
+    }
+}
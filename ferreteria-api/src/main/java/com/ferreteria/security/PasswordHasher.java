@@ -0,0 +1,108 @@
+package com.ferreteria.security;
+
+import com.ferreteria.exception.ServicioSaturadoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a small dedicated pool with a bounded queue, so a burst of
+ * logins or signups can use at most {@code hash-threads} CPUs and never holds
+ * every request thread. When the queue is full the request is turned away at
+ * once with 503 instead of waiting behind it; so is a hash that has not finished
+ * within {@code hash-timeout}.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rechazados;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry registry,
+            @Value("${ferreteria.security.hash-threads:0}") int hilos,
+            @Value("${ferreteria.security.hash-queue:64}") int cola,
+            @Value("${ferreteria.security.hash-timeout:PT5S}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        int tamano = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger secuencia = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola), r -> {
+                    Thread t = new Thread(r, "password-hash-" + secuencia.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("ferreteria.password.hash").tag("op", "encode")
+                .description("BCrypt time, excluding queueing").register(registry);
+        this.matchesTimer = Timer.builder("ferreteria.password.hash").tag("op", "matches")
+                .description("BCrypt time, excluding queueing").register(registry);
+        this.rechazados = Counter.builder("ferreteria.password.rejected")
+                .description("Hash requests turned away because the pool was saturated").register(registry);
+        Gauge.builder("ferreteria.password.queue", executor, e -> e.getQueue().size())
+                .description("Hash requests waiting for a thread").register(registry);
+        Gauge.builder("ferreteria.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hash requests running").register(registry);
+        log.info("Password hashing pool: {} threads, queue of {}", tamano, cola);
+    }
+
+    public String encode(String raw) {
+        return ejecutar(() -> encodeTimer.recordCallable(() -> passwordEncoder.encode(raw)));
+    }
+
+    public boolean matches(String raw, String hash) {
+        return ejecutar(() -> matchesTimer.recordCallable(() -> passwordEncoder.matches(raw, hash)));
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> future;
+        try {
+            future = executor.submit(tarea);
+        } catch (RejectedExecutionException e) {
+            rechazados.increment();
+            throw new ServicioSaturadoException("Too many password operations in progress, try again shortly", 1);
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rechazados.increment();
+            throw new ServicioSaturadoException("Password operation timed out, try again shortly", 1);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServicioSaturadoException("Password operation interrupted", 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
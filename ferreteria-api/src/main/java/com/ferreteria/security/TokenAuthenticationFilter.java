@@ -0,0 +1,63 @@
+package com.ferreteria.security;
+
+import com.ferreteria.security.TokenClaims.TipoToken;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <access token>}
+ * from the token alone, without touching the database. Requests without a
+ * token, or with a bad or expired one, go on anonymously, so public endpoints
+ * still answer a client holding a stale token. A rejected token is kept in
+ * {@link #TOKEN_RECHAZADO} for the entry point, whose 401 on a protected
+ * endpoint then says why, so the client knows to refresh it.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    /** Request attribute holding the {@link AuthenticationException} a rejected token raised. */
+    public static final String TOKEN_RECHAZADO = TokenAuthenticationFilter.class.getName() + ".TOKEN_RECHAZADO";
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public TokenAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        TokenClaims claims;
+        try {
+            claims = tokenService.verificar(header.substring(BEARER.length()).trim(), TipoToken.ACCESS);
+        } catch (AuthenticationException e) {
+            SecurityContextHolder.clearContext();
+            request.setAttribute(TOKEN_RECHAZADO, e);
+            chain.doFilter(request, response);
+            return;
+        }
+        List<SimpleGrantedAuthority> roles = claims.rol() != null
+                ? List.of(new SimpleGrantedAuthority("ROLE_" + claims.rol()))
+                : List.of();
+        SecurityContextHolder.getContext()
+                .setAuthentication(UsernamePasswordAuthenticationToken.authenticated(claims, null, roles));
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ferreteria.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** What a verified token says about its bearer. */
+public record TokenClaims(TipoToken tipo, UUID usuarioId, String rol, Instant expira) {
+
+    public static final String ADMIN = "ADMIN";
+
+    public enum TipoToken {
+        ACCESS("a"), REFRESH("r");
+
+        private final String codigo;
+
+        TipoToken(String codigo) {
+            this.codigo = codigo;
+        }
+
+        String codigo() {
+            return codigo;
+        }
+
+        static TipoToken of(String codigo) {
+            for (TipoToken tipo : values()) {
+                if (tipo.codigo.equals(codigo))
+                    return tipo;
+            }
+            return null;
+        }
+    }
+
+    public boolean esAdmin() {
+        return ADMIN.equals(rol);
+    }
+
+    public boolean expirado(Instant ahora) {
+        return !ahora.isBefore(expira);
+    }
+}
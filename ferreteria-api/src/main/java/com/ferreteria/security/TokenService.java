@@ -0,0 +1,148 @@
+package com.ferreteria.security;
+
+import com.ferreteria.security.TokenClaims.TipoToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and verifies stateless tokens: {@code payload.signature}, both
+ * base64url, where the payload is {@code tipo|usuarioId|rol|expiry} and the
+ * signature its HMAC-SHA256. Every instance configured with the same secret
+ * accepts the tokens of the others, so no session store is needed. Access
+ * tokens that already passed verification are kept in a small bounded cache
+ * (never beyond their expiry) to skip the HMAC on hot clients.
+ */
+@Slf4j
+@Component
+public class TokenService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac prototipo;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final Cache<String, TokenClaims> verificados;
+    private final Clock clock = Clock.systemUTC();
+
+    public TokenService(@Value("${ferreteria.security.token-secret:}") String secreto,
+            @Value("${ferreteria.security.access-ttl:PT15M}") Duration accessTtl,
+            @Value("${ferreteria.security.refresh-ttl:P7D}") Duration refreshTtl,
+            @Value("${ferreteria.security.verified-cache-size:10000}") long tamanoCache) {
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.prototipo = mac(clave(secreto));
+        this.verificados = Caffeine.newBuilder()
+                .maximumSize(tamanoCache)
+                .expireAfterWrite(accessTtl)
+                .build();
+    }
+
+    public Duration getAccessTtl() {
+        return accessTtl;
+    }
+
+    public String emitirAccess(UUID usuarioId, String rol) {
+        return emitir(TipoToken.ACCESS, usuarioId, rol, accessTtl);
+    }
+
+    public String emitirRefresh(UUID usuarioId, String rol) {
+        return emitir(TipoToken.REFRESH, usuarioId, rol, refreshTtl);
+    }
+
+    /** Claims of a valid, unexpired token of the given type; BadCredentialsException otherwise. */
+    public TokenClaims verificar(String token, TipoToken tipo) {
+        Instant ahora = clock.instant();
+        if (tipo == TipoToken.ACCESS) {
+            TokenClaims cached = verificados.getIfPresent(token);
+            if (cached != null) {
+                if (cached.expirado(ahora))
+                    throw new BadCredentialsException("Token expired");
+                return cached;
+            }
+        }
+        TokenClaims claims = leer(token);
+        if (claims.tipo() != tipo)
+            throw new BadCredentialsException("Invalid token");
+        if (claims.expirado(ahora))
+            throw new BadCredentialsException("Token expired");
+        if (tipo == TipoToken.ACCESS)
+            verificados.put(token, claims);
+        return claims;
+    }
+
+    private String emitir(TipoToken tipo, UUID usuarioId, String rol, Duration ttl) {
+        long expira = clock.instant().plus(ttl).getEpochSecond();
+        String payload = tipo.codigo() + "|" + usuarioId + "|" + (rol != null ? rol : "") + "|" + expira;
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(firmar(bytes));
+    }
+
+    private TokenClaims leer(String token) {
+        int punto = token.indexOf('.');
+        if (punto < 0)
+            throw new BadCredentialsException("Invalid token");
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, punto));
+            byte[] firma = DECODER.decode(token.substring(punto + 1));
+            if (!MessageDigest.isEqual(firmar(payload), firma))
+                throw new BadCredentialsException("Invalid token");
+            String[] partes = new String(payload, StandardCharsets.UTF_8).split("\\|", -1);
+            TipoToken tipo = partes.length == 4 ? TipoToken.of(partes[0]) : null;
+            if (tipo == null)
+                throw new BadCredentialsException("Invalid token");
+            return new TokenClaims(tipo, UUID.fromString(partes[1]), StringUtils.hasText(partes[2]) ? partes[2] : null,
+                    Instant.ofEpochSecond(Long.parseLong(partes[3])));
+        } catch (IllegalArgumentException e) {
+            // Bad base64, UUID or number: the token was not produced by us.
+            throw new BadCredentialsException("Invalid token");
+        }
+    }
+
+    private byte[] firmar(byte[] datos) {
+        try {
+            // Mac is not thread-safe; a clone of the keyed prototype is cheap.
+            return ((Mac) prototipo.clone()).doFinal(datos);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] clave(String secreto) {
+        if (StringUtils.hasText(secreto))
+            return secreto.getBytes(StandardCharsets.UTF_8);
+        log.warn("ferreteria.security.token-secret is not set; using a random key. Tokens will not survive a "
+                + "restart nor be accepted by other instances.");
+        byte[] aleatoria = new byte[32];
+        new SecureRandom().nextBytes(aleatoria);
+        return aleatoria;
+    }
+
+    private static Mac mac(byte[] clave) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(new SecretKeySpec(clave, ALGORITMO));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ferreteria.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+/** Claims of the caller of the current request, if it sent a valid token. */
+public final class UsuarioActual {
+
+    private UsuarioActual() {
+    }
+
+    public static Optional<TokenClaims> claims() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof TokenClaims claims ? Optional.of(claims) : Optional.empty();
+    }
+
+    public static boolean esAdmin() {
+        return claims().map(TokenClaims::esAdmin).orElse(false);
+    }
+}
@@ -2,11 +2,12 @@ package com.ferreteria.service;
 
 import com.ferreteria.entity.Admin;
 import java.util.List;
+import java.util.UUID;
 
 public interface AdminService {
     Admin createAdmin(Admin admin);
-    Admin getAdminById(String id);
+    Admin getAdminById(UUID id);
     List<Admin> getAllAdmins();
-    Admin updateAdmin(String id, Admin admin);
-    void deleteAdmin(String id);
+    Admin updateAdmin(UUID id, Admin admin);
+    void deleteAdmin(UUID id);
 }
\ No newline at end of file
@@ -2,17 +2,20 @@ package com.ferreteria.service;
 
 import com.ferreteria.entity.Carrito;
 import java.util.List;
+import java.util.UUID;
 
 public interface CarritoService {
     Carrito createCarrito(Carrito carrito);
 
-    Carrito getCarritoById(Long id);
+    Carrito getCarritoById(UUID id);
 
     List<Carrito> getAllCarritos();
 
-    List<Carrito> getCarritoByUsuario(String usuarioId);
+    List<Carrito> getCarritoByUsuario(UUID usuarioId);
 
-    Carrito updateCarrito(Long id, Carrito carrito);
+    List<Carrito> replaceCarritoByUsuario(UUID usuarioId, List<Carrito> items);
 
-    void deleteCarrito(Long id);
+    Carrito updateCarrito(UUID id, Carrito carrito);
+
+    void deleteCarrito(UUID id);
 }
\ No newline at end of file
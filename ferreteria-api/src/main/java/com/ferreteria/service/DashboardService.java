@@ -0,0 +1,7 @@
+package com.ferreteria.service;
+
+import com.ferreteria.dto.AdminDashboard;
+
+public interface DashboardService {
+    AdminDashboard getDashboard();
+}
@@ -0,0 +1,12 @@
+package com.ferreteria.service;
+
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.PedidoSolicitud;
+
+import java.util.UUID;
+
+public interface PedidoIntakeService {
+    PedidoSolicitud encolar(Pedido pedido, String claveIdempotencia);
+
+    PedidoSolicitud getSolicitud(UUID id);
+}
@@ -1,18 +1,31 @@
 package com.ferreteria.service;
 
+import com.ferreteria.dto.CursorPage;
+import com.ferreteria.dto.FormatoArchivo;
 import com.ferreteria.entity.Pedido;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 
 public interface PedidoService {
     Pedido createPedido(Pedido pedido);
 
-    Pedido getPedidoById(String id);
+    Pedido getPedidoById(UUID id);
 
     List<Pedido> getAllPedidos();
 
-    List<Pedido> getPedidosByUsuario(String usuarioId);
+    List<Pedido> getPedidosByUsuario(UUID usuarioId);
+
+    CursorPage<Pedido> getPedidosPage(String cursor, int size);
+
+    CursorPage<Pedido> getPedidosByUsuarioPage(UUID usuarioId, String cursor, int size);
+
+    Pedido updatePedido(UUID id, Pedido pedido);
 
-    Pedido updatePedido(String id, Pedido pedido);
+    void deletePedido(UUID id);
 
-    void deletePedido(String id);
+    void exportPedidos(LocalDate desde, LocalDate hasta, FormatoArchivo formato, OutputStream salida) throws IOException;
 }
\ No newline at end of file
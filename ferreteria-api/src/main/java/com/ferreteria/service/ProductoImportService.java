@@ -0,0 +1,18 @@
+package com.ferreteria.service;
+
+import com.ferreteria.dto.FormatoArchivo;
+import com.ferreteria.dto.ProductoImportReport;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProductoImportService {
+    ProductoImportReport importProductos(InputStream contenido, FormatoArchivo formato, Charset charset,
+            Integer tamanoLote);
+
+    List<ProductoImportReport> getImportaciones();
+
+    ProductoImportReport getImportacion(UUID id);
+}
@@ -1,17 +1,38 @@
 package com.ferreteria.service;
 
+import com.ferreteria.dto.PageResponse;
+import com.ferreteria.dto.ProductoFacetFilter;
+import com.ferreteria.dto.ProductoFacets;
+import com.ferreteria.dto.ProductoResumen;
+import com.ferreteria.dto.ProductoSearchCriteria;
 import com.ferreteria.entity.Producto;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductoService {
     Producto createProducto(Producto producto);
 
     Producto getProductoById(Long id);
 
+    /**
+     * The products with those ids that exist, by id: the cached ones from the
+     * cache and the rest with a single query.
+     */
+    Map<Long, Producto> getProductosById(Collection<Long> ids);
+
     List<Producto> getAllProductos();
 
     List<Producto> getProductosByCategoria(String categoriaId);
 
+    List<ProductoResumen> getProductosResumen(String categoriaId, boolean soloOfertas);
+
+    PageResponse<Producto> searchProductos(ProductoSearchCriteria criteria);
+
+    List<Producto> searchProductosByText(String query, int limit);
+
+    ProductoFacets getFacets(ProductoFacetFilter filter);
+
     Producto updateProducto(Long id, Producto producto);
 
     void deleteProducto(Long id);
@@ -0,0 +1,18 @@
+package com.ferreteria.service;
+
+import com.ferreteria.dto.VentasPorCategoria;
+import com.ferreteria.dto.VentasPorDia;
+import com.ferreteria.dto.VentasPorProducto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ReporteService {
+    List<VentasPorDia> getVentasPorDia(LocalDate desde, LocalDate hasta);
+
+    List<VentasPorCategoria> getVentasPorCategoria(LocalDate desde, LocalDate hasta);
+
+    List<VentasPorProducto> getTopProductos(LocalDate desde, LocalDate hasta, int limit);
+
+    int rebuildVentas(LocalDate desde, LocalDate hasta);
+}
@@ -1,19 +1,26 @@
 package com.ferreteria.service;
 
+import com.ferreteria.dto.CursorPage;
 import com.ferreteria.dto.LoginRequest;
+import com.ferreteria.dto.LoginResponse;
 import com.ferreteria.entity.Usuario;
 import java.util.List;
+import java.util.UUID;
 
 public interface UsuarioService {
     Usuario createUsuario(Usuario usuario);
 
-    Usuario getUsuarioById(String id);
+    Usuario getUsuarioById(UUID id);
 
     List<Usuario> getAllUsuarios();
 
-    Usuario updateUsuario(String id, Usuario usuario);
+    CursorPage<Usuario> getUsuariosPage(String cursor, int size);
 
-    void deleteUsuario(String id);
+    Usuario updateUsuario(UUID id, Usuario usuario);
 
-    Usuario login(LoginRequest loginRequest);
+    void deleteUsuario(UUID id);
+
+    LoginResponse login(LoginRequest loginRequest);
+
+    LoginResponse refresh(String refreshToken);
 }
\ No newline at end of file
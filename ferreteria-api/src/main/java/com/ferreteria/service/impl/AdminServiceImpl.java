@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -24,7 +25,7 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     @Transactional(readOnly = true)
-    public Admin getAdminById(String id) {
+    public Admin getAdminById(UUID id) {
         return adminRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Admin config not found with id: " + id));
     }
@@ -37,7 +38,7 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     @Transactional
-    public Admin updateAdmin(String id, Admin details) {
+    public Admin updateAdmin(UUID id, Admin details) {
         Admin admin = getAdminById(id);
         admin.setNombreRol(details.getNombreRol());
         admin.setPermisos(details.getPermisos());
@@ -46,7 +47,7 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     @Transactional
-    public void deleteAdmin(String id) {
+    public void deleteAdmin(UUID id) {
         Admin admin = getAdminById(id);
         adminRepository.delete(admin);
     }
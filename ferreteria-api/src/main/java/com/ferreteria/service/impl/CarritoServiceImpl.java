@@ -1,60 +1,89 @@
 package com.ferreteria.service.impl;
 
+import com.ferreteria.cache.CarritoStore;
 import com.ferreteria.entity.Carrito;
 import com.ferreteria.exception.ResourceNotFoundException;
 import com.ferreteria.repository.CarritoRepository;
 import com.ferreteria.service.CarritoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+/**
+ * Cart operations are served by {@link CarritoStore}; the table is only read
+ * directly for the admin listing, after pending edits have been flushed.
+ */
 @Service
 @RequiredArgsConstructor
 public class CarritoServiceImpl implements CarritoService {
 
+    private final CarritoStore carritoStore;
     private final CarritoRepository carritoRepository;
 
     @Override
-    @Transactional
     public Carrito createCarrito(Carrito carrito) {
-        return carritoRepository.save(carrito);
+        return carritoStore.agregar(usuarioId(carrito), productoId(carrito), cantidad(carrito));
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public Carrito getCarritoById(Long id) {
-        return carritoRepository.findById(id)
+    public Carrito getCarritoById(UUID id) {
+        return carritoStore.buscar(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Carrito item not found with id: " + id));
     }
 
+    // Not transactional: the flush must commit before the table is read.
     @Override
-    @Transactional(readOnly = true)
     public List<Carrito> getAllCarritos() {
+        carritoStore.flush();
         return carritoRepository.findAll();
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<Carrito> getCarritoByUsuario(String usuarioId) {
-        return carritoRepository.findByUsuarioId(usuarioId);
+    public List<Carrito> getCarritoByUsuario(UUID usuarioId) {
+        return carritoStore.getCarrito(usuarioId);
     }
 
     @Override
-    @Transactional
-    public Carrito updateCarrito(Long id, Carrito details) {
-        Carrito carrito = getCarritoById(id);
-        carrito.setCantidad(details.getCantidad());
-        carrito.setUsuario(details.getUsuario());
-        carrito.setProducto(details.getProducto());
-        return carritoRepository.save(carrito);
+    public List<Carrito> replaceCarritoByUsuario(UUID usuarioId, List<Carrito> items) {
+        // Repeated products are summed, the same way adding them one by one would.
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (Carrito item : items)
+            cantidades.merge(productoId(item), cantidad(item), Integer::sum);
+        return carritoStore.reemplazar(usuarioId, cantidades);
     }
 
     @Override
-    @Transactional
-    public void deleteCarrito(Long id) {
-        Carrito carrito = getCarritoById(id);
-        carritoRepository.delete(carrito);
+    public Carrito updateCarrito(UUID id, Carrito details) {
+        Long productoId = details.getProducto() != null ? details.getProducto().getId() : null;
+        return carritoStore.actualizar(id, productoId, cantidad(details))
+                .orElseThrow(() -> new ResourceNotFoundException("Carrito item not found with id: " + id));
+    }
+
+    @Override
+    public void deleteCarrito(UUID id) {
+        if (!carritoStore.eliminar(id))
+            throw new ResourceNotFoundException("Carrito item not found with id: " + id);
+    }
+
+    private static UUID usuarioId(Carrito carrito) {
+        if (carrito.getUsuario() == null || carrito.getUsuario().getId() == null)
+            throw new IllegalArgumentException("usuario.id is required");
+        return carrito.getUsuario().getId();
+    }
+
+    private static Long productoId(Carrito carrito) {
+        if (carrito.getProducto() == null || carrito.getProducto().getId() == null)
+            throw new IllegalArgumentException("producto.id is required");
+        return carrito.getProducto().getId();
+    }
+
+    private static int cantidad(Carrito carrito) {
+        if (carrito.getCantidad() == null || carrito.getCantidad() <= 0)
+            throw new IllegalArgumentException("cantidad must be greater than 0");
+        return carrito.getCantidad();
     }
-}
\ No newline at end of file
+}
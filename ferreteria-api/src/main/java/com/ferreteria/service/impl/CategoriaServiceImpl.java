@@ -1,10 +1,15 @@
 package com.ferreteria.service.impl;
 
+import com.ferreteria.cache.CacheNames;
+import com.ferreteria.cache.CatalogoCache;
 import com.ferreteria.entity.Categoria;
 import com.ferreteria.exception.ResourceNotFoundException;
 import com.ferreteria.repository.CategoriaRepository;
+import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.search.ProductoSearchIndex;
 import com.ferreteria.service.CategoriaService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,11 +20,16 @@ import java.util.List;
 public class CategoriaServiceImpl implements CategoriaService {
 
     private final CategoriaRepository categoriaRepository;
+    private final CatalogoCache catalogoCache;
+    private final ProductoRepository productoRepository;
+    private final ProductoSearchIndex productoSearchIndex;
 
     @Override
     @Transactional
     public Categoria createCategoria(Categoria categoria) {
-        return categoriaRepository.save(categoria);
+        Categoria saved = categoriaRepository.save(categoria);
+        catalogoCache.evictCategorias();
+        return saved;
     }
 
     @Override
@@ -31,6 +41,7 @@ public class CategoriaServiceImpl implements CategoriaService {
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.CATEGORIAS, key = "@catalogVersions.clave('categorias', 'all')")
     public List<Categoria> getAllCategorias() {
         return categoriaRepository.findAll();
     }
@@ -41,7 +52,11 @@ public class CategoriaServiceImpl implements CategoriaService {
         Categoria categoria = getCategoriaById(id);
         categoria.setNombre(categoriaDetails.getNombre());
         categoria.setDescripcion(categoriaDetails.getDescripcion());
-        return categoriaRepository.save(categoria);
+        Categoria saved = categoriaRepository.save(categoria);
+        // The category name is searchable on each of its products; the index applies these after commit.
+        productoRepository.findByCategoriaId(id).forEach(productoSearchIndex::index);
+        catalogoCache.evictCategoria();
+        return saved;
     }
 
     @Override
@@ -49,5 +64,6 @@ public class CategoriaServiceImpl implements CategoriaService {
     public void deleteCategoria(String id) {
         Categoria categoria = getCategoriaById(id);
         categoriaRepository.delete(categoria);
+        catalogoCache.evictCategoria();
     }
 }
\ No newline at end of file
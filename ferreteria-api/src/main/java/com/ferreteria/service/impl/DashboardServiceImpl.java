@@ -0,0 +1,72 @@
+package com.ferreteria.service.impl;
+
+import com.ferreteria.cache.CacheNames;
+import com.ferreteria.dto.AdminDashboard;
+import com.ferreteria.repository.PedidoRepository;
+import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.repository.UsuarioRepository;
+import com.ferreteria.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Admin panel figures computed by the database: one grouped query over pedidos
+ * plus a few counts and top-N reads, instead of shipping every table to the
+ * browser.
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardServiceImpl implements DashboardService {
+
+    private static final int STOCK_BAJO = 10;
+    private static final int ALERTAS_STOCK = 6;
+    private static final int PEDIDOS_RECIENTES = 5;
+    private static final Set<String> ESTADOS_PENDIENTES = Set.of("PENDIENTE", "PAGADO");
+
+    private final PedidoRepository pedidoRepository;
+    private final ProductoRepository productoRepository;
+    private final UsuarioRepository usuarioRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.DASHBOARD, key = CacheNames.ALL)
+    public AdminDashboard getDashboard() {
+        TreeMap<String, Long> porEstado = new TreeMap<>();
+        BigDecimal totalVentas = BigDecimal.ZERO;
+        long totalPedidos = 0;
+        long pendientes = 0;
+        for (Object[] fila : pedidoRepository.resumenPorEstado()) {
+            String estado = fila[0] != null ? (String) fila[0] : "SIN_ESTADO";
+            long cantidad = (Long) fila[1];
+            porEstado.merge(estado, cantidad, Long::sum);
+            totalPedidos += cantidad;
+            if (fila[2] != null)
+                totalVentas = totalVentas.add((BigDecimal) fila[2]);
+            if (ESTADOS_PENDIENTES.contains(estado))
+                pendientes += cantidad;
+        }
+        BigDecimal ticketPromedio = totalPedidos > 0
+                ? totalVentas.divide(BigDecimal.valueOf(totalPedidos), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+
+        return new AdminDashboard(
+                totalVentas,
+                totalPedidos,
+                ticketPromedio,
+                pendientes,
+                porEstado,
+                productoRepository.countByStockLessThan(STOCK_BAJO),
+                productoRepository.findResumenStockBajo(STOCK_BAJO, PageRequest.of(0, ALERTAS_STOCK)),
+                pedidoRepository.findRecientes(PageRequest.of(0, PEDIDOS_RECIENTES)),
+                usuarioRepository.count());
+    }
+}
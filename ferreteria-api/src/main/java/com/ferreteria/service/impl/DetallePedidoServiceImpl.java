@@ -1,25 +1,50 @@
 package com.ferreteria.service.impl;
 
+import com.ferreteria.dto.PedidoEvento;
 import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.OutboxEvento;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
 import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.outbox.OutboxPublisher;
 import com.ferreteria.repository.DetallePedidoRepository;
+import com.ferreteria.repository.PedidoRepository;
+import com.ferreteria.repository.ProductoRepository;
 import com.ferreteria.service.DetallePedidoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * Direct edits of order lines. Each one recomputes the order's total from its
+ * lines and publishes a PEDIDO_LINEAS_MODIFICADAS event with the change, in the
+ * same transaction, so the sales rollups follow line edits as they follow
+ * order creation and cancellation.
+ */
 @Service
 @RequiredArgsConstructor
 public class DetallePedidoServiceImpl implements DetallePedidoService {
 
     private final DetallePedidoRepository repository;
+    private final PedidoRepository pedidoRepository;
+    private final ProductoRepository productoRepository;
+    private final OutboxPublisher outboxPublisher;
 
     @Override
     @Transactional
     public DetallePedido createDetalle(DetallePedido detalle) {
-        return repository.save(detalle);
+        // An id in the body would make save() merge over another line.
+        detalle.setId(null);
+        detalle.setPedido(pedidoDe(detalle.getPedido()));
+        detalle.setCategoriaId(categoriaDe(detalle.getProducto()));
+        DetallePedido saved = repository.save(detalle);
+        lineasCambiadas(saved.getPedido(), null, saved);
+        return saved;
     }
 
     @Override
@@ -39,17 +64,63 @@ public class DetallePedidoServiceImpl implements DetallePedidoService {
     @Transactional
     public DetallePedido updateDetalle(Long id, DetallePedido details) {
         DetallePedido existing = getDetalleById(id);
+        Pedido pedidoAnterior = existing.getPedido();
+        PedidoEvento.Linea anterior = PedidoEvento.vendible(existing) ? PedidoEvento.linea(existing) : null;
         existing.setCantidad(details.getCantidad());
         existing.setPrecioUnitario(details.getPrecioUnitario());
-        existing.setPedido(details.getPedido());
+        existing.setPedido(pedidoDe(details.getPedido()));
         existing.setProducto(details.getProducto());
-        return repository.save(existing);
+        existing.setCategoriaId(categoriaDe(details.getProducto()));
+        DetallePedido saved = repository.save(existing);
+        if (pedidoAnterior != null && saved.getPedido() != null
+                && Objects.equals(pedidoAnterior.getId(), saved.getPedido().getId())) {
+            lineasCambiadas(saved.getPedido(), anterior, saved);
+        } else {
+            // Moved to another order: out of the old one, into the new one.
+            lineasCambiadas(pedidoAnterior, anterior, null);
+            lineasCambiadas(saved.getPedido(), null, saved);
+        }
+        return saved;
     }
 
     @Override
     @Transactional
     public void deleteDetalle(Long id) {
         DetallePedido existing = getDetalleById(id);
+        Pedido pedido = existing.getPedido();
+        PedidoEvento.Linea anterior = PedidoEvento.vendible(existing) ? PedidoEvento.linea(existing) : null;
         repository.delete(existing);
+        lineasCambiadas(pedido, anterior, null);
     }
-}
\ No newline at end of file
+
+    private void lineasCambiadas(Pedido pedido, PedidoEvento.Linea quitada, DetallePedido agregada) {
+        if (pedido == null)
+            return;
+        repository.flush();
+        pedido.setTotal(repository.sumImporteByPedidoId(pedido.getId()).setScale(2, RoundingMode.HALF_UP));
+        List<PedidoEvento.Linea> cambios = new ArrayList<>(2);
+        if (quitada != null)
+            cambios.add(quitada.negada());
+        if (agregada != null && PedidoEvento.vendible(agregada))
+            cambios.add(PedidoEvento.linea(agregada));
+        if (!cambios.isEmpty())
+            outboxPublisher.publicar(OutboxEvento.PEDIDO, pedido.getId(), OutboxEvento.PEDIDO_LINEAS_MODIFICADAS,
+                    PedidoEvento.deLineas(pedido, cambios));
+    }
+
+    private Pedido pedidoDe(Pedido pedido) {
+        if (pedido == null || pedido.getId() == null)
+            return null;
+        return pedidoRepository.findById(pedido.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Pedido not found with id: " + pedido.getId()));
+    }
+
+    // The request only carries the product id; the line records its category.
+    private String categoriaDe(Producto producto) {
+        if (producto == null || producto.getId() == null)
+            return null;
+        return productoRepository.findById(producto.getId())
+                .map(p -> p.getCategoria() != null ? p.getCategoria().getId() : null)
+                .orElse(null);
+    }
+}
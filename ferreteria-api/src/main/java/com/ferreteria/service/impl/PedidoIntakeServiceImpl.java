@@ -0,0 +1,90 @@
+package com.ferreteria.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.dto.PedidoSolicitudPayload;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.PedidoSolicitud;
+import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.repository.PedidoSolicitudRepository;
+import com.ferreteria.service.PedidoIntakeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class PedidoIntakeServiceImpl implements PedidoIntakeService {
+
+    private static final int MAX_CLAVE_IDEMPOTENCIA = 64;
+
+    private final PedidoSolicitudRepository solicitudRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Checks the shape of the order (customer, lines, quantities) and stores it;
+     * prices, stock and product existence are left to the worker, which is what
+     * keeps this path to a single INSERT. A repeated idempotency key returns the
+     * solicitud the first request queued. Not transactional: the INSERT commits
+     * on its own, so losing the race on the unique key leaves nothing to roll
+     * back and the winner's row can be read.
+     */
+    @Override
+    public PedidoSolicitud encolar(Pedido pedido, String claveIdempotencia) {
+        if (pedido.getUsuario() == null || pedido.getUsuario().getId() == null)
+            throw new IllegalArgumentException("El pedido debe indicar un usuario");
+        if (claveIdempotencia != null && (claveIdempotencia.isBlank()
+                || claveIdempotencia.length() > MAX_CLAVE_IDEMPOTENCIA))
+            throw new IllegalArgumentException("Idempotency-Key must have 1 to " + MAX_CLAVE_IDEMPOTENCIA
+                    + " characters");
+        UUID usuarioId = pedido.getUsuario().getId();
+        if (claveIdempotencia != null) {
+            PedidoSolicitud anterior = solicitudRepository
+                    .findByUsuarioIdAndClaveIdempotencia(usuarioId, claveIdempotencia).orElse(null);
+            if (anterior != null)
+                return anterior;
+        }
+        if (pedido.getDetalles() == null || pedido.getDetalles().isEmpty())
+            throw new IllegalArgumentException("El pedido debe tener al menos un detalle");
+        List<PedidoSolicitudPayload.Linea> lineas = PedidoServiceImpl.cantidadesPorProducto(pedido.getDetalles())
+                .entrySet().stream()
+                .map(e -> new PedidoSolicitudPayload.Linea(e.getKey(), e.getValue()))
+                .toList();
+        LocalDate fecha = pedido.getFecha() != null ? pedido.getFecha() : LocalDate.now();
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new PedidoSolicitudPayload(fecha, lineas));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        PedidoSolicitud solicitud = PedidoSolicitud.builder()
+                .usuarioId(usuarioId)
+                .claveIdempotencia(claveIdempotencia)
+                .payload(payload)
+                .estado(PedidoSolicitud.EN_COLA)
+                .creadoEn(LocalDateTime.now())
+                .build();
+        try {
+            return solicitudRepository.saveAndFlush(solicitud);
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent retry with the same key got there first.
+            if (claveIdempotencia == null)
+                throw ex;
+            return solicitudRepository.findByUsuarioIdAndClaveIdempotencia(usuarioId, claveIdempotencia)
+                    .orElseThrow(() -> ex);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PedidoSolicitud getSolicitud(UUID id) {
+        return solicitudRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Solicitud not found with id: " + id));
+    }
+}
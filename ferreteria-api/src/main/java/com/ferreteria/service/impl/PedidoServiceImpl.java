@@ -1,68 +1,371 @@
 package com.ferreteria.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.ferreteria.cache.CatalogoCache;
+import com.ferreteria.dto.CursorPage;
+import com.ferreteria.dto.FormatoArchivo;
+import com.ferreteria.dto.PedidoEvento;
+import com.ferreteria.dto.PedidoExportRow;
+import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.OutboxEvento;
 import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
 import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.exception.StockInsuficienteException;
+import com.ferreteria.outbox.OutboxPublisher;
 import com.ferreteria.repository.PedidoRepository;
+import com.ferreteria.repository.ProductoRepository;
 import com.ferreteria.service.PedidoService;
+import com.ferreteria.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class PedidoServiceImpl implements PedidoService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final PedidoRepository pedidoRepository;
+    private final ProductoRepository productoRepository;
+    private final CatalogoCache catalogoCache;
+    private final ObjectMapper objectMapper;
+    private final OutboxPublisher outboxPublisher;
+    private final EntityManager entityManager;
+
+    @Value("${ferreteria.pedidos.export.fetch-size:" + Integer.MIN_VALUE + "}")
+    private int exportFetchSize;
 
     @Override
     @Transactional
     public Pedido createPedido(Pedido pedido) {
-        if (pedido.getDetalles() != null) {
-            pedido.getDetalles().forEach(detalle -> detalle.setPedido(pedido));
+        if (pedido.getFecha() == null)
+            pedido.setFecha(LocalDate.now());
+        if (pedido.getDetalles() == null || pedido.getDetalles().isEmpty())
+            throw new IllegalArgumentException("El pedido debe tener al menos un detalle");
+        // Ids sent by the client are dropped: with one, save() would merge over
+        // an existing order or line instead of inserting a new one.
+        pedido.setId(null);
+        pedido.getDetalles().forEach(detalle -> {
+            detalle.setId(null);
+            detalle.setPedido(pedido);
+        });
+        Map<Long, Integer> cantidades = cantidadesPorProducto(pedido.getDetalles());
+        Map<Long, Producto> productos = calcularPrecios(pedido, cantidades);
+        reservarStock(cantidades);
+        descontarLeido(productos, cantidades);
+        Pedido saved = pedidoRepository.save(pedido);
+        outboxPublisher.publicar(OutboxEvento.PEDIDO, saved.getId(), OutboxEvento.PEDIDO_CREADO,
+                PedidoEvento.of(saved));
+        return initialize(saved);
+    }
+
+    /**
+     * Prices every line from the catalog instead of trusting the client: all the
+     * referenced products are read with a single query, each line takes the
+     * current Producto.precio and the total is the sum of the rounded lines.
+     * Returns the products read, which the lines now point to.
+     */
+    private Map<Long, Producto> calcularPrecios(Pedido pedido, Map<Long, Integer> cantidades) {
+        Map<Long, Producto> productos = productoRepository.findAllById(cantidades.keySet()).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+        BigDecimal total = BigDecimal.ZERO;
+        for (DetallePedido detalle : pedido.getDetalles()) {
+            Long productoId = detalle.getProducto().getId();
+            Producto producto = productos.get(productoId);
+            if (producto == null)
+                throw new ResourceNotFoundException("Producto not found with id: " + productoId);
+            BigDecimal precio = precioVigente(producto);
+            detalle.setProducto(producto);
+            detalle.setPrecioUnitario(precio);
+            detalle.setCategoriaId(producto.getCategoria() != null ? producto.getCategoria().getId() : null);
+            total = total.add(precio.multiply(BigDecimal.valueOf(detalle.getCantidad())));
         }
-        return pedidoRepository.save(pedido);
+        pedido.setTotal(total.setScale(2, RoundingMode.HALF_UP));
+        // Loaded now, while the products are still managed: the response needs them.
+        productos.values().forEach(producto -> Hibernate.initialize(producto.getImagenesAdicionales()));
+        return productos;
+    }
+
+    // On offers precio already holds the discounted price; precioAnterior is only
+    // the crossed-out reference shown in the storefront.
+    private static BigDecimal precioVigente(Producto producto) {
+        if (producto.getPrecio() == null)
+            throw new IllegalArgumentException("El producto " + producto.getId() + " no tiene precio");
+        return producto.getPrecio().setScale(2, RoundingMode.HALF_UP);
+    }
+
+    static Map<Long, Integer> cantidadesPorProducto(List<DetallePedido> detalles) {
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        for (DetallePedido detalle : detalles) {
+            if (detalle.getProducto() == null || detalle.getProducto().getId() == null)
+                throw new IllegalArgumentException("Cada detalle debe indicar un producto");
+            if (detalle.getCantidad() == null || detalle.getCantidad() <= 0)
+                throw new IllegalArgumentException("Cantidad invalida para el producto " + detalle.getProducto().getId());
+            cantidades.merge(detalle.getProducto().getId(), detalle.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    /**
+     * Takes the ordered units from stock with one conditional UPDATE per product.
+     * The map is sorted by product id, so concurrent checkouts lock rows in the
+     * same order and cannot deadlock; a short line throws, rolling back the order.
+     */
+    private void reservarStock(Map<Long, Integer> cantidades) {
+        cantidades.forEach((productoId, cantidad) -> {
+            if (productoRepository.reservarStock(productoId, cantidad) == 0)
+                throw new StockInsuficienteException("Stock insuficiente para el producto " + productoId);
+        });
+        catalogoCache.evictStock(cantidades.keySet());
+    }
+
+    // The inverse of reservarStock, in the same product-id order.
+    private void devolverStock(Map<Long, Integer> cantidades) {
+        if (cantidades.isEmpty())
+            return;
+        cantidades.forEach(productoRepository::devolverStock);
+        catalogoCache.evictStock(cantidades.keySet());
+    }
+
+    // Units per product held by the order's stored lines, sorted by product id.
+    private static Map<Long, Integer> cantidadesReservadas(Pedido pedido) {
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        if (pedido.getDetalles() != null)
+            pedido.getDetalles().stream()
+                    .filter(d -> d.getProducto() != null && d.getProducto().getId() != null && d.getCantidad() != null)
+                    .forEach(d -> cantidades.merge(d.getProducto().getId(), d.getCantidad(), Integer::sum));
+        return cantidades;
+    }
+
+    private static boolean cancelado(String estado) {
+        return Pedido.CANCELADO.equals(estado);
+    }
+
+    /**
+     * The stock UPDATEs cleared the persistence context, so the products read
+     * for pricing are detached and still show the stock before this order.
+     * Instead of reading them again, the response shows that stock minus the
+     * units just reserved; orders committed in between are not reflected.
+     * Detached, these changes are never written back.
+     */
+    private static void descontarLeido(Map<Long, Producto> productos, Map<Long, Integer> cantidades) {
+        cantidades.forEach((productoId, cantidad) -> {
+            Producto producto = productos.get(productoId);
+            if (producto.getStock() != null)
+                producto.setStock(producto.getStock() - cantidad);
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Pedido getPedidoById(String id) {
+    public Pedido getPedidoById(UUID id) {
         return pedidoRepository.findById(id)
+                .map(PedidoServiceImpl::initialize)
                 .orElseThrow(() -> new ResourceNotFoundException("Pedido not found with id: " + id));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Pedido> getAllPedidos() {
-        return pedidoRepository.findAll();
+        return initialize(pedidoRepository.findAll());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Pedido> getPedidosByUsuario(String usuarioId) {
-        return pedidoRepository.findByUsuarioId(usuarioId);
+    public List<Pedido> getPedidosByUsuario(UUID usuarioId) {
+        return initialize(pedidoRepository.findByUsuarioId(usuarioId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Pedido> getPedidosPage(String cursor, int size) {
+        return paginaDePedidos(cursor, size, (fecha, id, pagina) -> fecha == null
+                ? pedidoRepository.findPaginaIds(pagina)
+                : pedidoRepository.findPaginaIdsDespuesDe(fecha, id, pagina));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Pedido> getPedidosByUsuarioPage(UUID usuarioId, String cursor, int size) {
+        return paginaDePedidos(cursor, size, (fecha, id, pagina) -> fecha == null
+                ? pedidoRepository.findPaginaIdsByUsuario(usuarioId, pagina)
+                : pedidoRepository.findPaginaIdsByUsuarioDespuesDe(usuarioId, fecha, id, pagina));
+    }
+
+    private interface BusquedaIds {
+        List<UUID> buscar(LocalDate fecha, UUID id, Pageable pagina);
+    }
+
+    // Fetches one row more than asked for to know whether there is a next page.
+    private CursorPage<Pedido> paginaDePedidos(String cursor, int size, BusquedaIds busqueda) {
+        int limite = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        LocalDate fecha = null;
+        UUID id = null;
+        if (StringUtils.hasText(cursor)) {
+            String[] clave = KeysetCursor.decode(cursor, 2);
+            try {
+                fecha = LocalDate.parse(clave[0]);
+                id = UUID.fromString(clave[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        List<UUID> ids = busqueda.buscar(fecha, id, PageRequest.of(0, limite + 1));
+        boolean hayMas = ids.size() > limite;
+        if (hayMas)
+            ids = ids.subList(0, limite);
+        Map<UUID, Pedido> porId = initialize(pedidoRepository.findByIdIn(ids)).stream()
+                .collect(Collectors.toMap(Pedido::getId, Function.identity()));
+        List<Pedido> pedidos = ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+        String siguiente = null;
+        if (hayMas && !pedidos.isEmpty()) {
+            Pedido ultimo = pedidos.get(pedidos.size() - 1);
+            siguiente = KeysetCursor.encode(ultimo.getFecha(), ultimo.getId());
+        }
+        return new CursorPage<>(pedidos, limite, siguiente);
     }
 
     @Override
     @Transactional
-    public Pedido updatePedido(String id, Pedido details) {
+    public Pedido updatePedido(UUID id, Pedido details) {
         Pedido pedido = getPedidoById(id);
+        String estadoAnterior = pedido.getEstado();
+        LocalDate fechaAnterior = pedido.getFecha();
+        // Cancelling gives the units back; re-opening takes them again, or fails if they were sold meanwhile.
+        if (details.getEstado() != null && cancelado(details.getEstado()) != cancelado(estadoAnterior)) {
+            if (cancelado(details.getEstado()))
+                devolverStock(cantidadesReservadas(pedido));
+            else
+                reservarStock(cantidadesReservadas(pedido));
+            // The stock UPDATEs cleared the persistence context.
+            pedido = getPedidoById(id);
+        }
         if (details.getFecha() != null)
             pedido.setFecha(details.getFecha());
         if (details.getEstado() != null)
             pedido.setEstado(details.getEstado());
-        if (details.getTotal() != null)
-            pedido.setTotal(details.getTotal());
+        // total is not taken from the client: it is always the priced sum of the lines.
         if (details.getUsuario() != null)
             pedido.setUsuario(details.getUsuario());
-        return pedidoRepository.save(pedido);
+        Pedido saved = initialize(pedidoRepository.save(pedido));
+        if (!Objects.equals(estadoAnterior, saved.getEstado()) || !Objects.equals(fechaAnterior, saved.getFecha()))
+            outboxPublisher.publicar(OutboxEvento.PEDIDO, id, OutboxEvento.PEDIDO_MODIFICADO,
+                    PedidoEvento.of(saved, estadoAnterior, fechaAnterior));
+        return saved;
     }
 
     @Override
     @Transactional
-    public void deletePedido(String id) {
+    public void deletePedido(UUID id) {
         Pedido pedido = getPedidoById(id);
+        PedidoEvento evento = PedidoEvento.of(pedido);
+        Map<Long, Integer> reservadas = cancelado(pedido.getEstado()) ? Map.of() : cantidadesReservadas(pedido);
         pedidoRepository.delete(pedido);
+        devolverStock(reservadas);
+        outboxPublisher.publicar(OutboxEvento.PEDIDO, id, OutboxEvento.PEDIDO_ELIMINADO, evento);
+    }
+
+    /**
+     * The entity graph cannot also fetch the product images (two bags in one
+     * join), and responses are written after the transaction, so they are loaded
+     * here; with @BatchSize that is one query per 100 products, not one each.
+     */
+    private static Pedido initialize(Pedido pedido) {
+        if (pedido.getDetalles() != null)
+            pedido.getDetalles().stream()
+                    .filter(detalle -> detalle.getProducto() != null)
+                    .forEach(detalle -> Hibernate.initialize(detalle.getProducto().getImagenesAdicionales()));
+        return pedido;
+    }
+
+    private static List<Pedido> initialize(List<Pedido> pedidos) {
+        pedidos.forEach(PedidoServiceImpl::initialize);
+        return pedidos;
+    }
+
+    private static final String CABECERA_CSV = "pedidoId,fecha,estado,total,usuarioId,usuarioEmail,"
+            + "detalleId,productoId,productoNombre,cantidad,precioUnitario";
+
+    private static final String CONSULTA_EXPORT = "select new com.ferreteria.dto.PedidoExportRow(p.id, p.fecha, "
+            + "p.estado, p.total, u.id, u.email, d.id, pr.id, pr.nombre, d.cantidad, d.precioUnitario) "
+            + "from Pedido p left join p.usuario u left join p.detalles d left join d.producto pr "
+            + "where (:desde is null or p.fecha >= :desde) and (:hasta is null or p.fecha <= :hasta) "
+            + "order by p.fecha, p.id, d.id";
+
+    /**
+     * Writes each row as it comes off the cursor, so memory use does not depend
+     * on how many orders fall in the range. The fetch size is set on this
+     * statement only: Integer.MIN_VALUE makes the MySQL driver stream rows,
+     * databases that reject it take a positive value. Projections are not
+     * managed, so the persistence context stays empty.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportPedidos(LocalDate desde, LocalDate hasta, FormatoArchivo formato, OutputStream salida)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        ObjectWriter json = objectMapper.writerFor(PedidoExportRow.class);
+        if (formato == FormatoArchivo.CSV)
+            writer.write(CABECERA_CSV + "\n");
+        try (Stream<PedidoExportRow> filas = entityManager.createQuery(CONSULTA_EXPORT, PedidoExportRow.class)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            Iterator<PedidoExportRow> it = filas.iterator();
+            while (it.hasNext()) {
+                PedidoExportRow fila = it.next();
+                writer.write(formato == FormatoArchivo.CSV ? csv(fila) : json.writeValueAsString(fila));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private static String csv(PedidoExportRow fila) {
+        return Stream.of(fila.getPedidoId(), fila.getFecha(), fila.getEstado(), fila.getTotal(), fila.getUsuarioId(),
+                        fila.getUsuarioEmail(), fila.getDetalleId(), fila.getProductoId(), fila.getProductoNombre(),
+                        fila.getCantidad(), fila.getPrecioUnitario())
+                .map(PedidoServiceImpl::campoCsv)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String campoCsv(Object valor) {
+        if (valor == null)
+            return "";
+        String texto = valor instanceof BigDecimal decimal ? decimal.toPlainString() : valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0)
+            return texto;
+        return '"' + texto.replace("\"", "\"\"") + '"';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,398 @@
+package com.ferreteria.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.ferreteria.cache.CatalogoCache;
+import com.ferreteria.dto.FormatoArchivo;
+import com.ferreteria.dto.PrecioCambiadoEvento;
+import com.ferreteria.dto.ProductoImportReport;
+import com.ferreteria.dto.ProductoImportRow;
+import com.ferreteria.entity.Categoria;
+import com.ferreteria.entity.OutboxEvento;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.outbox.OutboxPublisher;
+import com.ferreteria.repository.CategoriaRepository;
+import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.search.ProductoFacetIndex;
+import com.ferreteria.search.ProductoSearchIndex;
+import com.ferreteria.service.ProductoImportService;
+import com.ferreteria.util.CsvReader;
+import com.ferreteria.util.UuidV7;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Bulk product load. The upload is read one row at a time and written in
+ * chunks, each in its own transaction with JDBC batching, and the persistence
+ * context is cleared after every chunk so memory stays flat however large the
+ * file is. Rows are matched to existing products by nombre + marca (case
+ * insensitive): a match is updated, anything else is created. A price change
+ * on an update goes to the outbox in the chunk's transaction, as it does for a
+ * single edit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductoImportServiceImpl implements ProductoImportService {
+
+    private static final int MAX_TAMANO_LOTE = 10_000;
+    private static final int MAX_ERRORES = 200;
+    private static final int MAX_TERMINADAS = 20;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductoRepository productoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final ObjectMapper objectMapper;
+    private final ProductoSearchIndex searchIndex;
+    private final ProductoFacetIndex facetIndex;
+    private final CatalogoCache catalogoCache;
+    private final OutboxPublisher outboxPublisher;
+
+    @Value("${ferreteria.import.chunk-size:1000}")
+    private int tamanoLotePorDefecto;
+
+    // Running imports and the last finished ones; each value is a snapshot,
+    // replaced after every chunk. Kept in memory only: a restart forgets them.
+    private final Map<UUID, ProductoImportReport> importaciones = new ConcurrentHashMap<>();
+
+    private record Fila(long numero, ProductoImportRow datos, String error) {
+    }
+
+    @Override
+    public ProductoImportReport importProductos(InputStream contenido, FormatoArchivo formato, Charset charset,
+            Integer tamanoLote) {
+        int lote = tamanoLote != null ? Math.max(1, Math.min(tamanoLote, MAX_TAMANO_LOTE)) : tamanoLotePorDefecto;
+        long inicio = System.nanoTime();
+        ProductoImportReport reporte = new ProductoImportReport();
+        reporte.setId(UuidV7.generate());
+        reporte.setEstado(ProductoImportReport.EN_CURSO);
+        reporte.setInicio(Instant.now());
+        publicar(reporte, inicio);
+        log.info("Import {} started", reporte.getId());
+
+        try {
+            Importacion importacion = new Importacion(reporte, categoriasPorClave(), clavesExistentes());
+            BufferedReader reader = new BufferedReader(new InputStreamReader(contenido, charset));
+            try (Stream<Fila> filas = formato == FormatoArchivo.CSV ? filasCsv(reader) : filasNdjson(reader)) {
+                List<Fila> pendientes = new ArrayList<>(lote);
+                filas.forEach(fila -> {
+                    pendientes.add(fila);
+                    if (pendientes.size() == lote) {
+                        escribirLote(pendientes, importacion);
+                        pendientes.clear();
+                        publicar(reporte, inicio);
+                    }
+                });
+                if (!pendientes.isEmpty())
+                    escribirLote(pendientes, importacion);
+            } catch (UncheckedIOException ex) {
+                // The upload itself broke off; report what was written up to that point.
+                importacion.error(reporte.getFilas() + 1, "Input could not be read: " + ex.getMessage());
+            }
+
+            if (reporte.getCreados() + reporte.getActualizados() > 0) {
+                searchIndex.rebuild();
+                facetIndex.rebuild();
+                catalogoCache.evictProductos();
+            }
+            reporte.setEstado(ProductoImportReport.TERMINADA);
+        } finally {
+            if (ProductoImportReport.EN_CURSO.equals(reporte.getEstado()))
+                reporte.setEstado(ProductoImportReport.INTERRUMPIDA);
+            publicar(reporte, inicio);
+            olvidarTerminadas();
+        }
+        log.info("Import {} finished: {} rows, {} created, {} updated, {} failed in {} ms", reporte.getId(),
+                reporte.getFilas(), reporte.getCreados(), reporte.getActualizados(), reporte.getFallidos(),
+                reporte.getDuracionMs());
+        return reporte;
+    }
+
+    @Override
+    public List<ProductoImportReport> getImportaciones() {
+        return importaciones.values().stream()
+                .sorted(Comparator.comparing(ProductoImportReport::getId).reversed())
+                .toList();
+    }
+
+    @Override
+    public ProductoImportReport getImportacion(UUID id) {
+        ProductoImportReport reporte = importaciones.get(id);
+        if (reporte == null)
+            throw new ResourceNotFoundException("Import not found with id: " + id);
+        return reporte;
+    }
+
+    private void publicar(ProductoImportReport reporte, long inicio) {
+        reporte.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        reporte.setFilasPorSegundo(reporte.getFilas() * 1000 / Math.max(1, reporte.getDuracionMs()));
+        importaciones.put(reporte.getId(), reporte.copia());
+    }
+
+    // UUIDv7 ids sort by start time, so the oldest finished imports go first.
+    private void olvidarTerminadas() {
+        List<UUID> terminadas = importaciones.values().stream()
+                .filter(r -> !ProductoImportReport.EN_CURSO.equals(r.getEstado()))
+                .map(ProductoImportReport::getId)
+                .sorted()
+                .toList();
+        terminadas.subList(0, Math.max(0, terminadas.size() - MAX_TERMINADAS)).forEach(importaciones::remove);
+    }
+
+    private void escribirLote(List<Fila> filas, Importacion importacion) {
+        Map<String, Producto> nuevos = new HashMap<>();
+        List<Fila> validas = new ArrayList<>(filas.size());
+        List<Fila> invalidas = new ArrayList<>();
+        for (Fila fila : filas) {
+            String error = fila.error() != null ? fila.error() : validar(fila.datos(), importacion);
+            if (error == null)
+                validas.add(fila);
+            else
+                invalidas.add(new Fila(fila.numero(), null, error));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(Math.min(filas.size(), 1000));
+                Map<Long, Producto> existentes = new HashMap<>();
+                List<Long> ids = validas.stream().map(fila -> importacion.claves.get(clave(fila.datos())))
+                        .filter(Objects::nonNull).distinct().toList();
+                productoRepository.findAllById(ids).forEach(producto -> existentes.put(producto.getId(), producto));
+
+                for (Fila fila : validas) {
+                    String clave = clave(fila.datos());
+                    Long id = importacion.claves.get(clave);
+                    Producto producto = id != null ? existentes.get(id) : nuevos.get(clave);
+                    if (producto == null) {
+                        producto = new Producto();
+                        aplicar(fila.datos(), producto, importacion);
+                        entityManager.persist(producto);
+                        nuevos.put(clave, producto);
+                    } else {
+                        BigDecimal precioAnterior = producto.getPrecio();
+                        aplicar(fila.datos(), producto, importacion);
+                        // A product created earlier in this chunk has no price to announce yet.
+                        if (id != null && PrecioCambiadoEvento.cambia(precioAnterior, producto.getPrecio()))
+                            outboxPublisher.publicar(OutboxEvento.PRODUCTO, id, OutboxEvento.PRODUCTO_PRECIO_CAMBIADO,
+                                    new PrecioCambiadoEvento(id, precioAnterior, producto.getPrecio()));
+                    }
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Import chunk failed", ex);
+            importacion.reporte.setFilas(importacion.reporte.getFilas() + filas.size());
+            String mensaje = "Chunk not saved: " + NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+            validas.forEach(fila -> importacion.error(fila.numero(), mensaje));
+            invalidas.forEach(fila -> importacion.error(fila.numero(), fila.error()));
+            return;
+        }
+
+        // Count only after commit, and remember new keys so later chunks update them.
+        Map<String, Boolean> vistas = new HashMap<>();
+        for (Fila fila : validas) {
+            String clave = clave(fila.datos());
+            Producto nuevo = nuevos.get(clave);
+            if (nuevo != null && vistas.putIfAbsent(clave, true) == null)
+                importacion.reporte.setCreados(importacion.reporte.getCreados() + 1);
+            else
+                importacion.reporte.setActualizados(importacion.reporte.getActualizados() + 1);
+        }
+        nuevos.forEach((clave, producto) -> importacion.claves.put(clave, producto.getId()));
+        invalidas.forEach(fila -> importacion.error(fila.numero(), fila.error()));
+        importacion.reporte.setFilas(importacion.reporte.getFilas() + filas.size());
+    }
+
+    private static String validar(ProductoImportRow datos, Importacion importacion) {
+        if (datos.getNombre() == null || datos.getNombre().isBlank())
+            return "nombre is required";
+        if (datos.getPrecio() == null || datos.getPrecio().compareTo(BigDecimal.ZERO) < 0)
+            return "precio is required and must not be negative";
+        if (datos.getStock() != null && datos.getStock() < 0)
+            return "stock must not be negative";
+        if (datos.getCategoria() != null && !datos.getCategoria().isBlank()
+                && importacion.categorias.get(datos.getCategoria().trim().toLowerCase(Locale.ROOT)) == null)
+            return "Unknown categoria: " + datos.getCategoria();
+        return null;
+    }
+
+    // Blank columns leave the current value alone on update.
+    private void aplicar(ProductoImportRow datos, Producto producto, Importacion importacion) {
+        producto.setNombre(datos.getNombre().trim());
+        if (datos.getMarca() != null)
+            producto.setMarca(datos.getMarca().trim());
+        producto.setPrecio(datos.getPrecio());
+        if (datos.getDescripcion() != null)
+            producto.setDescripcion(datos.getDescripcion());
+        if (datos.getPrecioAnterior() != null)
+            producto.setPrecioAnterior(datos.getPrecioAnterior());
+        if (datos.getStock() != null)
+            producto.setStock(datos.getStock());
+        if (datos.getImagen() != null)
+            producto.setImagen(datos.getImagen());
+        if (datos.getImagenesAdicionales() != null)
+            producto.setImagenesAdicionales(new ArrayList<>(datos.getImagenesAdicionales()));
+        if (datos.getEsOferta() != null)
+            producto.setEsOferta(datos.getEsOferta());
+        if (datos.getEsNuevo() != null)
+            producto.setEsNuevo(datos.getEsNuevo());
+        if (datos.getEsMasVendido() != null)
+            producto.setEsMasVendido(datos.getEsMasVendido());
+        if (datos.getPuntuacion() != null)
+            producto.setPuntuacion(datos.getPuntuacion());
+        if (datos.getCategoria() != null && !datos.getCategoria().isBlank()) {
+            String categoriaId = importacion.categorias.get(datos.getCategoria().trim().toLowerCase(Locale.ROOT));
+            producto.setCategoria(entityManager.getReference(Categoria.class, categoriaId));
+        }
+    }
+
+    private static String clave(ProductoImportRow datos) {
+        String marca = datos.getMarca() != null ? datos.getMarca().trim() : "";
+        return (datos.getNombre().trim() + "|" + marca).toLowerCase(Locale.ROOT);
+    }
+
+    private Map<String, String> categoriasPorClave() {
+        List<Categoria> todas = categoriaRepository.findAll();
+        Map<String, String> categorias = new HashMap<>();
+        for (Categoria categoria : todas) {
+            if (categoria.getNombre() != null)
+                categorias.put(categoria.getNombre().trim().toLowerCase(Locale.ROOT), categoria.getId());
+        }
+        // Ids win over names when both match.
+        for (Categoria categoria : todas)
+            categorias.put(categoria.getId().toLowerCase(Locale.ROOT), categoria.getId());
+        return categorias;
+    }
+
+    private Map<String, Long> clavesExistentes() {
+        Map<String, Long> claves = new HashMap<>();
+        for (Object[] fila : productoRepository.findClavesNaturales()) {
+            if (fila[1] == null)
+                continue;
+            String marca = fila[2] != null ? ((String) fila[2]).trim() : "";
+            claves.put((((String) fila[1]).trim() + "|" + marca).toLowerCase(Locale.ROOT), (Long) fila[0]);
+        }
+        return claves;
+    }
+
+    private Stream<Fila> filasNdjson(BufferedReader reader) {
+        saltarBom(reader);
+        ObjectReader lector = objectMapper.readerFor(ProductoImportRow.class);
+        long[] numero = {0};
+        return reader.lines()
+                .map(linea -> {
+                    numero[0]++;
+                    if (linea.isBlank())
+                        return null;
+                    try {
+                        return new Fila(numero[0], lector.readValue(linea), null);
+                    } catch (JsonProcessingException ex) {
+                        return new Fila(numero[0], null, "Invalid JSON: " + ex.getOriginalMessage());
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * CSV with a header row naming the columns after {@link ProductoImportRow}'s
+     * fields; imagenesAdicionales are separated by {@code |}.
+     */
+    private Stream<Fila> filasCsv(BufferedReader reader) {
+        saltarBom(reader);
+        CsvReader csv = new CsvReader(reader);
+        List<String> cabecera = leer(csv);
+        if (cabecera == null)
+            return Stream.empty();
+        List<String> columnas = cabecera.stream().map(String::trim).toList();
+        long[] numero = {1};
+        return Stream.generate(() -> leer(csv))
+                .takeWhile(Objects::nonNull)
+                .map(registro -> {
+                    numero[0]++;
+                    if (registro.size() == 1 && registro.get(0).isBlank())
+                        return null;
+                    Map<String, Object> valores = new LinkedHashMap<>();
+                    for (int i = 0; i < columnas.size() && i < registro.size(); i++) {
+                        String valor = registro.get(i).trim();
+                        if (valor.isEmpty())
+                            continue;
+                        valores.put(columnas.get(i), "imagenesAdicionales".equals(columnas.get(i))
+                                ? List.of(valor.split("\\|")) : valor);
+                    }
+                    try {
+                        return new Fila(numero[0], objectMapper.convertValue(valores, ProductoImportRow.class), null);
+                    } catch (IllegalArgumentException ex) {
+                        String detalle = ex.getCause() instanceof JsonProcessingException json
+                                ? json.getOriginalMessage() : ex.getMessage();
+                        return new Fila(numero[0], null, "Invalid value: " + detalle);
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+
+    // Spreadsheet exports often start with a byte order mark, which would otherwise stick to the first column name.
+    private static void saltarBom(BufferedReader reader) {
+        try {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF')
+                reader.reset();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static List<String> leer(CsvReader csv) {
+        try {
+            return csv.next();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static final class Importacion {
+        private final ProductoImportReport reporte;
+        private final Map<String, String> categorias;
+        private final Map<String, Long> claves;
+
+        private Importacion(ProductoImportReport reporte, Map<String, String> categorias, Map<String, Long> claves) {
+            this.reporte = reporte;
+            this.categorias = categorias;
+            this.claves = claves;
+        }
+
+        private void error(long fila, String mensaje) {
+            reporte.setFallidos(reporte.getFallidos() + 1);
+            if (reporte.getErrores().size() < MAX_ERRORES)
+                reporte.getErrores().add(new ProductoImportReport.ErrorFila(fila, mensaje));
+        }
+    }
+}
@@ -1,50 +1,213 @@
 package com.ferreteria.service.impl;
 
+import com.ferreteria.cache.CacheNames;
+import com.ferreteria.cache.CatalogVersions;
+import com.ferreteria.cache.CatalogoCache;
+import com.ferreteria.dto.PageResponse;
+import com.ferreteria.dto.PrecioCambiadoEvento;
+import com.ferreteria.dto.ProductoFacetFilter;
+import com.ferreteria.dto.ProductoFacets;
+import com.ferreteria.dto.ProductoResumen;
+import com.ferreteria.dto.ProductoSearchCriteria;
+import com.ferreteria.entity.Categoria;
+import com.ferreteria.entity.OutboxEvento;
 import com.ferreteria.entity.Producto;
 import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.exception.ServicioSaturadoException;
+import com.ferreteria.outbox.OutboxPublisher;
+import com.ferreteria.repository.CategoriaRepository;
 import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.search.ProductoFacetIndex;
+import com.ferreteria.search.ProductoSearchIndex;
 import com.ferreteria.service.ProductoService;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+
+import static com.ferreteria.repository.ProductoSpecifications.*;
 
 @Service
 @RequiredArgsConstructor
 public class ProductoServiceImpl implements ProductoService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductoRepository productoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final ProductoSearchIndex productoSearchIndex;
+    private final ProductoFacetIndex productoFacetIndex;
+    private final CatalogoCache catalogoCache;
+    private final OutboxPublisher outboxPublisher;
+    private final CacheManager cacheManager;
+    private final CatalogVersions catalogVersions;
 
     @Override
     @Transactional
     public Producto createProducto(Producto producto) {
-        return productoRepository.save(producto);
+        producto.setCategoria(resolveCategoria(producto.getCategoria()));
+        Producto saved = productoRepository.save(producto);
+        productoSearchIndex.index(saved);
+        productoFacetIndex.index(saved);
+        catalogoCache.evictProductos();
+        return saved;
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.PRODUCTO, key = "@catalogVersions.claveProducto(#id)")
     public Producto getProductoById(Long id) {
-        return productoRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Producto not found with id: " + id));
+        return initialize(findProducto(id));
+    }
+
+    // The same entries getProductoById reads and fills. As @Cacheable does, each
+    // key is taken before the load, so a write committed meanwhile moves it.
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Producto> getProductosById(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(CacheNames.PRODUCTO);
+        Map<Long, Producto> productos = new HashMap<>();
+        Map<Long, String> faltan = new HashMap<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            String clave = catalogVersions.claveProducto(id);
+            Producto producto = cache != null ? cache.get(clave, Producto.class) : null;
+            if (producto != null)
+                productos.put(id, producto);
+            else
+                faltan.put(id, clave);
+        }
+        if (!faltan.isEmpty()) {
+            for (Producto producto : initialize(productoRepository.findAllById(faltan.keySet()))) {
+                if (cache != null)
+                    cache.put(faltan.get(producto.getId()), producto);
+                productos.put(producto.getId(), producto);
+            }
+        }
+        return productos;
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.PRODUCTOS, key = "@catalogVersions.clave('productos', 'all')")
     public List<Producto> getAllProductos() {
-        return productoRepository.findAll();
+        return initialize(productoRepository.findAll());
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.PRODUCTOS_POR_CATEGORIA,
+            key = "@catalogVersions.clave('productos', #categoriaId)")
     public List<Producto> getProductosByCategoria(String categoriaId) {
-        return productoRepository.findByCategoriaId(categoriaId);
+        return initialize(productoRepository.findByCategoriaId(categoriaId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.PRODUCTOS_RESUMEN,
+            key = "@catalogVersions.clave('productos', #categoriaId + ':' + #soloOfertas)")
+    public List<ProductoResumen> getProductosResumen(String categoriaId, boolean soloOfertas) {
+        if (soloOfertas) {
+            List<ProductoResumen> ofertas = productoRepository.findResumenOfertas();
+            return StringUtils.hasText(categoriaId)
+                    ? ofertas.stream().filter(p -> categoriaId.equals(p.getCategoriaId())).toList()
+                    : ofertas;
+        }
+        if (StringUtils.hasText(categoriaId))
+            return productoRepository.findResumenByCategoriaId(categoriaId);
+        return productoRepository.findAllResumen();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<Producto> searchProductos(ProductoSearchCriteria criteria) {
+        int page = Math.max(criteria.getPage(), 0);
+        int size = Math.min(Math.max(criteria.getSize(), 1), MAX_PAGE_SIZE);
+        if (StringUtils.hasText(criteria.getTexto()) && productoSearchIndex.isReady()) {
+            // Filtered, sorted and paged in the index: only the page's rows are read.
+            ProductoSearchIndex.Pagina pagina = productoSearchIndex.page(criteria, page, size);
+            int totalPages = (int) ((pagina.total() + size - 1) / size);
+            return new PageResponse<>(enOrden(pagina.ids()), page, size, pagina.total(), totalPages);
+        }
+        Specification<Producto> spec = Specification.where(null);
+        if (StringUtils.hasText(criteria.getCategoriaId()))
+            spec = spec.and(enCategoria(criteria.getCategoriaId()));
+        if (criteria.getMarcas() != null && !criteria.getMarcas().isEmpty())
+            spec = spec.and(deMarcas(criteria.getMarcas()));
+        if (criteria.getPrecioMin() != null)
+            spec = spec.and(precioDesde(criteria.getPrecioMin()));
+        if (criteria.getPrecioMax() != null)
+            spec = spec.and(precioHasta(criteria.getPrecioMax()));
+        // Until the index is built, text is matched in the table.
+        if (StringUtils.hasText(criteria.getTexto()))
+            spec = spec.and(contieneTexto(criteria.getTexto().trim()));
+
+        PageRequest pageRequest = PageRequest.of(page, size, toSort(criteria.getSort()));
+        Page<Producto> resultado = productoRepository.findAll(spec, pageRequest);
+        initialize(resultado.getContent());
+        return PageResponse.of(resultado);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Producto> searchProductosByText(String query, int limit) {
+        List<ProductoSearchIndex.SearchHit> hits = productoSearchIndex.search(query,
+                Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+        return enOrden(hits.stream().map(ProductoSearchIndex.SearchHit::id).toList());
+    }
+
+    // Reads the products and returns them in the order of ids.
+    private List<Producto> enOrden(List<Long> ids) {
+        if (ids.isEmpty())
+            return List.of();
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++)
+            rank.put(ids.get(i), i);
+        return initialize(productoRepository.findAllById(ids)).stream()
+                .sorted(Comparator.comparing(p -> rank.get(p.getId())))
+                .toList();
+    }
+
+    @Override
+    public ProductoFacets getFacets(ProductoFacetFilter filter) {
+        // Before the first build every count would be zero; a client should retry rather than show that.
+        if (!productoFacetIndex.isReady())
+            throw new ServicioSaturadoException("Facets are still being built, try again shortly", 1);
+        return productoFacetIndex.facets(filter);
+    }
+
+    private static Sort toSort(String sort) {
+        Sort byId = Sort.by(Sort.Order.desc("id"));
+        if (sort == null)
+            return byId;
+        return switch (sort) {
+            case "price-asc" -> Sort.by(Sort.Order.asc("precio")).and(byId);
+            case "price-desc" -> Sort.by(Sort.Order.desc("precio")).and(byId);
+            case "top-rated" -> Sort.by(Sort.Order.desc("puntuacion").nullsLast()).and(byId);
+            default -> byId;
+        };
     }
 
     @Override
     @Transactional
     public Producto updateProducto(Long id, Producto details) {
-        Producto producto = getProductoById(id);
+        Producto producto = findProducto(id);
+        BigDecimal precioAnterior = producto.getPrecio();
         producto.setNombre(details.getNombre());
         producto.setDescripcion(details.getDescripcion());
         producto.setPrecio(details.getPrecio());
@@ -56,15 +219,51 @@ public class ProductoServiceImpl implements ProductoService {
         producto.setEsNuevo(details.getEsNuevo());
         producto.setEsMasVendido(details.getEsMasVendido());
         producto.setPuntuacion(details.getPuntuacion());
-        producto.setCategoria(details.getCategoria());
+        producto.setCategoria(resolveCategoria(details.getCategoria()));
         producto.setImagenesAdicionales(details.getImagenesAdicionales());
-        return productoRepository.save(producto);
+        Producto saved = productoRepository.save(producto);
+        productoSearchIndex.index(saved);
+        productoFacetIndex.index(saved);
+        catalogoCache.evictProductos();
+        if (PrecioCambiadoEvento.cambia(precioAnterior, saved.getPrecio()))
+            outboxPublisher.publicar(OutboxEvento.PRODUCTO, id, OutboxEvento.PRODUCTO_PRECIO_CAMBIADO,
+                    new PrecioCambiadoEvento(id, precioAnterior, saved.getPrecio()));
+        return saved;
     }
 
     @Override
     @Transactional
     public void deleteProducto(Long id) {
-        Producto producto = getProductoById(id);
+        Producto producto = findProducto(id);
         productoRepository.delete(producto);
+        productoSearchIndex.remove(id);
+        productoFacetIndex.remove(id);
+        catalogoCache.evictProductos();
+    }
+
+    private Producto findProducto(Long id) {
+        return productoRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Producto not found with id: " + id));
+    }
+
+    // Cached entities outlive their session, and responses are written after it
+    // closes, so lazy collections are loaded up front.
+    private static Producto initialize(Producto producto) {
+        Hibernate.initialize(producto.getImagenesAdicionales());
+        return producto;
+    }
+
+    private static List<Producto> initialize(List<Producto> productos) {
+        productos.forEach(ProductoServiceImpl::initialize);
+        return productos;
+    }
+
+    // The request body only carries the categoria id; load it so the response and
+    // the search index see the real category name.
+    private Categoria resolveCategoria(Categoria categoria) {
+        if (categoria == null || categoria.getId() == null)
+            return categoria;
+        return categoriaRepository.findById(categoria.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Categoria not found with id: " + categoria.getId()));
     }
 }
\ No newline at end of file
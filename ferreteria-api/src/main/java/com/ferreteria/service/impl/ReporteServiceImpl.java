@@ -0,0 +1,74 @@
+package com.ferreteria.service.impl;
+
+import com.ferreteria.dto.VentasPorCategoria;
+import com.ferreteria.dto.VentasPorDia;
+import com.ferreteria.dto.VentasPorProducto;
+import com.ferreteria.report.VentasRollup;
+import com.ferreteria.repository.VentaDiariaCategoriaRepository;
+import com.ferreteria.repository.VentaDiariaProductoRepository;
+import com.ferreteria.service.ReporteService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales reports answered from the daily rollup tables, so a date range costs
+ * one row per day (or per product-day) instead of a scan of every order line.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReporteServiceImpl implements ReporteService {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final VentaDiariaCategoriaRepository ventaDiariaCategoriaRepository;
+    private final VentaDiariaProductoRepository ventaDiariaProductoRepository;
+    private final VentasRollup ventasRollup;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentasPorDia> getVentasPorDia(LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        return ventaDiariaCategoriaRepository.findPorDia(desde, hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentasPorCategoria> getVentasPorCategoria(LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        return ventaDiariaCategoriaRepository.findPorCategoria(desde, hasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentasPorProducto> getTopProductos(LocalDate desde, LocalDate hasta, int limit) {
+        validarRango(desde, hasta);
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ventaDiariaProductoRepository.findTopProductos(desde, hasta, PageRequest.of(0, size));
+    }
+
+    // Without a range the whole order history is rebuilt.
+    @Override
+    @Transactional
+    public int rebuildVentas(LocalDate desde, LocalDate hasta) {
+        if (desde == null)
+            desde = jdbcTemplate.queryForObject("SELECT MIN(fecha) FROM pedidos", LocalDate.class);
+        if (hasta == null)
+            hasta = jdbcTemplate.queryForObject("SELECT MAX(fecha) FROM pedidos", LocalDate.class);
+        if (desde == null || hasta == null)
+            return 0;
+        validarRango(desde, hasta);
+        return ventasRollup.rebuild(desde, hasta);
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta))
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+    }
+}
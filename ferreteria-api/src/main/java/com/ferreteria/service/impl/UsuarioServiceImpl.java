@@ -1,35 +1,55 @@
 package com.ferreteria.service.impl;
 
+import com.ferreteria.dto.CursorPage;
 import com.ferreteria.dto.LoginRequest;
+import com.ferreteria.dto.LoginResponse;
 import com.ferreteria.entity.Usuario;
 import com.ferreteria.exception.ResourceNotFoundException;
 import com.ferreteria.repository.UsuarioRepository;
+import com.ferreteria.security.PasswordHasher;
+import com.ferreteria.security.TokenClaims;
+import com.ferreteria.security.TokenClaims.TipoToken;
+import com.ferreteria.security.TokenService;
+import com.ferreteria.security.UsuarioActual;
 import com.ferreteria.service.UsuarioService;
+import com.ferreteria.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class UsuarioServiceImpl implements UsuarioService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UsuarioRepository usuarioRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final TokenService tokenService;
 
+    // Not transactional: no connection is held while the password waits for the hashing pool.
     @Override
-    @Transactional
     public Usuario createUsuario(Usuario usuario) {
+        if (TokenClaims.ADMIN.equals(usuario.getRol()) && !UsuarioActual.esAdmin())
+            throw new AccessDeniedException("Only an admin can create admin users");
+        // Signup is open: an id in the body would make save() merge over that account.
+        usuario.setId(null);
         // Encrypt password before saving
-        usuario.setContrasena(passwordEncoder.encode(usuario.getContrasena()));
+        usuario.setContrasena(passwordHasher.encode(usuario.getContrasena()));
         return usuarioRepository.save(usuario);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Usuario getUsuarioById(String id) {
+    public Usuario getUsuarioById(UUID id) {
         return usuarioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario not found with id: " + id));
     }
@@ -41,16 +61,49 @@ public class UsuarioServiceImpl implements UsuarioService {
     }
 
     @Override
-    @Transactional
-    public Usuario updateUsuario(String id, Usuario details) {
+    @Transactional(readOnly = true)
+    public CursorPage<Usuario> getUsuariosPage(String cursor, int size) {
+        int limite = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // One extra row tells whether there is a next page.
+        PageRequest pagina = PageRequest.of(0, limite + 1);
+        List<Usuario> usuarios;
+        if (!StringUtils.hasText(cursor)) {
+            usuarios = usuarioRepository.findPagina(pagina);
+        } else {
+            String[] clave = KeysetCursor.decode(cursor, 2);
+            UUID id;
+            try {
+                id = UUID.fromString(clave[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            usuarios = clave[0] == null
+                    ? usuarioRepository.findPaginaDespuesDeSinNombre(id, pagina)
+                    : usuarioRepository.findPaginaDespuesDe(clave[0], id, pagina);
+        }
+        String siguiente = null;
+        if (usuarios.size() > limite) {
+            usuarios = usuarios.subList(0, limite);
+            Usuario ultimo = usuarios.get(limite - 1);
+            siguiente = KeysetCursor.encode(ultimo.getNombre(), ultimo.getId());
+        }
+        return new CursorPage<>(usuarios, limite, siguiente);
+    }
+
+    // Not transactional either: the read and the save each take a connection
+    // briefly, and none is held while a new password is hashed.
+    @Override
+    public Usuario updateUsuario(UUID id, Usuario details) {
         Usuario usuario = getUsuarioById(id);
         usuario.setNombre(details.getNombre());
         usuario.setEmail(details.getEmail());
+        if (!Objects.equals(usuario.getRol(), details.getRol()) && !UsuarioActual.esAdmin())
+            throw new AccessDeniedException("Only an admin can change a user's rol");
         usuario.setRol(details.getRol());
 
         // Only update password if provided and different (basic logic, can be refined)
         if (details.getContrasena() != null && !details.getContrasena().isBlank()) {
-            usuario.setContrasena(passwordEncoder.encode(details.getContrasena()));
+            usuario.setContrasena(passwordHasher.encode(details.getContrasena()));
         }
 
         return usuarioRepository.save(usuario);
@@ -58,21 +111,41 @@ public class UsuarioServiceImpl implements UsuarioService {
 
     @Override
     @Transactional
-    public void deleteUsuario(String id) {
+    public void deleteUsuario(UUID id) {
         Usuario usuario = getUsuarioById(id);
         usuarioRepository.delete(usuario);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public Usuario login(LoginRequest loginRequest) {
+    public LoginResponse login(LoginRequest loginRequest) {
         Usuario usuario = usuarioRepository.findByEmail(loginRequest.getEmail())
                 .orElseThrow(() -> new ResourceNotFoundException("Email o contraseña incorrectos"));
 
-        if (!passwordEncoder.matches(loginRequest.getContrasena(), usuario.getContrasena())) {
+        if (!passwordHasher.matches(loginRequest.getContrasena(), usuario.getContrasena())) {
             throw new ResourceNotFoundException("Email o contraseña incorrectos");
         }
 
-        return usuario;
+        return emitirTokens(usuario);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LoginResponse refresh(String refreshToken) {
+        if (!StringUtils.hasText(refreshToken))
+            throw new BadCredentialsException("Missing refresh token");
+        TokenClaims claims = tokenService.verificar(refreshToken, TipoToken.REFRESH);
+        // Only lookup in the token's lifetime: picks up a changed rol or a deleted account.
+        Usuario usuario = usuarioRepository.findById(claims.usuarioId())
+                .orElseThrow(() -> new BadCredentialsException("Invalid token"));
+        return emitirTokens(usuario);
+    }
+
+    private LoginResponse emitirTokens(Usuario usuario) {
+        return LoginResponse.builder()
+                .usuario(usuario)
+                .accessToken(tokenService.emitirAccess(usuario.getId(), usuario.getRol()))
+                .refreshToken(tokenService.emitirRefresh(usuario.getId(), usuario.getRol()))
+                .expiresIn(tokenService.getAccessTtl().toSeconds())
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.ferreteria.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, double-quoted fields
+ * with {@code ""} escapes and embedded line breaks. Reads one record at a
+ * time, so the input is never held in memory as a whole.
+ */
+public class CsvReader {
+
+    private final Reader reader;
+    private int pendiente = -2;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** The next record, or {@code null} at the end of the input. */
+    public List<String> next() throws IOException {
+        int c = read();
+        if (c == -1)
+            return null;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1)
+                    throw new IOException("Unterminated quoted field");
+                if (c == '"') {
+                    int siguiente = read();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = siguiente;
+                        continue;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int siguiente = read();
+                    if (siguiente != '\n')
+                        pendiente = siguiente;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else {
+                campo.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pendiente != -2) {
+            int c = pendiente;
+            pendiente = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,46 @@
+package com.ferreteria.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the sort key of the last row returned,
+ * base64url-encoded. Clients hand it back unchanged; a token that cannot be
+ * decoded into the expected number of parts is rejected as a bad request.
+ * Null parts round-trip as null.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARADOR = "\u0000";
+    private static final String NULO = "\u0001";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Object... partes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < partes.length; i++) {
+            if (i > 0)
+                sb.append(SEPARADOR);
+            sb.append(partes[i] != null ? partes[i] : NULO);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int partes) {
+        try {
+            String[] valores = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARADOR, -1);
+            if (valores.length == partes) {
+                for (int i = 0; i < valores.length; i++) {
+                    if (NULO.equals(valores[i]))
+                        valores[i] = null;
+                }
+                return valores;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
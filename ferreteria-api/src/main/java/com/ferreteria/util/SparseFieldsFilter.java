@@ -0,0 +1,59 @@
+package com.ferreteria.util;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.util.Set;
+
+/**
+ * Jackson filter behind the {@code fields=} query parameter. Requested names are
+ * dotted paths relative to the returned entity ("nombre", "detalles.cantidad",
+ * "usuario.email"); naming an object keeps all of it, naming a nested field
+ * keeps only the objects on the way to it. Wrappers without the filter, such as
+ * PageResponse, do not add a path segment.
+ */
+public class SparseFieldsFilter extends SimpleBeanPropertyFilter {
+
+    public static final String ID = "camposFilter";
+
+    private final Set<String> fields;
+
+    public SparseFieldsFilter(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer)
+            throws Exception {
+        if (include(pathOf(jgen.getOutputContext(), writer.getName())))
+            writer.serializeAsField(pojo, jgen, provider);
+        else if (!jgen.canOmitFields())
+            writer.serializeAsOmittedField(pojo, jgen, provider);
+    }
+
+    private boolean include(String path) {
+        for (String field : fields) {
+            if (field.equals(path) || field.startsWith(path + ".") || path.startsWith(field + "."))
+                return true;
+        }
+        return false;
+    }
+
+    private static String pathOf(JsonStreamContext context, String name) {
+        StringBuilder path = new StringBuilder(name);
+        for (JsonStreamContext ctx = context.getParent(); ctx != null; ctx = ctx.getParent()) {
+            if (ctx.inObject() && ctx.getCurrentName() != null && isFiltered(ctx.getCurrentValue()))
+                path.insert(0, ctx.getCurrentName() + ".");
+        }
+        return path.toString();
+    }
+
+    private static boolean isFiltered(Object value) {
+        return value != null && AnnotationUtils.findAnnotation(value.getClass(), JsonFilter.class) != null;
+    }
+}
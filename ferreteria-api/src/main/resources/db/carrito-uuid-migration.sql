@@ -0,0 +1,14 @@
+-- Replaces the BIGINT ids of carritos with BINARY(16) UUIDs (MySQL 8).
+--
+-- Run once with the application stopped (it flushes pending cart edits on
+-- shutdown), before starting the version that assigns cart line ids as
+-- UUIDv7. Nothing references carritos.id, so existing lines simply get new
+-- ids; clients only see them on their next cart read.
+
+ALTER TABLE carritos ADD COLUMN id_bin BINARY(16);
+UPDATE carritos SET id_bin = UUID_TO_BIN(UUID(), 1);
+ALTER TABLE carritos
+    DROP PRIMARY KEY,
+    DROP COLUMN id,
+    CHANGE id_bin id BINARY(16) NOT NULL,
+    ADD PRIMARY KEY (id);
@@ -0,0 +1,12 @@
+-- Fills detalle_pedidos.categoria_id for order lines written before the
+-- column existed (MySQL 8).
+--
+-- Run once after the first start of the version that records the category on
+-- each line (ddl-auto adds the column). The original category of old lines is
+-- not known, so they take their product's current one; that is what the sales
+-- rollup assumed for them until now, so the report totals do not change.
+
+UPDATE detalle_pedidos d
+    JOIN productos p ON p.id = d.producto_id
+SET d.categoria_id = p.categoria_id
+WHERE d.categoria_id IS NULL;
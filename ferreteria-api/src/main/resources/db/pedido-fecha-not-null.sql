@@ -0,0 +1,16 @@
+-- Makes pedidos.fecha NOT NULL (MySQL 8).
+--
+-- The order pages sort and page by (fecha, id), and a row with a null fecha
+-- produced a cursor that restarted the listing from the first page. Run once
+-- before starting the version that maps fecha as non-null; ddl-auto does not
+-- tighten existing columns. Orders without a fecha take the creation time in
+-- their UUIDv7 id (version nibble 7); older random ids fall back to the day
+-- the script runs.
+
+UPDATE pedidos
+SET fecha = IF(SUBSTRING(HEX(id), 13, 1) = '7',
+               DATE(FROM_UNIXTIME(CONV(LEFT(HEX(id), 12), 16, 10) / 1000)),
+               CURDATE())
+WHERE fecha IS NULL;
+
+ALTER TABLE pedidos MODIFY fecha DATE NOT NULL;
@@ -0,0 +1,68 @@
+-- Converts the ids of usuarios, admins and pedidos, and every column that
+-- references them, from VARCHAR(36) text to BINARY(16) (MySQL 8).
+--
+-- Run once with the application stopped, before starting the version that maps
+-- these ids as java.util.UUID. Existing ids keep their value; only the storage
+-- changes, so URLs and client data holding the old string form stay valid.
+-- Hibernate (ddl-auto: update) recreates the foreign keys on the next start.
+
+-- 1. Drop the foreign keys on the columns being converted.
+DROP PROCEDURE IF EXISTS drop_uuid_fks;
+DELIMITER //
+CREATE PROCEDURE drop_uuid_fks()
+BEGIN
+    DECLARE done INT DEFAULT FALSE;
+    DECLARE tabla VARCHAR(64);
+    DECLARE fk VARCHAR(64);
+    DECLARE cur CURSOR FOR
+        SELECT TABLE_NAME, CONSTRAINT_NAME
+        FROM information_schema.KEY_COLUMN_USAGE
+        WHERE TABLE_SCHEMA = DATABASE()
+          AND REFERENCED_TABLE_NAME IN ('usuarios', 'admins', 'pedidos');
+    DECLARE CONTINUE HANDLER FOR NOT FOUND SET done = TRUE;
+    OPEN cur;
+    leer: LOOP
+        FETCH cur INTO tabla, fk;
+        IF done THEN
+            LEAVE leer;
+        END IF;
+        SET @sql = CONCAT('ALTER TABLE `', tabla, '` DROP FOREIGN KEY `', fk, '`');
+        PREPARE stmt FROM @sql;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END LOOP;
+    CLOSE cur;
+END //
+DELIMITER ;
+CALL drop_uuid_fks();
+DROP PROCEDURE drop_uuid_fks;
+
+-- 2. Primary keys.
+ALTER TABLE usuarios ADD COLUMN id_bin BINARY(16);
+UPDATE usuarios SET id_bin = UUID_TO_BIN(id);
+ALTER TABLE usuarios DROP PRIMARY KEY, DROP COLUMN id,
+    CHANGE id_bin id BINARY(16) NOT NULL, ADD PRIMARY KEY (id);
+
+ALTER TABLE admins ADD COLUMN id_bin BINARY(16);
+UPDATE admins SET id_bin = UUID_TO_BIN(id);
+ALTER TABLE admins DROP PRIMARY KEY, DROP COLUMN id,
+    CHANGE id_bin id BINARY(16) NOT NULL, ADD PRIMARY KEY (id);
+
+ALTER TABLE pedidos ADD COLUMN id_bin BINARY(16);
+UPDATE pedidos SET id_bin = UUID_TO_BIN(id);
+ALTER TABLE pedidos DROP PRIMARY KEY, DROP COLUMN id,
+    CHANGE id_bin id BINARY(16) NOT NULL, ADD PRIMARY KEY (id);
+
+-- 3. Foreign key columns. Indexes on the old columns go away with them;
+--    Hibernate adds the ones it needs when it recreates the constraints.
+ALTER TABLE pedidos ADD COLUMN usuario_id_bin BINARY(16);
+UPDATE pedidos SET usuario_id_bin = UUID_TO_BIN(usuario_id) WHERE usuario_id IS NOT NULL;
+ALTER TABLE pedidos DROP COLUMN usuario_id, CHANGE usuario_id_bin usuario_id BINARY(16);
+
+ALTER TABLE carritos ADD COLUMN usuario_id_bin BINARY(16);
+UPDATE carritos SET usuario_id_bin = UUID_TO_BIN(usuario_id) WHERE usuario_id IS NOT NULL;
+ALTER TABLE carritos DROP COLUMN usuario_id, CHANGE usuario_id_bin usuario_id BINARY(16);
+
+ALTER TABLE detalle_pedidos ADD COLUMN pedido_id_bin BINARY(16);
+UPDATE detalle_pedidos SET pedido_id_bin = UUID_TO_BIN(pedido_id) WHERE pedido_id IS NOT NULL;
+ALTER TABLE detalle_pedidos DROP COLUMN pedido_id, CHANGE pedido_id_bin pedido_id BINARY(16);
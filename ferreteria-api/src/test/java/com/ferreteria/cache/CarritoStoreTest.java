@@ -0,0 +1,180 @@
+package com.ferreteria.cache;
+
+import com.ferreteria.entity.Carrito;
+import com.ferreteria.exception.ResourceNotFoundException;
+import com.ferreteria.support.IntegracionTest;
+import com.ferreteria.util.UuidV7;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Write-behind paths of the cart store against the real table. The test
+ * profile pushes the scheduled flush out of the way, so each test decides when
+ * carts are written; clean carts expire on every flush, and a cart is dropped
+ * after three failed flushes.
+ */
+class CarritoStoreTest extends IntegracionTest {
+
+    // Makes the writes of a cart with a large quantity fail, as a broken row would.
+    private static final String CHECK_CANTIDAD = "ALTER TABLE carritos ADD CONSTRAINT chk_cantidad_test CHECK (cantidad < 1000)";
+    private static final String SIN_CHECK_CANTIDAD = "ALTER TABLE carritos DROP CONSTRAINT IF EXISTS chk_cantidad_test";
+
+    @Autowired
+    private CarritoStore carritoStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void flushEscribeLasLineasPendientes() {
+        UUID usuario = usuario().getId();
+        Long martillo = producto("Martillo").getId();
+        carritoStore.agregar(usuario, martillo, 2);
+        carritoStore.agregar(usuario, martillo, 1);
+
+        assertThat(filas(usuario)).isEmpty();
+        carritoStore.flush();
+
+        assertThat(filas(usuario)).containsExactly(Map.entry(martillo, 3));
+    }
+
+    @Test
+    void unCarritoQueFallaNoFrenaALosDemasYSeReintenta() {
+        UUID roto = usuario().getId();
+        UUID sano = usuario().getId();
+        Long clavo = producto("Clavo").getId();
+        carritoStore.agregar(roto, clavo, 5000);
+        carritoStore.agregar(sano, clavo, 4);
+
+        jdbcTemplate.execute(CHECK_CANTIDAD);
+        try {
+            carritoStore.flush();
+        } finally {
+            jdbcTemplate.execute(SIN_CHECK_CANTIDAD);
+        }
+        assertThat(filas(sano)).containsExactly(Map.entry(clavo, 4));
+        assertThat(filas(roto)).isEmpty();
+
+        // The failed write was marked pending again (and the dirty cart was not expired).
+        carritoStore.flush();
+        assertThat(filas(roto)).containsExactly(Map.entry(clavo, 5000));
+    }
+
+    @Test
+    void unCarritoQueFallaDemasiadasVecesSeDescarta() {
+        UUID usuario = usuario().getId();
+        Long tornillo = producto("Tornillo").getId();
+        carritoStore.agregar(usuario, tornillo, 5000);
+
+        jdbcTemplate.execute(CHECK_CANTIDAD);
+        try {
+            for (int i = 0; i < 3; i++)
+                carritoStore.flush();
+        } finally {
+            jdbcTemplate.execute(SIN_CHECK_CANTIDAD);
+        }
+        carritoStore.flush();
+
+        assertThat(filas(usuario)).isEmpty();
+        assertThat(carritoStore.getCarrito(usuario)).isEmpty();
+    }
+
+    @Test
+    void lasLineasDeProductosBorradosSeDescartanAntesDeEscribir() {
+        UUID usuario = usuario().getId();
+        Long borrado = producto("Taladro").getId();
+        Long vigente = producto("Broca").getId();
+        carritoStore.agregar(usuario, borrado, 1);
+        carritoStore.agregar(usuario, vigente, 2);
+
+        productoRepository.deleteById(borrado);
+        carritoStore.flush();
+
+        assertThat(filas(usuario)).containsExactly(Map.entry(vigente, 2));
+        assertThat(carritoStore.getCarrito(usuario)).extracting(c -> c.getProducto().getId())
+                .containsExactly(vigente);
+    }
+
+    @Test
+    void elCarritoDeUnUsuarioBorradoSeDescarta() {
+        UUID usuario = usuario().getId();
+        Long lija = producto("Lija").getId();
+        carritoStore.agregar(usuario, lija, 1);
+
+        usuarioRepository.deleteById(usuario);
+        carritoStore.flush();
+
+        assertThat(filas(usuario)).isEmpty();
+        assertThatThrownBy(() -> carritoStore.getCarrito(usuario)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void unCarritoLimpioExpiraYSeRecargaDeLaTabla() {
+        UUID usuario = usuario().getId();
+        Long pinza = producto("Pinza").getId();
+        carritoStore.agregar(usuario, pinza, 1);
+        carritoStore.flush();
+
+        // Only visible once the cart has left memory and is read again.
+        jdbcTemplate.update("UPDATE carritos SET cantidad = 7 WHERE usuario_id = ?", (Object) UuidV7.toBytes(usuario));
+
+        assertThat(carritoStore.getCarrito(usuario)).extracting(Carrito::getCantidad).containsExactly(7);
+    }
+
+    @Test
+    void reemplazarEscribeLaDiferenciaSinEsperarAlFlush() {
+        UUID usuario = usuario().getId();
+        Long sierra = producto("Sierra").getId();
+        Long nivel = producto("Nivel").getId();
+
+        carritoStore.reemplazar(usuario, Map.of(sierra, 2, nivel, 3));
+        assertThat(filas(usuario)).containsOnly(Map.entry(sierra, 2), Map.entry(nivel, 3));
+
+        List<Carrito> carrito = carritoStore.reemplazar(usuario, Map.of(nivel, 1));
+        assertThat(filas(usuario)).containsExactly(Map.entry(nivel, 1));
+        assertThat(carrito).extracting(Carrito::getCantidad).containsExactly(1);
+    }
+
+    @Test
+    void losProductosDeUnCarritoSeLeenJuntos() {
+        UUID usuario = usuario().getId();
+        for (int i = 0; i < 5; i++)
+            carritoStore.agregar(usuario, producto("Llave " + i).getId(), 1);
+        catalogoCache.evictProductos();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        assertThat(carritoStore.getCarrito(usuario)).hasSize(5);
+        // The products, then their images in one batch.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        assertThat(carritoStore.getCarrito(usuario)).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    private Map<Long, Integer> filas(UUID usuario) {
+        Map<Long, Integer> filas = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT producto_id, cantidad FROM carritos WHERE usuario_id = ? ORDER BY producto_id",
+                rs -> { filas.put(rs.getLong(1), rs.getInt(2)); }, (Object) UuidV7.toBytes(usuario));
+        return filas;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ferreteria.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogoCacheTest {
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager();
+    private final CatalogVersions catalogVersions = new CatalogVersions();
+    private final CatalogoCache catalogoCache = new CatalogoCache(cacheManager, catalogVersions);
+
+    @Test
+    void unPedidoSoloInvalidaLosProductosQueToca() {
+        String martillo = catalogVersions.claveProducto(1L);
+        String clavo = catalogVersions.claveProducto(2L);
+        String lista = catalogVersions.clave(CatalogVersions.PRODUCTOS, "all");
+        cache(CacheNames.PRODUCTO).put(martillo, "martillo");
+        cache(CacheNames.PRODUCTO).put(clavo, "clavo");
+        cache(CacheNames.PRODUCTOS).put(lista, "lista");
+        String etagListas = catalogVersions.etag(CatalogVersions.PRODUCTOS);
+        String etagMartillo = catalogVersions.etagProducto(1L);
+        String etagClavo = catalogVersions.etagProducto(2L);
+
+        catalogoCache.evictStock(List.of(1L));
+
+        assertThat(catalogVersions.claveProducto(1L)).isNotEqualTo(martillo);
+        assertThat(cache(CacheNames.PRODUCTO).get(martillo)).isNull();
+        assertThat(catalogVersions.claveProducto(2L)).isEqualTo(clavo);
+        assertThat(cache(CacheNames.PRODUCTO).get(clavo)).isNotNull();
+        assertThat(catalogVersions.clave(CatalogVersions.PRODUCTOS, "all")).isEqualTo(lista);
+        assertThat(cache(CacheNames.PRODUCTOS).get(lista)).isNotNull();
+        assertThat(catalogVersions.etagProducto(1L)).isNotEqualTo(etagMartillo);
+        assertThat(catalogVersions.etagProducto(2L)).isEqualTo(etagClavo);
+        assertThat(catalogVersions.etag(CatalogVersions.PRODUCTOS)).isEqualTo(etagListas);
+    }
+
+    @Test
+    void lasListasSeRefrescanUnaVezPorIntervalo() {
+        long version = catalogVersions.current(CatalogVersions.PRODUCTOS);
+        catalogoCache.refrescarStock();
+        assertThat(catalogVersions.current(CatalogVersions.PRODUCTOS)).isEqualTo(version);
+
+        String lista = catalogVersions.clave(CatalogVersions.PRODUCTOS, "all");
+        cache(CacheNames.PRODUCTOS).put(lista, "lista");
+        catalogoCache.evictStock(List.of(1L));
+        catalogoCache.evictStock(List.of(2L));
+        catalogoCache.refrescarStock();
+
+        assertThat(cache(CacheNames.PRODUCTOS).get(lista)).isNull();
+        assertThat(catalogVersions.clave(CatalogVersions.PRODUCTOS, "all")).isNotEqualTo(lista);
+        assertThat(catalogVersions.current(CatalogVersions.PRODUCTOS)).isEqualTo(version + 1);
+    }
+
+    @Test
+    void unaLecturaEmpezadaAntesDelCambioNoDejaLaFilaViejaALaVista() {
+        // A cache miss takes its key, then loads the row the writer is about to change.
+        String producto = catalogVersions.claveProducto(1L);
+        String lista = catalogVersions.clave(CatalogVersions.PRODUCTOS, "all");
+        String categorias = catalogVersions.clave(CatalogVersions.CATEGORIAS, "all");
+
+        // The writer commits and invalidates while that load is still running.
+        catalogoCache.evictProductos();
+        catalogoCache.evictCategorias();
+
+        // The load finishes and stores what it read.
+        cache(CacheNames.PRODUCTO).put(producto, "viejo");
+        cache(CacheNames.PRODUCTOS).put(lista, "vieja");
+        cache(CacheNames.CATEGORIAS).put(categorias, "vieja");
+
+        assertThat(cache(CacheNames.PRODUCTO).get(catalogVersions.claveProducto(1L))).isNull();
+        assertThat(cache(CacheNames.PRODUCTOS).get(catalogVersions.clave(CatalogVersions.PRODUCTOS, "all"))).isNull();
+        assertThat(cache(CacheNames.CATEGORIAS).get(catalogVersions.clave(CatalogVersions.CATEGORIAS, "all")))
+                .isNull();
+    }
+
+    @Test
+    void unPedidoDuranteLaCargaDeUnProductoNoDejaSuStockViejo() {
+        String producto = catalogVersions.claveProducto(1L);
+
+        catalogoCache.evictStock(List.of(1L));
+        cache(CacheNames.PRODUCTO).put(producto, "stock viejo");
+
+        assertThat(cache(CacheNames.PRODUCTO).get(catalogVersions.claveProducto(1L))).isNull();
+    }
+
+    @Test
+    void cambiarUnaCategoriaInvalidaLosProductosQueLaLlevan() {
+        String producto = catalogVersions.claveProducto(1L);
+        String porCategoria = catalogVersions.clave(CatalogVersions.PRODUCTOS, "herramientas");
+        cache(CacheNames.PRODUCTO).put(producto, "martillo");
+        cache(CacheNames.PRODUCTOS_POR_CATEGORIA).put(porCategoria, "lista");
+
+        catalogoCache.evictCategoria();
+
+        assertThat(catalogVersions.claveProducto(1L)).isNotEqualTo(producto);
+        assertThat(catalogVersions.clave(CatalogVersions.PRODUCTOS, "herramientas")).isNotEqualTo(porCategoria);
+        assertThat(cache(CacheNames.PRODUCTO).get(producto)).isNull();
+        assertThat(cache(CacheNames.PRODUCTOS_POR_CATEGORIA).get(porCategoria)).isNull();
+    }
+
+    private Cache cache(String nombre) {
+        return cacheManager.getCache(nombre);
+    }
+}
@@ -0,0 +1,135 @@
+package com.ferreteria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The limiter over a fake pool that, like Hikari, makes a caller wait for a
+ * free connection and gives up after a timeout.
+ */
+class ConnectionLimitingDataSourceTest {
+
+    private static final Duration ESPERA = Duration.ofMillis(300);
+
+    @Test
+    void unaConexionAnidadaDelMismoHiloNoPideOtroPermiso() throws Exception {
+        ConnectionLimitingDataSource limitado = new ConnectionLimitingDataSource(pool(2), 1, ESPERA);
+
+        Connection transaccion = limitado.getConnection();
+        // Hibernate's isolated *_seq allocation, while the transaction keeps its connection.
+        Connection secuencia = limitado.getConnection();
+        assertThat(limitado.getDisponibles()).isZero();
+
+        secuencia.close();
+        assertThat(limitado.getDisponibles()).isZero();
+        transaccion.close();
+        transaccion.close();
+        assertThat(limitado.getDisponibles()).isEqualTo(1);
+    }
+
+    @Test
+    void otroHiloEsperaSuPermisoYSeRindeTrasLaEspera() throws Exception {
+        ConnectionLimitingDataSource limitado = new ConnectionLimitingDataSource(pool(2), 1, ESPERA);
+
+        try (Connection ignored = limitado.getConnection()) {
+            CompletableFuture<Connection> otro = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return limitado.getConnection();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThatThrownBy(() -> otro.get(5, TimeUnit.SECONDS))
+                    .hasRootCauseInstanceOf(SQLTransientConnectionException.class);
+        }
+        assertThat(limitado.getDisponibles()).isEqualTo(1);
+    }
+
+    @Test
+    void todosLosTitularesPuedenAbrirSuConexionAnidadaALaVez() throws Exception {
+        int pool = 4;
+        HikariDataSource hikari = new HikariDataSource();
+        hikari.setMaximumPoolSize(pool);
+        int permisos = VirtualThreadsConfig.permisos(new MockEnvironment(), hikari);
+        ConnectionLimitingDataSource limitado = new ConnectionLimitingDataSource(pool(pool), permisos, ESPERA);
+
+        // Every permit holder has its transaction open before any asks for a second connection.
+        CyclicBarrier todosDentro = new CyclicBarrier(permisos);
+        ExecutorService executor = Executors.newFixedThreadPool(permisos);
+        List<CompletableFuture<Void>> titulares = new ArrayList<>();
+        for (int i = 0; i < permisos; i++)
+            titulares.add(CompletableFuture.runAsync(() -> {
+                try (Connection transaccion = limitado.getConnection()) {
+                    todosDentro.await(5, TimeUnit.SECONDS);
+                    try (Connection secuencia = limitado.getConnection()) {
+                        Thread.sleep(50);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor));
+
+        try {
+            CompletableFuture.allOf(titulares.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(limitado.getDisponibles()).isEqualTo(permisos);
+    }
+
+    @Test
+    void losPermisosQuedanPorDebajoDelPool() {
+        HikariDataSource hikari = new HikariDataSource();
+        assertThat(VirtualThreadsConfig.permisos(new MockEnvironment(), hikari)).isEqualTo(8);
+
+        hikari.setMaximumPoolSize(20);
+        assertThat(VirtualThreadsConfig.permisos(new MockEnvironment(), hikari)).isEqualTo(18);
+        assertThat(VirtualThreadsConfig.permisos(entorno("db-permits", "12"), hikari)).isEqualTo(12);
+        assertThat(VirtualThreadsConfig.permisos(entorno("db-permits", "20"), hikari)).isEqualTo(19);
+        assertThat(VirtualThreadsConfig.permisos(entorno("db-headroom", "5"), hikari)).isEqualTo(15);
+
+        hikari.setMaximumPoolSize(2);
+        assertThat(VirtualThreadsConfig.permisos(new MockEnvironment(), hikari)).isEqualTo(1);
+    }
+
+    private static MockEnvironment entorno(String propiedad, String valor) {
+        return new MockEnvironment().withProperty("ferreteria.virtual-threads." + propiedad, valor);
+    }
+
+    // A pool of n connections that waits up to ESPERA for one to be returned.
+    private static DataSource pool(int conexiones) throws SQLException {
+        Semaphore libres = new Semaphore(conexiones, true);
+        DataSource pool = mock(DataSource.class);
+        doAnswer(invocation -> {
+            if (!libres.tryAcquire(ESPERA.toMillis(), TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException("Pool exhausted");
+            Connection connection = mock(Connection.class);
+            doAnswer(cierre -> {
+                libres.release();
+                return null;
+            }).when(connection).close();
+            return connection;
+        }).when(pool).getConnection();
+        return pool;
+    }
+}
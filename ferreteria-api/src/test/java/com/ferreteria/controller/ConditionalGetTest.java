@@ -0,0 +1,117 @@
+package com.ferreteria.controller;
+
+import com.ferreteria.entity.Producto;
+import com.ferreteria.service.PedidoService;
+import com.ferreteria.service.ProductoService;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Catalog GETs through the real controllers: a client holding the current tag
+ * gets an empty 304, and any write that changes what the GET returns makes the
+ * old tag stale.
+ */
+class ConditionalGetTest extends IntegracionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Test
+    void conLaEtiquetaVigenteRespondeNotModifiedSinCuerpo() throws Exception {
+        Producto producto = producto("Serrucho");
+        String etag = etag("/api/productos/" + producto.getId());
+
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        // A proxy may weaken the tag, and a client may send several.
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()).header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/productos/{id}", producto.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"otra\", " + etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void cambiarElProductoInvalidaSuEtiquetaYLaDeLaLista() throws Exception {
+        Producto producto = producto("Serrucho");
+        String etagProducto = etag("/api/productos/" + producto.getId());
+        String etagLista = etag("/api/productos");
+
+        Producto cambios = productoService.getProductoById(producto.getId());
+        cambios.setPrecio(new BigDecimal("12.50"));
+        productoService.updateProducto(producto.getId(), cambios);
+
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()).header(HttpHeaders.IF_NONE_MATCH, etagProducto))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.precio").value(12.50));
+        mockMvc.perform(get("/api/productos").header(HttpHeaders.IF_NONE_MATCH, etagLista))
+                .andExpect(status().isOk());
+        assertThat(etag("/api/productos/" + producto.getId())).isNotEqualTo(etagProducto);
+    }
+
+    @Test
+    void unPedidoCambiaLaEtiquetaDelProductoPeroNoLaDeLaLista() throws Exception {
+        Producto producto = producto("Serrucho");
+        Producto otro = producto("Lija");
+        String etagProducto = etag("/api/productos/" + producto.getId());
+        String etagOtro = etag("/api/productos/" + otro.getId());
+        String etagLista = etag("/api/productos");
+
+        pedidoService.createPedido(pedido(usuario(), linea(producto, 2)));
+
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()).header(HttpHeaders.IF_NONE_MATCH, etagProducto))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(98));
+        mockMvc.perform(get("/api/productos/{id}", otro.getId()).header(HttpHeaders.IF_NONE_MATCH, etagOtro))
+                .andExpect(status().isNotModified());
+        // Lists catch up on the next stock refresh, not per order.
+        mockMvc.perform(get("/api/productos").header(HttpHeaders.IF_NONE_MATCH, etagLista))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void elAsteriscoSoloCoincideConUnRecursoQueExiste() throws Exception {
+        Producto producto = producto("Serrucho");
+
+        mockMvc.perform(get("/api/productos/{id}", producto.getId()).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/productos/{id}", -1L).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void sinIfNoneMatchRespondeConEtiquetaYCacheControl() throws Exception {
+        mockMvc.perform(get("/api/categorias"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"categorias-")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"));
+    }
+
+    private String etag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        return etag;
+    }
+}
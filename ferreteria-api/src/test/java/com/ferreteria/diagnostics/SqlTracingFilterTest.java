@@ -0,0 +1,109 @@
+package com.ferreteria.diagnostics;
+
+import com.ferreteria.entity.Producto;
+import com.ferreteria.support.IntegracionTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The headers through the real filter chain (the test profile turns them on),
+ * and the N+1 check with requests whose statements the test chooses, run on
+ * the application's traced DataSource.
+ */
+class SqlTracingFilterTest extends IntegracionTest {
+
+    private static final String N_MAS_1 = "ferreteria.sql.n_plus_one";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void lasCabecerasCuentanLasSentenciasDeLaPeticion() throws Exception {
+        Producto producto = producto("Formón");
+
+        MvcResult primera = mockMvc.perform(get("/api/productos/{id}", producto.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(Integer.parseInt(primera.getResponse().getHeader(SqlTracingFilter.CABECERA_CUENTA))).isPositive();
+        assertThat(Double.parseDouble(primera.getResponse().getHeader(SqlTracingFilter.CABECERA_TIEMPO)))
+                .isNotNegative();
+
+        // A 304 loads nothing.
+        mockMvc.perform(get("/api/productos/{id}", producto.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, primera.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(SqlTracingFilter.CABECERA_CUENTA, "0"));
+    }
+
+    @Test
+    void unaFormaRepetidaHastaElUmbralSeMarcaComoNMas1() throws Exception {
+        Producto[] productos = new Producto[5];
+        for (int i = 0; i < productos.length; i++)
+            productos[i] = producto("Formón " + i);
+        double antes = nMas1("/prueba/n-mas-1");
+
+        // Inlined literals are folded, so the five statements are one shape.
+        MockHttpServletResponse response = ejecutar("/prueba/n-mas-1", (request, res) -> {
+            for (Producto producto : productos)
+                jdbcTemplate.queryForObject("SELECT stock FROM productos WHERE id = " + producto.getId(),
+                        Integer.class);
+        });
+
+        assertThat(response.getHeader(SqlTracingFilter.CABECERA_CUENTA)).isEqualTo("5");
+        assertThat(nMas1("/prueba/n-mas-1")).isEqualTo(antes + 1);
+    }
+
+    @Test
+    void pocasRepeticionesODistintasFormasNoSeMarcan() throws Exception {
+        Producto producto = producto("Formón");
+        double antes = nMas1("/prueba/formas");
+
+        MockHttpServletResponse response = ejecutar("/prueba/formas", (request, res) -> {
+            for (int i = 0; i < 4; i++)
+                jdbcTemplate.queryForObject("SELECT stock FROM productos WHERE id = ?", Integer.class,
+                        producto.getId());
+            jdbcTemplate.queryForObject("SELECT nombre FROM productos WHERE id = ?", String.class, producto.getId());
+        });
+
+        assertThat(response.getHeader(SqlTracingFilter.CABECERA_CUENTA)).isEqualTo("5");
+        assertThat(nMas1("/prueba/formas")).isEqualTo(antes);
+    }
+
+    // Runs the chain through a filter with the default budgets and a threshold of 5, as for a request mapped to patron.
+    private MockHttpServletResponse ejecutar(String patron, FilterChain chain) throws Exception {
+        SqlTracingFilter filter = new SqlTracingFilter(registry, true, 30, Duration.ofMillis(500), 5);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", patron);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, patron);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private double nMas1(String uri) {
+        Counter counter = registry.find(N_MAS_1).tag("uri", uri).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,202 @@
+package com.ferreteria.intake;
+
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.PedidoSolicitud;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.repository.PedidoRepository;
+import com.ferreteria.repository.PedidoSolicitudRepository;
+import com.ferreteria.service.PedidoIntakeService;
+import com.ferreteria.support.IntegracionTest;
+import com.ferreteria.util.UuidV7;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Queued checkouts are drained by calling the worker's tick directly; each
+ * test waits for the executor to record the outcome. Transient failures are
+ * made by hiding the outbox table order creation writes to.
+ */
+class PedidoIntakeWorkerTest extends IntegracionTest {
+
+    @Autowired
+    private PedidoIntakeWorker worker;
+
+    @Autowired
+    private PedidoIntakeService pedidoIntakeService;
+
+    @Autowired
+    private PedidoSolicitudRepository solicitudRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Usuario usuario;
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        usuario = usuario();
+        producto = producto(5);
+    }
+
+    @Test
+    void unaSolicitudValidaTerminaPendienteConSuPedido() {
+        UUID id = pedidoIntakeService.encolar(pedido(producto.getId(), 3), null).getId();
+
+        PedidoSolicitud solicitud = procesar(id);
+
+        assertThat(solicitud.getEstado()).isEqualTo(PedidoSolicitud.PENDIENTE);
+        assertThat(solicitud.getProcesadoEn()).isNotNull();
+        Pedido creado = pedidoRepository.findById(solicitud.getPedidoId()).orElseThrow();
+        assertThat(creado.getTotal()).isEqualByComparingTo("30.00");
+        assertThat(stock(producto)).isEqualTo(2);
+    }
+
+    @Test
+    void unaSolicitudSinUsuarioOSinLineasNoSeEncola() {
+        long antes = solicitudRepository.count();
+        Pedido sinLineas = pedido(producto.getId(), 1);
+        sinLineas.setDetalles(new ArrayList<>());
+        Pedido sinUsuario = pedido(producto.getId(), 1);
+        sinUsuario.setUsuario(null);
+
+        assertThatThrownBy(() -> pedidoIntakeService.encolar(sinLineas, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pedidoIntakeService.encolar(sinUsuario, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(solicitudRepository.count()).isEqualTo(antes);
+    }
+
+    @Test
+    void unReintentoConLaMismaClaveDevuelveLaSolicitudYaEncolada() {
+        long antes = solicitudRepository.count();
+        String clave = UUID.randomUUID().toString();
+
+        PedidoSolicitud primera = pedidoIntakeService.encolar(pedido(producto.getId(), 1), clave);
+        PedidoSolicitud repetida = pedidoIntakeService.encolar(pedido(producto.getId(), 1), clave);
+        PedidoSolicitud otra = pedidoIntakeService.encolar(pedido(producto.getId(), 1), UUID.randomUUID().toString());
+
+        assertThat(repetida.getId()).isEqualTo(primera.getId());
+        assertThat(otra.getId()).isNotEqualTo(primera.getId());
+        assertThat(solicitudRepository.count()).isEqualTo(antes + 2);
+    }
+
+    @Test
+    void laClaveSoloSeRepiteParaElMismoCliente() {
+        String clave = UUID.randomUUID().toString();
+        PedidoSolicitud mia = pedidoIntakeService.encolar(pedido(producto.getId(), 1), clave);
+        Pedido deOtro = pedido(producto.getId(), 1);
+        deOtro.setUsuario(usuario());
+
+        assertThat(pedidoIntakeService.encolar(deOtro, clave).getId()).isNotEqualTo(mia.getId());
+        assertThatThrownBy(() -> pedidoIntakeService.encolar(pedido(producto.getId(), 1), "x".repeat(65)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sinStockOConUnProductoInexistenteSeRechaza() {
+        UUID sinStock = pedidoIntakeService.encolar(pedido(producto.getId(), 6), null).getId();
+        UUID inexistente = pedidoIntakeService.encolar(pedido(-1L, 1), null).getId();
+
+        assertThat(procesar(sinStock).getEstado()).isEqualTo(PedidoSolicitud.RECHAZADO);
+        PedidoSolicitud rechazada = procesar(inexistente);
+        assertThat(rechazada.getEstado()).isEqualTo(PedidoSolicitud.RECHAZADO);
+        assertThat(rechazada.getMotivo()).isNotBlank();
+        assertThat(rechazada.getPedidoId()).isNull();
+        assertThat(stock(producto)).isEqualTo(5);
+    }
+
+    @Test
+    void unReclamoAbandonadoSeRetomaTrasSuLease() {
+        UUID abandonada = pedidoIntakeService.encolar(pedido(producto.getId(), 1), null).getId();
+        UUID enCurso = pedidoIntakeService.encolar(pedido(producto.getId(), 1), null).getId();
+        // A worker that crashed three minutes ago, and one still within its lease.
+        reclamada(abandonada, LocalDateTime.now().minusMinutes(3));
+        reclamada(enCurso, LocalDateTime.now().minusSeconds(10));
+
+        PedidoSolicitud retomada = procesar(abandonada);
+
+        assertThat(retomada.getEstado()).isEqualTo(PedidoSolicitud.PENDIENTE);
+        assertThat(retomada.getIntentos()).isEqualTo(2);
+        assertThat(solicitudRepository.findById(enCurso).orElseThrow().getEstado())
+                .isEqualTo(PedidoSolicitud.PROCESANDO);
+    }
+
+    @Test
+    void unFalloTransitorioSeReintentaHastaMaxAttempts() {
+        UUID id = pedidoIntakeService.encolar(pedido(producto.getId(), 1), null).getId();
+
+        PedidoSolicitud primera, segunda;
+        ocultarOutbox();
+        try {
+            primera = procesar(id);
+            segunda = procesar(id);
+        } finally {
+            restaurarOutbox();
+        }
+
+        assertThat(primera.getEstado()).isEqualTo(PedidoSolicitud.EN_COLA);
+        assertThat(primera.getIntentos()).isEqualTo(1);
+        assertThat(segunda.getEstado()).isEqualTo(PedidoSolicitud.RECHAZADO);
+        assertThat(segunda.getMotivo()).isEqualTo("No se pudo procesar el pedido");
+        assertThat(segunda.getIntentos()).isEqualTo(2);
+        assertThat(stock(producto)).isEqualTo(5);
+    }
+
+    @Test
+    void unFalloTransitorioSeguidoDeUnExitoTerminaPendiente() {
+        UUID id = pedidoIntakeService.encolar(pedido(producto.getId(), 2), null).getId();
+
+        ocultarOutbox();
+        try {
+            assertThat(procesar(id).getEstado()).isEqualTo(PedidoSolicitud.EN_COLA);
+        } finally {
+            restaurarOutbox();
+        }
+        PedidoSolicitud solicitud = procesar(id);
+
+        assertThat(solicitud.getEstado()).isEqualTo(PedidoSolicitud.PENDIENTE);
+        // The failed attempt rolled back: stock is taken once.
+        assertThat(stock(producto)).isEqualTo(3);
+    }
+
+    // Runs one tick and waits for the worker to finish with the solicitud.
+    private PedidoSolicitud procesar(UUID id) {
+        worker.procesarCola();
+        return await().atMost(Duration.ofSeconds(10))
+                .until(() -> solicitudRepository.findById(id).orElseThrow(),
+                        s -> !PedidoSolicitud.PROCESANDO.equals(s.getEstado()));
+    }
+
+    private void reclamada(UUID id, LocalDateTime tomadoEn) {
+        jdbcTemplate.update("UPDATE pedido_solicitudes SET estado = ?, tomado_en = ?, intentos = 1 WHERE id = ?",
+                PedidoSolicitud.PROCESANDO, Timestamp.valueOf(tomadoEn), UuidV7.toBytes(id));
+    }
+
+    // The outbox write inside createPedido then fails like a database outage would.
+    private void ocultarOutbox() {
+        jdbcTemplate.execute("ALTER TABLE outbox_eventos RENAME TO outbox_eventos_oculta");
+    }
+
+    private void restaurarOutbox() {
+        jdbcTemplate.execute("ALTER TABLE outbox_eventos_oculta RENAME TO outbox_eventos");
+    }
+
+    private Pedido pedido(Long productoId, int cantidad) {
+        return pedido(usuario, linea(Producto.builder().id(productoId).build(), cantidad));
+    }
+}
@@ -0,0 +1,143 @@
+package com.ferreteria.outbox;
+
+import com.ferreteria.support.HandlerDePrueba;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.ferreteria.support.HandlerDePrueba.PRUEBA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The real poller against the real table, with the shared test handler that
+ * records what it is given, writes a row per event and fails on demand.
+ */
+class OutboxPollerTest extends IntegracionTest {
+
+    @Autowired
+    private OutboxPoller outboxPoller;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HandlerDePrueba handler;
+
+    @BeforeEach
+    void setUp() {
+        handler.recibidos.clear();
+        handler.fallan.clear();
+    }
+
+    @Test
+    void losEventosSeEntreganEnOrdenYQuedanProcesados() {
+        String agregado = UUID.randomUUID().toString();
+        String a = publicar(agregado), b = publicar(agregado), c = publicar(agregado);
+
+        outboxPoller.despachar();
+
+        assertThat(handler.recibidos).containsSubsequence(a, b, c);
+        for (String nombre : List.of(a, b, c)) {
+            assertThat(evento(nombre)).containsEntry("intentos", 1).containsEntry("ultimo_error", null);
+            assertThat(evento(nombre).get("procesado_en")).isNotNull();
+            assertThat(escrito(nombre)).isTrue();
+        }
+        outboxPoller.despachar();
+        assertThat(handler.recibidos).containsOnlyOnce(a, b, c);
+    }
+
+    @Test
+    void unEventoQueFallaFrenaASuAgregadoYNoALosDemas() {
+        String agregado = UUID.randomUUID().toString();
+        String falla = publicar(agregado), siguiente = publicar(agregado), otro = publicar(UUID.randomUUID().toString());
+        handler.fallan.add(falla);
+
+        outboxPoller.despachar();
+
+        assertThat(evento(falla).get("procesado_en")).isNull();
+        assertThat(evento(falla)).containsEntry("intentos", 1).containsEntry("ultimo_error", "Falla " + falla);
+        // The handler's write rolled back with the failed event.
+        assertThat(escrito(falla)).isFalse();
+        assertThat(handler.recibidos).doesNotContain(siguiente);
+        assertThat(evento(siguiente).get("procesado_en")).isNull();
+        assertThat(evento(otro).get("procesado_en")).isNotNull();
+
+        handler.fallan.clear();
+        vencerEspera(falla);
+        outboxPoller.despachar();
+
+        assertThat(handler.recibidos).containsSubsequence(falla, siguiente);
+        assertThat(evento(falla)).containsEntry("intentos", 2).containsEntry("ultimo_error", null);
+        assertThat(evento(siguiente).get("procesado_en")).isNotNull();
+    }
+
+    @Test
+    void losReintentosEsperanCadaVezMasYAlFinalSeApartan() {
+        String agregado = UUID.randomUUID().toString();
+        String falla = publicar(agregado), siguiente = publicar(agregado);
+        handler.fallan.add(falla);
+
+        outboxPoller.despachar();
+        assertThat(segundosDeEspera(falla)).isCloseTo(5, within(2L));
+        // Still waiting: another poll does not touch it.
+        outboxPoller.despachar();
+        assertThat(evento(falla)).containsEntry("intentos", 1);
+
+        vencerEspera(falla);
+        outboxPoller.despachar();
+        assertThat(segundosDeEspera(falla)).isCloseTo(10, within(2L));
+
+        vencerEspera(falla);
+        outboxPoller.despachar();
+        // Third failure with max-attempts=3: set aside with its error, and the aggregate moves on.
+        assertThat(evento(falla)).containsEntry("intentos", 3).containsEntry("ultimo_error", "Falla " + falla);
+        assertThat(evento(falla).get("procesado_en")).isNotNull();
+        assertThat(evento(siguiente).get("procesado_en")).isNotNull();
+        assertThat(handler.recibidos).containsSubsequence(falla, siguiente);
+    }
+
+    // Publishes an event with a unique payload, which names it in the assertions.
+    private String publicar(String agregadoId) {
+        String nombre = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> outboxPublisher.publicar(PRUEBA, agregadoId, PRUEBA, nombre));
+        return nombre;
+    }
+
+    private Map<String, Object> evento(String nombre) {
+        return jdbcTemplate.queryForMap("SELECT intentos, procesado_en, reintentar_en, ultimo_error FROM outbox_eventos "
+                + "WHERE payload = ?", "\"" + nombre + "\"");
+    }
+
+    private boolean escrito(String nombre) {
+        Integer filas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_prueba WHERE nombre = ?",
+                Integer.class, nombre);
+        return filas != null && filas > 0;
+    }
+
+    private long segundosDeEspera(String nombre) {
+        Timestamp reintentarEn = (Timestamp) evento(nombre).get("reintentar_en");
+        return Duration.between(LocalDateTime.now(), reintentarEn.toLocalDateTime()).toSeconds();
+    }
+
+    private void vencerEspera(String nombre) {
+        jdbcTemplate.update("UPDATE outbox_eventos SET reintentar_en = ? WHERE payload = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), "\"" + nombre + "\"");
+    }
+}
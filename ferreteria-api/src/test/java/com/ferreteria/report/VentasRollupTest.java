@@ -0,0 +1,169 @@
+package com.ferreteria.report;
+
+import com.ferreteria.entity.Categoria;
+import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.outbox.OutboxPoller;
+import com.ferreteria.repository.CategoriaRepository;
+import com.ferreteria.service.DetallePedidoService;
+import com.ferreteria.service.PedidoService;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Orders and lines are changed through the services and their outbox events
+ * delivered with the real poller; the rollup rows must always match what the
+ * orders add up to.
+ */
+class VentasRollupTest extends IntegracionTest {
+
+    @Autowired
+    private VentasRollup ventasRollup;
+
+    @Autowired
+    private OutboxPoller outboxPoller;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private DetallePedidoService detallePedidoService;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Usuario usuario;
+    private Producto producto;
+    private String categoriaId;
+
+    @BeforeEach
+    void setUp() {
+        usuario = usuario();
+        categoriaId = "cat-" + UUID.randomUUID();
+        Categoria categoria = categoriaRepository.save(Categoria.builder().id(categoriaId).nombre("Herramientas").build());
+        producto = producto("Martillo", "10.00", 1000);
+        producto.setCategoria(categoria);
+        producto = productoRepository.save(producto);
+    }
+
+    @Test
+    void unPedidoCreadoSumaSusLineasAlDia() {
+        LocalDate dia = LocalDate.of(2024, 3, 1);
+        pedidoService.createPedido(pedido(dia, 3));
+        outboxPoller.despachar();
+
+        assertThat(unidadesProducto(dia)).isEqualTo(3);
+        assertThat(importeProducto(dia)).isEqualByComparingTo("30.00");
+        assertThat(unidadesCategoria(dia)).isEqualTo(3);
+    }
+
+    @Test
+    void cancelarYReabrirQuitaYDevuelveLasVentas() {
+        LocalDate dia = LocalDate.of(2024, 3, 2);
+        Pedido creado = pedidoService.createPedido(pedido(dia, 2));
+        pedidoService.createPedido(pedido(dia, 1));
+
+        pedidoService.updatePedido(creado.getId(), Pedido.builder().estado("CANCELADO").build());
+        outboxPoller.despachar();
+        assertThat(unidadesProducto(dia)).isEqualTo(1);
+
+        pedidoService.updatePedido(creado.getId(), Pedido.builder().estado("PENDIENTE").build());
+        outboxPoller.despachar();
+        assertThat(unidadesProducto(dia)).isEqualTo(3);
+    }
+
+    @Test
+    void cambiarLaFechaMueveLasVentasDeDia() {
+        LocalDate antes = LocalDate.of(2024, 3, 3);
+        LocalDate despues = LocalDate.of(2024, 3, 4);
+        Pedido creado = pedidoService.createPedido(pedido(antes, 4));
+
+        pedidoService.updatePedido(creado.getId(), Pedido.builder().fecha(despues).build());
+        outboxPoller.despachar();
+
+        assertThat(unidadesProducto(antes)).isNull();
+        assertThat(unidadesProducto(despues)).isEqualTo(4);
+        assertThat(unidadesCategoria(antes)).isNull();
+        assertThat(unidadesCategoria(despues)).isEqualTo(4);
+    }
+
+    @Test
+    void lasEdicionesDeLineasLleganAlRollup() {
+        LocalDate dia = LocalDate.of(2024, 3, 5);
+        Pedido creado = pedidoService.createPedido(pedido(dia, 2));
+        Long lineaId = creado.getDetalles().get(0).getId();
+
+        DetallePedido cambio = DetallePedido.builder().pedido(Pedido.builder().id(creado.getId()).build())
+                .producto(Producto.builder().id(producto.getId()).build()).cantidad(5)
+                .precioUnitario(new BigDecimal("10.00")).build();
+        detallePedidoService.updateDetalle(lineaId, cambio);
+        DetallePedido agregada = detallePedidoService.createDetalle(DetallePedido.builder()
+                .pedido(Pedido.builder().id(creado.getId()).build())
+                .producto(Producto.builder().id(producto.getId()).build()).cantidad(1)
+                .precioUnitario(new BigDecimal("10.00")).build());
+        outboxPoller.despachar();
+        assertThat(unidadesProducto(dia)).isEqualTo(6);
+        assertThat(pedidoService.getPedidoById(creado.getId()).getTotal()).isEqualByComparingTo("60.00");
+
+        detallePedidoService.deleteDetalle(agregada.getId());
+        outboxPoller.despachar();
+        assertThat(unidadesProducto(dia)).isEqualTo(5);
+        assertThat(importeProducto(dia)).isEqualByComparingTo("50.00");
+        assertThat(pedidoService.getPedidoById(creado.getId()).getTotal()).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void rebuildReparaElRangoSinContarDosVecesLoPendiente() {
+        LocalDate dia = LocalDate.of(2024, 3, 6);
+        pedidoService.createPedido(pedido(dia, 2));
+        outboxPoller.despachar();
+        // Drift the rollup, then leave one more order's event undelivered.
+        jdbcTemplate.update("UPDATE ventas_diarias_producto SET unidades = 99 WHERE fecha = ? AND producto_id = ?",
+                Date.valueOf(dia), producto.getId());
+        pedidoService.createPedido(pedido(dia, 1));
+
+        ventasRollup.rebuild(dia, dia);
+        assertThat(unidadesProducto(dia)).isEqualTo(2);
+
+        outboxPoller.despachar();
+        assertThat(unidadesProducto(dia)).isEqualTo(3);
+        assertThat(unidadesCategoria(dia)).isEqualTo(3);
+    }
+
+    private Pedido pedido(LocalDate fecha, int cantidad) {
+        Pedido pedido = pedido(usuario, linea(producto, cantidad));
+        pedido.setFecha(fecha);
+        pedido.setEstado("PENDIENTE");
+        return pedido;
+    }
+
+    private Long unidadesProducto(LocalDate dia) {
+        return jdbcTemplate.query("SELECT unidades FROM ventas_diarias_producto WHERE fecha = ? AND producto_id = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, Date.valueOf(dia), producto.getId());
+    }
+
+    private BigDecimal importeProducto(LocalDate dia) {
+        return jdbcTemplate.query("SELECT importe FROM ventas_diarias_producto WHERE fecha = ? AND producto_id = ?",
+                rs -> rs.next() ? rs.getBigDecimal(1) : null, Date.valueOf(dia), producto.getId());
+    }
+
+    private Long unidadesCategoria(LocalDate dia) {
+        return jdbcTemplate.query("SELECT unidades FROM ventas_diarias_categoria WHERE fecha = ? AND categoria_id = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, Date.valueOf(dia), categoriaId);
+    }
+}
@@ -0,0 +1,73 @@
+package com.ferreteria.search;
+
+import com.ferreteria.dto.ProductoFacetFilter;
+import com.ferreteria.dto.ProductoFacets;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductoFacetIndexTest {
+
+    private final ProductoRepository productoRepository = mock(ProductoRepository.class);
+    private final ProductoFacetIndex index = new ProductoFacetIndex(productoRepository);
+
+    @Test
+    void cadaFacetaSeCuentaSinSuPropioFiltro() {
+        when(productoRepository.findAll()).thenReturn(List.of(
+                producto(1L, "Stanley", "20", true),
+                producto(2L, "Stanley", "600", false),
+                producto(3L, "Bosch", "75", true)));
+        index.rebuild();
+
+        ProductoFacetFilter filter = new ProductoFacetFilter();
+        filter.setMarcas(List.of("Stanley"));
+        ProductoFacets facets = index.facets(filter);
+
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getMarcas()).containsEntry("Stanley", 2L).containsEntry("Bosch", 1L);
+        assertThat(facets.getRangosPrecio()).containsEntry("0-50", 1L).containsEntry("500-1000", 1L)
+                .doesNotContainKey("50-100");
+        assertThat(facets.getFlags()).containsEntry("esOferta", 1L);
+    }
+
+    @Test
+    void losCambiosHechosDuranteUnRebuildNoSePierden() {
+        List<Producto> leidos = List.of(producto(1L, "Stanley", "20", false), producto(2L, "Bosch", "20", false));
+        // Committed while the table is read, and missed (or half seen) by that read.
+        when(productoRepository.findAll()).thenAnswer(invocation -> {
+            index.index(producto(3L, "Truper", "20", false));
+            index.remove(2L);
+            return leidos;
+        });
+
+        index.rebuild();
+
+        ProductoFacets facets = index.facets(new ProductoFacetFilter());
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getMarcas()).containsOnlyKeys("Stanley", "Truper");
+    }
+
+    @Test
+    void noEstaListoHastaElPrimerRebuild() {
+        when(productoRepository.findAll()).thenReturn(List.of(producto(1L, "Stanley", "20", false)));
+        index.index(producto(2L, "Bosch", "20", false));
+        assertThat(index.isReady()).isFalse();
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.facets(new ProductoFacetFilter()).getTotal()).isEqualTo(1);
+    }
+
+    private static Producto producto(Long id, String marca, String precio, boolean oferta) {
+        return Producto.builder().id(id).nombre("Producto " + id).marca(marca).precio(new BigDecimal(precio))
+                .esOferta(oferta).build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.ferreteria.search;
+
+import com.ferreteria.dto.ProductoSearchCriteria;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductoSearchIndexTest {
+
+    private final ProductoRepository productoRepository = mock(ProductoRepository.class);
+    private final ProductoSearchIndex index = new ProductoSearchIndex(productoRepository);
+
+    @BeforeEach
+    void setUp() {
+        // 200 distinct terms starting with "ca", far more than any expansion cap would keep.
+        List<Producto> productos = new ArrayList<>();
+        for (long id = 1; id <= 200; id++)
+            productos.add(producto(id, "Cable" + id, id % 2 == 0 ? "Bticino" : "Indeco", BigDecimal.valueOf(id)));
+        when(productoRepository.findAll()).thenReturn(productos);
+        index.rebuild();
+    }
+
+    @Test
+    void unPrefijoCortoEncuentraTodasLasCoincidencias() {
+        ProductoSearchIndex.Pagina pagina = index.page(criteria("ca", null), 0, 10);
+
+        assertThat(pagina.total()).isEqualTo(200);
+        assertThat(pagina.ids()).containsExactly(200L, 199L, 198L, 197L, 196L, 195L, 194L, 193L, 192L, 191L);
+    }
+
+    @Test
+    void filtraOrdenaYPaginaEnElIndice() {
+        ProductoSearchCriteria criteria = criteria("ca", "price-asc");
+        criteria.setMarcas(List.of("Bticino"));
+        criteria.setPrecioMin(new BigDecimal("100"));
+
+        ProductoSearchIndex.Pagina pagina = index.page(criteria, 1, 5);
+
+        assertThat(pagina.total()).isEqualTo(51);
+        assertThat(pagina.ids()).containsExactly(110L, 112L, 114L, 116L, 118L);
+    }
+
+    @Test
+    void losCambiosSeReflejanEnLaPagina() {
+        index.index(producto(7L, "Martillo", "Stanley", BigDecimal.TEN));
+        index.remove(8L);
+
+        assertThat(index.page(criteria("ca", null), 0, 500).total()).isEqualTo(198);
+        assertThat(index.page(criteria("mart", null), 0, 10).ids()).containsExactly(7L);
+    }
+
+    @Test
+    void losCambiosHechosDuranteUnRebuildNoSePierden() {
+        List<Producto> leidos = List.of(producto(1L, "Cable", "Indeco", BigDecimal.ONE),
+                producto(2L, "Cable", "Indeco", BigDecimal.ONE));
+        // Committed while the table is read, and missed (or half seen) by that read.
+        when(productoRepository.findAll()).thenAnswer(invocation -> {
+            index.index(producto(3L, "Taladro", "Bosch", BigDecimal.TEN));
+            index.remove(2L);
+            return leidos;
+        });
+
+        index.rebuild();
+
+        assertThat(index.page(criteria("taladro", null), 0, 10).ids()).containsExactly(3L);
+        assertThat(index.page(criteria("cable", null), 0, 10).ids()).containsExactly(1L);
+    }
+
+    private static ProductoSearchCriteria criteria(String texto, String sort) {
+        ProductoSearchCriteria criteria = new ProductoSearchCriteria();
+        criteria.setTexto(texto);
+        criteria.setSort(sort);
+        return criteria;
+    }
+
+    private static Producto producto(Long id, String nombre, String marca, BigDecimal precio) {
+        return Producto.builder().id(id).nombre(nombre).marca(marca).precio(precio).build();
+    }
+}
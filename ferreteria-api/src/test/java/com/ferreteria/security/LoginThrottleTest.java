@@ -0,0 +1,81 @@
+package com.ferreteria.security;
+
+import com.ferreteria.exception.DemasiadosIntentosException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void elEmailSeFrenaAlPasarSuLimiteSinImportarMayusculas() {
+        LoginThrottle throttle = throttle(Duration.ofMinutes(5));
+        throttle.intentoLogin("ana@test.com", "10.0.0.1");
+        throttle.intentoLogin(" ANA@test.com", "10.0.0.2");
+        throttle.intentoLogin("Ana@Test.com", "10.0.0.3");
+
+        assertThatThrownBy(() -> throttle.intentoLogin("ana@test.com", "10.0.0.4"))
+                .isInstanceOfSatisfying(DemasiadosIntentosException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isBetween(1L, 300L));
+        assertThat(registry.counter("ferreteria.login.throttled").count()).isEqualTo(1);
+        assertThatCode(() -> throttle.intentoLogin("beto@test.com", "10.0.0.4")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void laIpSeFrenaAunqueCadaIntentoUseOtroEmail() {
+        LoginThrottle throttle = throttle(Duration.ofMinutes(5));
+        for (int i = 0; i < 5; i++)
+            throttle.intentoLogin("usuario" + i + "@test.com", "10.0.0.1");
+
+        assertThatThrownBy(() -> throttle.intentoLogin("otro@test.com", "10.0.0.1"))
+                .isInstanceOf(DemasiadosIntentosException.class);
+        assertThatCode(() -> throttle.intentoLogin("otro@test.com", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void unLoginCorrectoLiberaAlEmail() {
+        LoginThrottle throttle = throttle(Duration.ofMinutes(5));
+        for (int i = 0; i < 3; i++)
+            throttle.intentoLogin("ana@test.com", "10.0.0." + i);
+
+        throttle.loginCorrecto("ANA@test.com");
+
+        assertThatCode(() -> throttle.intentoLogin("ana@test.com", "10.0.0.9")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void losRegistrosTienenSuPropioLimitePorIp() {
+        LoginThrottle throttle = throttle(Duration.ofMinutes(5));
+        throttle.intentoRegistro("10.0.0.1");
+        throttle.intentoRegistro("10.0.0.1");
+
+        assertThatThrownBy(() -> throttle.intentoRegistro("10.0.0.1")).isInstanceOf(DemasiadosIntentosException.class);
+        // Logins from the same address are counted apart.
+        assertThatCode(() -> throttle.intentoLogin("ana@test.com", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void losIntentosSaliendoDeLaVentanaDejanLugar() throws InterruptedException {
+        LoginThrottle throttle = throttle(Duration.ofMillis(200));
+        for (int i = 0; i < 3; i++)
+            throttle.intentoLogin("ana@test.com", null);
+        assertThatThrownBy(() -> throttle.intentoLogin("ana@test.com", null))
+                .isInstanceOf(DemasiadosIntentosException.class);
+
+        Thread.sleep(250);
+
+        assertThatCode(() -> throttle.intentoLogin("ana@test.com", null)).doesNotThrowAnyException();
+    }
+
+    // 3 logins per email, 5 per IP and 2 signups per IP.
+    private LoginThrottle throttle(Duration ventana) {
+        return new LoginThrottle(registry, 3, 5, 2, ventana, 1000);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ferreteria.security;
+
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The filter through the real security chain: a token the filter rejects only
+ * matters where authentication is required.
+ */
+class TokenAuthenticationFilterTest extends IntegracionTest {
+
+    private static final String MAL_TOKEN = "Bearer no-es-un-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Test
+    void unTokenInvalidoNoImpideLeerElCatalogo() throws Exception {
+        mockMvc.perform(get("/api/categorias").header(HttpHeaders.AUTHORIZATION, MAL_TOKEN))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/productos/{id}", producto("Escalera").getId())
+                        .header(HttpHeaders.AUTHORIZATION, MAL_TOKEN))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void enUnEndpointProtegidoElTokenInvalidoExplicaEl401() throws Exception {
+        Usuario usuario = usuario();
+
+        mockMvc.perform(get("/api/usuarios/{id}", usuario.getId()).header(HttpHeaders.AUTHORIZATION, MAL_TOKEN))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Invalid token"));
+        mockMvc.perform(get("/api/usuarios/{id}", usuario.getId()))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value(not("Invalid token")));
+    }
+
+    @Test
+    void unTokenValidoAutentica() throws Exception {
+        Usuario usuario = usuario();
+        String token = tokenService.emitirAccess(usuario.getId(), usuario.getRol());
+
+        mockMvc.perform(get("/api/usuarios/{id}", usuario.getId())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,93 @@
+package com.ferreteria.security;
+
+import com.ferreteria.security.TokenClaims.TipoToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenServiceTest {
+
+    private static final String SECRETO = "secreto-de-prueba";
+
+    private final TokenService tokenService = tokenService(SECRETO, Duration.ofMinutes(15), Duration.ofDays(7));
+
+    @Test
+    void unTokenEmitidoSeVerificaConSusClaims() {
+        UUID usuario = UUID.randomUUID();
+
+        TokenClaims access = tokenService.verificar(tokenService.emitirAccess(usuario, "ADMIN"), TipoToken.ACCESS);
+        TokenClaims refresh = tokenService.verificar(tokenService.emitirRefresh(usuario, null), TipoToken.REFRESH);
+
+        assertThat(access.usuarioId()).isEqualTo(usuario);
+        assertThat(access.esAdmin()).isTrue();
+        assertThat(refresh.usuarioId()).isEqualTo(usuario);
+        assertThat(refresh.rol()).isNull();
+    }
+
+    @Test
+    void otraInstanciaConElMismoSecretoAceptaElToken() {
+        String token = tokenService.emitirAccess(UUID.randomUUID(), "CLIENTE");
+
+        assertThat(tokenService(SECRETO, Duration.ofMinutes(15), Duration.ofDays(7)).verificar(token, TipoToken.ACCESS))
+                .isNotNull();
+        assertThatThrownBy(() -> tokenService("otro-secreto", Duration.ofMinutes(15), Duration.ofDays(7))
+                .verificar(token, TipoToken.ACCESS)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unPayloadAlteradoNoPasaLaFirma() {
+        String token = tokenService.emitirAccess(UUID.randomUUID(), "CLIENTE");
+        String[] partes = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(partes[0]), StandardCharsets.UTF_8);
+        String alterado = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("CLIENTE", "ADMIN").getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> tokenService.verificar(alterado + "." + partes[1], TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> tokenService.verificar(partes[0] + ".AAAA", TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> tokenService.verificar("no-es-un-token", TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> tokenService.verificar("%%%.%%%", TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unTokenNoSirveComoElDeOtroTipo() {
+        UUID usuario = UUID.randomUUID();
+        String access = tokenService.emitirAccess(usuario, "CLIENTE");
+        String refresh = tokenService.emitirRefresh(usuario, "CLIENTE");
+
+        assertThatThrownBy(() -> tokenService.verificar(access, TipoToken.REFRESH))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> tokenService.verificar(refresh, TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unTokenVencidoSeRechazaAunqueLaFirmaSeaValida() {
+        // A zero TTL makes every token expire the moment it is issued.
+        TokenService vencidos = tokenService(SECRETO, Duration.ZERO, Duration.ZERO);
+        UUID usuario = UUID.randomUUID();
+        String access = vencidos.emitirAccess(usuario, "CLIENTE");
+
+        assertThatThrownBy(() -> vencidos.verificar(access, TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class).hasMessage("Token expired");
+        assertThatThrownBy(() -> vencidos.verificar(vencidos.emitirRefresh(usuario, "CLIENTE"), TipoToken.REFRESH))
+                .isInstanceOf(BadCredentialsException.class).hasMessage("Token expired");
+        // Not cached as verified either, so it stays rejected.
+        assertThatThrownBy(() -> vencidos.verificar(access, TipoToken.ACCESS))
+                .isInstanceOf(BadCredentialsException.class).hasMessage("Token expired");
+    }
+
+    private static TokenService tokenService(String secreto, Duration accessTtl, Duration refreshTtl) {
+        return new TokenService(secreto, accessTtl, refreshTtl, 100);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ferreteria.service.impl;
+
+import com.ferreteria.entity.Categoria;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.repository.CategoriaRepository;
+import com.ferreteria.search.ProductoSearchIndex;
+import com.ferreteria.service.CategoriaService;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoriaServiceImplTest extends IntegracionTest {
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private ProductoSearchIndex productoSearchIndex;
+
+    @Test
+    void renombrarUnaCategoriaReindexaSusProductos() {
+        String viejo = palabra();
+        String nuevo = palabra();
+        Categoria categoria = categoriaRepository.save(Categoria.builder().id("cat-" + UUID.randomUUID())
+                .nombre(viejo).build());
+        Producto producto = producto("Martillo");
+        producto.setCategoria(categoria);
+        producto = productoRepository.save(producto);
+        productoSearchIndex.index(producto);
+
+        categoriaService.updateCategoria(categoria.getId(), Categoria.builder().nombre(nuevo).build());
+
+        assertThat(productoSearchIndex.search(nuevo, 10)).extracting(ProductoSearchIndex.SearchHit::id)
+                .containsExactly(producto.getId());
+        assertThat(productoSearchIndex.search(viejo, 10)).isEmpty();
+    }
+
+    // One search term no other row contains.
+    private static String palabra() {
+        return "cat" + UUID.randomUUID().toString().replace("-", "");
+    }
+}
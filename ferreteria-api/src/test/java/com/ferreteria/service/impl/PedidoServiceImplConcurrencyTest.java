@@ -0,0 +1,161 @@
+package com.ferreteria.service.impl;
+
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.exception.StockInsuficienteException;
+import com.ferreteria.service.PedidoService;
+import com.ferreteria.support.IntegracionTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hundreds of checkouts race for products with little stock: the conditional
+ * stock decrement must let exactly as many units through as there are, never
+ * take the stock below zero, and, because every order takes its rows in
+ * product-id order, orders listing the same products in opposite orders must
+ * not deadlock.
+ */
+@Slf4j
+class PedidoServiceImplConcurrencyTest extends IntegracionTest {
+
+    private static final int STOCK_INICIAL = 50;
+    private static final int PEDIDOS = 400;
+    private static final int HILOS = 64;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Test
+    void checkoutsEnParaleloNoVendenMasQueElStock() throws Exception {
+        Producto producto = producto(STOCK_INICIAL);
+        Usuario usuario = usuario();
+
+        AtomicInteger confirmados = new AtomicInteger();
+        AtomicInteger sinStock = new AtomicInteger();
+        Queue<Throwable> inesperados = carrera(PEDIDOS, i -> {
+            try {
+                pedidoService.createPedido(pedido(usuario, linea(producto, 1)));
+                confirmados.incrementAndGet();
+            } catch (StockInsuficienteException e) {
+                sinStock.incrementAndGet();
+            }
+        });
+
+        int stockFinal = stock(producto);
+        assertThat(inesperados).isEmpty();
+        assertThat(stockFinal).isGreaterThanOrEqualTo(0);
+        assertThat(confirmados.get()).isLessThanOrEqualTo(STOCK_INICIAL);
+        assertThat(confirmados.get() + stockFinal).isEqualTo(STOCK_INICIAL);
+        assertThat(confirmados.get() + sinStock.get()).isEqualTo(PEDIDOS);
+    }
+
+    @Test
+    void pedidosConVariosProductosEnOrdenOpuestoNoSeBloquean() throws Exception {
+        List<Producto> calientes = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            calientes.add(producto(STOCK_INICIAL * 2));
+        Usuario usuario = usuario();
+
+        Map<Long, AtomicInteger> vendidos = new ConcurrentHashMap<>();
+        calientes.forEach(p -> vendidos.put(p.getId(), new AtomicInteger()));
+        AtomicInteger confirmados = new AtomicInteger();
+        AtomicInteger sinStock = new AtomicInteger();
+        long inicio = System.nanoTime();
+        Queue<Throwable> inesperados = carrera(PEDIDOS, i -> {
+            // Every order takes 1..3 units of every hot product; odd orders list them the other way round.
+            List<Map.Entry<Producto, Integer>> lineas = new ArrayList<>();
+            for (int j = 0; j < calientes.size(); j++)
+                lineas.add(linea(calientes.get(j), 1 + (i + j) % 3));
+            if (i % 2 == 1)
+                Collections.reverse(lineas);
+            try {
+                pedidoService.createPedido(pedido(usuario, lineas.toArray(Map.Entry[]::new)));
+                lineas.forEach(l -> vendidos.get(l.getKey().getId()).addAndGet(l.getValue()));
+                confirmados.incrementAndGet();
+            } catch (StockInsuficienteException e) {
+                sinStock.incrementAndGet();
+            }
+        });
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        log.info("{} multi-line checkouts ({} confirmed) on {} hot products with {} threads: {} s, {} orders/s",
+                PEDIDOS, confirmados.get(), calientes.size(), HILOS, String.format("%.2f", segundos),
+                String.format("%.0f", PEDIDOS / segundos));
+
+        // A deadlock would surface here as a lock or timeout exception.
+        assertThat(inesperados).isEmpty();
+        assertThat(confirmados.get()).isPositive();
+        assertThat(confirmados.get() + sinStock.get()).isEqualTo(PEDIDOS);
+        for (Producto producto : calientes) {
+            int stockFinal = stock(producto);
+            assertThat(stockFinal).isGreaterThanOrEqualTo(0);
+            assertThat(stockFinal + vendidos.get(producto.getId()).get()).isEqualTo(STOCK_INICIAL * 2);
+        }
+    }
+
+    @Test
+    void siLaUltimaLineaNoTieneStockSeDevuelveLoTomadoPorLasAnteriores() {
+        Producto primero = producto(10);
+        Producto segundo = producto(10);
+        Producto agotado = producto(0);
+        Usuario usuario = usuario();
+
+        assertThatThrownBy(() -> pedidoService.createPedido(pedido(usuario,
+                linea(primero, 3), linea(segundo, 4), linea(agotado, 1))))
+                .isInstanceOf(StockInsuficienteException.class);
+
+        assertThat(stock(primero)).isEqualTo(10);
+        assertThat(stock(segundo)).isEqualTo(10);
+        assertThat(stock(agotado)).isZero();
+    }
+
+    private interface Checkout {
+        void ejecutar(int i) throws Exception;
+    }
+
+    // Runs the checkouts from HILOS threads released together; returns what they threw.
+    private static Queue<Throwable> carrera(int pedidos, Checkout checkout) throws Exception {
+        Queue<Throwable> inesperados = new ConcurrentLinkedQueue<>();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int i = 0; i < pedidos; i++) {
+                int n = i;
+                tareas.add(executor.submit((Callable<Void>) () -> {
+                    salida.await();
+                    try {
+                        checkout.ejecutar(n);
+                    } catch (Throwable e) {
+                        inesperados.add(e);
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas)
+                tarea.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        return inesperados;
+    }
+}
@@ -0,0 +1,142 @@
+package com.ferreteria.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.dto.FormatoArchivo;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.service.PedidoService;
+import com.ferreteria.support.IntegracionTest;
+import com.ferreteria.util.CsvReader;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports of a date range no other test writes to, read back with the import's
+ * own CSV reader and line by line as NDJSON.
+ */
+class PedidoServiceImplExportTest extends IntegracionTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void elCsvEscapaComasComillasYSaltosDeLinea() throws Exception {
+        LocalDate dia = LocalDate.of(2031, 1, 10);
+        Producto raro = producto("Tornillo 3/4\", cabeza \"hex\"\nx100", "1.25", 100);
+        Producto normal = producto("Lija");
+        Pedido pedido = pedidoService.createPedido(enFecha(pedido(usuario(), linea(raro, 2), linea(normal, 1)), dia));
+
+        List<List<String>> filas = leerCsv(exportar(dia, dia, FormatoArchivo.CSV));
+
+        assertThat(filas.get(0)).containsExactly("pedidoId", "fecha", "estado", "total", "usuarioId",
+                "usuarioEmail", "detalleId", "productoId", "productoNombre", "cantidad", "precioUnitario");
+        assertThat(filas).hasSize(3);
+        assertThat(filas.subList(1, 3)).allSatisfy(fila -> {
+            assertThat(fila).hasSize(11);
+            assertThat(fila.get(0)).isEqualTo(pedido.getId().toString());
+            assertThat(fila.get(1)).isEqualTo("2031-01-10");
+            assertThat(fila.get(3)).isEqualTo("12.50");
+        });
+        assertThat(filas.subList(1, 3)).extracting(fila -> fila.get(8))
+                .containsExactlyInAnyOrder(raro.getNombre(), "Lija");
+    }
+
+    @Test
+    void elNdjsonTieneUnPedidoPorLineaYRespetaElRango() throws Exception {
+        Usuario usuario = usuario();
+        Producto producto = producto("Brocha");
+        for (int dia = 1; dia <= 5; dia++)
+            pedidoService.createPedido(enFecha(pedido(usuario, linea(producto, dia)), LocalDate.of(2031, 2, dia)));
+
+        String[] lineas = exportar(LocalDate.of(2031, 2, 2), LocalDate.of(2031, 2, 4), FormatoArchivo.NDJSON)
+                .split("\n");
+
+        assertThat(lineas).hasSize(3);
+        List<Integer> cantidades = new ArrayList<>();
+        for (String linea : lineas) {
+            JsonNode fila = objectMapper.readTree(linea);
+            assertThat(fila.get("productoNombre").asText()).isEqualTo("Brocha");
+            assertThat(fila.get("usuarioEmail").asText()).isEqualTo(usuario.getEmail());
+            cantidades.add(fila.get("cantidad").asInt());
+        }
+        assertThat(cantidades).containsExactly(2, 3, 4);
+    }
+
+    @Test
+    void unaExportacionGrandeSeEscribeAMedidaQueSeLeeSinCargarEntidades() throws Exception {
+        LocalDate dia = LocalDate.of(2031, 3, 1);
+        Usuario usuario = usuario();
+        Producto producto = producto("Clavo", "0.10", 300);
+        for (int i = 0; i < 300; i++)
+            pedidoService.createPedido(enFecha(pedido(usuario, linea(producto, 1)), dia));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        SalidaContada salida = new SalidaContada();
+        pedidoService.exportPedidos(dia, dia, FormatoArchivo.CSV, salida);
+
+        assertThat(salida.toString(StandardCharsets.UTF_8).split("\n")).hasSize(301);
+        // Rows reach the client in buffer-sized pieces, not as one document at the end.
+        assertThat(salida.escrituras).isGreaterThan(3);
+        // Rows are read as projections: nothing piles up in the persistence context.
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private String exportar(LocalDate desde, LocalDate hasta, FormatoArchivo formato) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        pedidoService.exportPedidos(desde, hasta, formato, salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<List<String>> leerCsv(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<List<String>> filas = new ArrayList<>();
+        for (List<String> fila = reader.next(); fila != null; fila = reader.next())
+            filas.add(fila);
+        return filas;
+    }
+
+    private static Pedido enFecha(Pedido pedido, LocalDate fecha) {
+        pedido.setFecha(fecha);
+        return pedido;
+    }
+
+    // Counts the writes that reach the client.
+    private static class SalidaContada extends ByteArrayOutputStream {
+        int escrituras;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            escrituras++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            escrituras++;
+            super.write(b);
+        }
+    }
+}
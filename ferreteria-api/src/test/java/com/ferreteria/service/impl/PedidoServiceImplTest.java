@@ -0,0 +1,244 @@
+package com.ferreteria.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ferreteria.dto.CursorPage;
+import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.exception.StockInsuficienteException;
+import com.ferreteria.repository.DetallePedidoRepository;
+import com.ferreteria.repository.PedidoRepository;
+import com.ferreteria.service.PedidoService;
+import com.ferreteria.support.IntegracionTest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class PedidoServiceImplTest extends IntegracionTest {
+
+    // hibernate.jdbc.batch_size in the write-batch profile. Set per session here,
+    // since a second context with that profile would recreate the shared schema.
+    private static final int LOTE_WRITE_BATCH = 50;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private DetallePedidoRepository detallePedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Usuario usuario;
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        usuario = usuario();
+        producto = producto("Martillo", "45.50", 100);
+    }
+
+    @Test
+    void losIdsEnviadosPorElClienteNoPisanOtroPedido() {
+        Pedido ajeno = pedidoService.createPedido(pedido(2));
+        Long detalleAjeno = ajeno.getDetalles().get(0).getId();
+
+        Pedido intento = pedido(5);
+        intento.setId(ajeno.getId());
+        intento.getDetalles().get(0).setId(detalleAjeno);
+        Pedido creado = pedidoService.createPedido(intento);
+
+        assertThat(creado.getId()).isNotEqualTo(ajeno.getId());
+        assertThat(creado.getDetalles().get(0).getId()).isNotEqualTo(detalleAjeno);
+        assertThat(pedidoRepository.findById(ajeno.getId()).orElseThrow().getTotal())
+                .isEqualByComparingTo("91.00");
+        assertThat(detallePedidoRepository.findById(detalleAjeno).orElseThrow().getCantidad()).isEqualTo(2);
+    }
+
+    @Test
+    void crearUnPedidoLeeCadaProductoUnaVezYDevuelveElStockRestante() {
+        Producto otro = producto("Clavo", "0.50", 10);
+        Pedido pedido = pedido(usuario, linea(producto, 3), linea(otro, 4));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Pedido creado = pedidoService.createPedido(pedido);
+
+        assertThat(statistics.getEntityStatistics(Producto.class.getName()).getLoadCount()).isEqualTo(2);
+        assertThat(creado.getDetalles()).extracting(d -> d.getProducto().getStock()).containsExactly(97, 6);
+        assertThat(stock(otro)).isEqualTo(6);
+    }
+
+    @Test
+    void listarLosPedidosDeUnUsuarioCuestaLasMismasSentenciasConDosQueConVeinte() throws Exception {
+        for (int i = 0; i < 2; i++)
+            pedidoService.createPedido(pedido(usuario, linea(producto("Producto " + i), 1)));
+        long conDos = sentenciasAlListar();
+
+        for (int i = 2; i < 20; i++)
+            pedidoService.createPedido(pedido(usuario, linea(producto("Producto " + i), 1), linea(producto, 1)));
+        long conVeinte = sentenciasAlListar();
+
+        // One joined SELECT for the orders, lines, products and categories, one batch for the images.
+        assertThat(conDos).isLessThanOrEqualTo(3);
+        assertThat(conVeinte).isEqualTo(conDos);
+    }
+
+    @Test
+    void conLosLotesDeWriteBatchUnPedidoDe40LineasPreparaMenosSentencias() {
+        long sinLotes = sentenciasAlCrear(pedidoDe40Lineas(), null);
+        long conLotes = sentenciasAlCrear(pedidoDe40Lineas(), LOTE_WRITE_BATCH);
+        log.info("40-line order: {} JDBC statements prepared without batching, {} with batch_size {}",
+                sinLotes, conLotes, LOTE_WRITE_BATCH);
+
+        // The 40 line INSERTs go out as one batch instead of one statement each. Either
+        // order may also fetch the next block of 50 line ids, hence 38 rather than 39.
+        assertThat(conLotes).isLessThanOrEqualTo(sinLotes - 38);
+    }
+
+    @Test
+    void actualizarNoAceptaUnTotalDelCliente() {
+        Pedido creado = pedidoService.createPedido(pedido(2));
+
+        Pedido cambios = Pedido.builder().estado("ENVIADO").total(new BigDecimal("0.01")).build();
+        Pedido actualizado = pedidoService.updatePedido(creado.getId(), cambios);
+
+        assertThat(actualizado.getEstado()).isEqualTo("ENVIADO");
+        assertThat(actualizado.getTotal()).isEqualByComparingTo("91.00");
+        assertThat(pedidoRepository.findById(creado.getId()).orElseThrow().getTotal()).isEqualByComparingTo("91.00");
+    }
+
+    @Test
+    void cancelarDevuelveElStockYReabrirLoVuelveATomar() {
+        Pedido creado = pedidoService.createPedido(pedido(30));
+        assertThat(stock()).isEqualTo(70);
+
+        pedidoService.updatePedido(creado.getId(), Pedido.builder().estado(Pedido.CANCELADO).build());
+        assertThat(stock()).isEqualTo(100);
+        // Another change while cancelled leaves the stock alone.
+        pedidoService.updatePedido(creado.getId(), Pedido.builder().estado(Pedido.CANCELADO).build());
+        assertThat(stock()).isEqualTo(100);
+
+        Pedido reabierto = pedidoService.updatePedido(creado.getId(), Pedido.builder().estado("PENDIENTE").build());
+        assertThat(stock()).isEqualTo(70);
+        assertThat(reabierto.getDetalles().get(0).getProducto().getStock()).isEqualTo(70);
+    }
+
+    @Test
+    void reabrirSinStockSuficienteFallaYElPedidoSigueCancelado() {
+        Pedido creado = pedidoService.createPedido(pedido(30));
+        pedidoService.updatePedido(creado.getId(), Pedido.builder().estado(Pedido.CANCELADO).build());
+        pedidoService.createPedido(pedido(80));
+
+        assertThatThrownBy(() -> pedidoService.updatePedido(creado.getId(),
+                Pedido.builder().estado("PENDIENTE").build())).isInstanceOf(StockInsuficienteException.class);
+        assertThat(pedidoRepository.findById(creado.getId()).orElseThrow().getEstado()).isEqualTo(Pedido.CANCELADO);
+        assertThat(stock()).isEqualTo(20);
+    }
+
+    @Test
+    void borrarUnPedidoDevuelveSuStockUnaSolaVez() {
+        Pedido abierto = pedidoService.createPedido(pedido(10));
+        Pedido cancelado = pedidoService.createPedido(pedido(5));
+        pedidoService.updatePedido(cancelado.getId(), Pedido.builder().estado(Pedido.CANCELADO).build());
+        assertThat(stock()).isEqualTo(90);
+
+        pedidoService.deletePedido(abierto.getId());
+        pedidoService.deletePedido(cancelado.getId());
+
+        assertThat(stock()).isEqualTo(100);
+    }
+
+    @Test
+    void lasPaginasDePedidosAvanzanSinSaltarNiRepetirPedidosDelMismoDia() {
+        List<UUID> creados = new ArrayList<>();
+        for (int dia : new int[]{1, 3, 3, 3, 2, 3, 1}) {
+            Pedido pedido = pedido(1);
+            pedido.setFecha(LocalDate.of(2024, 5, dia));
+            creados.add(pedidoService.createPedido(pedido).getId());
+        }
+
+        List<Pedido> vistos = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Pedido> pagina = pedidoService.getPedidosByUsuarioPage(usuario.getId(), cursor, 2);
+            vistos.addAll(pagina.getContent());
+            cursor = pagina.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(vistos).extracting(Pedido::getId).containsExactlyInAnyOrderElementsOf(creados);
+        assertThat(vistos).isSortedAccordingTo(Comparator.comparing(Pedido::getFecha)
+                .thenComparing(Pedido::getId).reversed());
+    }
+
+    // Lists the user's orders, by id and by page, and renders them as the controller would.
+    private long sentenciasAlListar() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Pedido> pedidos = pedidoService.getPedidosByUsuario(usuario.getId());
+        long sentencias = statistics.getPrepareStatementCount();
+        // Anything left lazy would fail here, outside the transaction.
+        objectMapper.writeValueAsString(pedidos);
+        assertThat(pedidoService.getPedidosByUsuarioPage(usuario.getId(), null, 50).getContent())
+                .hasSameSizeAs(pedidos);
+        return sentencias;
+    }
+
+    // Creates the order in a session with the given JDBC batch size (null: the default profile's, none).
+    private long sentenciasAlCrear(Pedido pedido, Integer lote) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(lote);
+            pedidoService.createPedido(pedido);
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Pedido pedidoDe40Lineas() {
+        Pedido pedido = pedido(usuario);
+        for (int i = 0; i < 40; i++)
+            pedido.getDetalles().add(DetallePedido.builder()
+                    .producto(Producto.builder().id(producto("Producto " + i).getId()).build()).cantidad(1).build());
+        return pedido;
+    }
+
+    private int stock() {
+        return stock(producto);
+    }
+
+    private Pedido pedido(int cantidad) {
+        return pedido(usuario, linea(producto, cantidad));
+    }
+}
@@ -0,0 +1,130 @@
+package com.ferreteria.service.impl;
+
+import com.ferreteria.dto.FormatoArchivo;
+import com.ferreteria.dto.ProductoImportReport;
+import com.ferreteria.entity.OutboxEvento;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.service.ProductoImportService;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports of products whose names carry a per-test suffix, so rows left by
+ * other tests never match them.
+ */
+class ProductoImportServiceImplTest extends IntegracionTest {
+
+    private static final String CABECERA = "nombre,marca,precio,stock\n";
+
+    @Autowired
+    private ProductoImportService productoImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void unaFilaRepetidaEnOtroLoteActualizaElProductoCreadoAntes() {
+        String sufijo = sufijo();
+
+        ProductoImportReport reporte = importar(CABECERA
+                + "Pinza " + sufijo + ",Bahco,5.00,10\n"
+                + "Tenaza " + sufijo + ",Bahco,7.00,10\n"
+                + "pinza " + sufijo + ",BAHCO,6.00,4\n"
+                + "Alicate " + sufijo + ",Bahco,8.00,10\n", StandardCharsets.UTF_8, 2);
+
+        assertThat(reporte.getFilas()).isEqualTo(4);
+        assertThat(reporte.getCreados()).isEqualTo(3);
+        assertThat(reporte.getActualizados()).isEqualTo(1);
+        assertThat(reporte.getFallidos()).isZero();
+        List<Producto> pinzas = porNombre("Pinza " + sufijo);
+        assertThat(pinzas).hasSize(1);
+        assertThat(pinzas.get(0).getPrecio()).isEqualByComparingTo("6.00");
+        assertThat(pinzas.get(0).getStock()).isEqualTo(4);
+    }
+
+    @Test
+    void unaFilaQueFallaAlEscribirDeshaceSuLoteYNoLosDemas() {
+        String sufijo = sufijo();
+        String demasiadoLargo = "Serrucho " + sufijo + " " + "x".repeat(300);
+
+        ProductoImportReport reporte = importar(CABECERA
+                + "Formón " + sufijo + ",Bahco,5.00,10\n"
+                + demasiadoLargo + ",Bahco,7.00,10\n"
+                + "Escofina " + sufijo + ",Bahco,8.00,10\n", StandardCharsets.UTF_8, 2);
+
+        assertThat(reporte.getFilas()).isEqualTo(3);
+        assertThat(reporte.getCreados()).isEqualTo(1);
+        assertThat(reporte.getFallidos()).isEqualTo(2);
+        assertThat(reporte.getErrores()).extracting(ProductoImportReport.ErrorFila::getFila).containsExactly(2L, 3L);
+        assertThat(reporte.getErrores()).allSatisfy(error -> assertThat(error.getMensaje()).startsWith("Chunk not saved"));
+        assertThat(porNombre("Formón " + sufijo)).isEmpty();
+        assertThat(porNombre("Escofina " + sufijo)).hasSize(1);
+    }
+
+    @Test
+    void laMarcaDeOrdenDeBytesNoSeQuedaEnLaPrimeraColumna() {
+        String sufijo = sufijo();
+
+        ProductoImportReport reporte = importar("\uFEFF" + CABECERA + "Lima " + sufijo + ",Bahco,5.00,10\n",
+                StandardCharsets.UTF_8, null);
+
+        assertThat(reporte.getFallidos()).isZero();
+        assertThat(porNombre("Lima " + sufijo)).hasSize(1);
+    }
+
+    @Test
+    void seLeeEnElJuegoDeCaracteresDelContenido() {
+        String sufijo = sufijo();
+
+        importar(CABECERA + "Llave Año " + sufijo + ",Bahco,5.00,10\n", StandardCharsets.ISO_8859_1, null);
+
+        assertThat(porNombre("Llave Año " + sufijo)).hasSize(1);
+    }
+
+    @Test
+    void unCambioDePrecioPublicaSuEvento() {
+        Producto caro = producto("Nivel " + sufijo());
+        Producto igual = producto("Escuadra " + sufijo());
+
+        importar(CABECERA
+                + caro.getNombre() + ",Stanley,12.50,\n"
+                + igual.getNombre() + ",Stanley,10.0,\n", StandardCharsets.UTF_8, null);
+
+        assertThat(eventosDePrecio(caro)).singleElement().satisfies(payload -> {
+            assertThat(payload).contains("\"precioAnterior\":10.00").contains("\"precio\":12.50");
+        });
+        assertThat(eventosDePrecio(igual)).isEmpty();
+    }
+
+    private ProductoImportReport importar(String csv, Charset charset, Integer tamanoLote) {
+        return productoImportService.importProductos(new ByteArrayInputStream(csv.getBytes(charset)),
+                FormatoArchivo.CSV, charset, tamanoLote);
+    }
+
+    private List<Producto> porNombre(String nombre) {
+        return productoRepository.findAll().stream()
+                .filter(producto -> nombre.equalsIgnoreCase(producto.getNombre()))
+                .toList();
+    }
+
+    private List<String> eventosDePrecio(Producto producto) {
+        return jdbcTemplate.queryForList("SELECT payload FROM outbox_eventos WHERE agregado_tipo = ? "
+                        + "AND agregado_id = ? AND tipo = ?", String.class, OutboxEvento.PRODUCTO,
+                producto.getId().toString(), OutboxEvento.PRODUCTO_PRECIO_CAMBIADO);
+    }
+
+    private static String sufijo() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ferreteria.service.impl;
+
+import com.ferreteria.dto.CursorPage;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.service.UsuarioService;
+import com.ferreteria.support.IntegracionTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsuarioServiceImplTest extends IntegracionTest {
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Test
+    void elRegistroNoPisaUnaCuentaExistente() {
+        Usuario existente = usuarioService.createUsuario(usuario("ana"));
+
+        Usuario intento = usuario("intruso");
+        intento.setId(existente.getId());
+        Usuario creado = usuarioService.createUsuario(intento);
+
+        assertThat(creado.getId()).isNotEqualTo(existente.getId());
+        Usuario guardado = usuarioRepository.findById(existente.getId()).orElseThrow();
+        assertThat(guardado.getEmail()).isEqualTo(existente.getEmail());
+        assertThat(guardado.getContrasena()).isEqualTo(existente.getContrasena());
+    }
+
+    @Test
+    void lasPaginasRecorrenTodosLosUsuariosUnaVezIncluidosLosSinNombre() {
+        List<UUID> creados = new ArrayList<>();
+        for (String nombre : new String[]{null, null, null, "beto", "beto", "carla", null, "ana"})
+            creados.add(usuarioRepository.save(Usuario.builder().nombre(nombre)
+                    .email(UUID.randomUUID() + "@test.com").contrasena("x").rol("CLIENTE").build()).getId());
+
+        List<Usuario> vistos = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Usuario> pagina = usuarioService.getUsuariosPage(cursor, 2);
+            assertThat(pagina.getContent()).hasSizeLessThanOrEqualTo(2);
+            vistos.addAll(pagina.getContent());
+            cursor = pagina.getNextCursor();
+        } while (cursor != null);
+
+        Set<UUID> ids = new HashSet<>();
+        vistos.forEach(u -> assertThat(ids.add(u.getId())).as("visited twice: %s", u.getId()).isTrue());
+        assertThat(ids).containsAll(creados).hasSize((int) usuarioRepository.count());
+        // Users without a nombre come first, then by nombre, ties by id.
+        assertThat(vistos).isSortedAccordingTo(Comparator.comparing(Usuario::getNombre,
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(Usuario::getId));
+    }
+
+    private static Usuario usuario(String nombre) {
+        return Usuario.builder().nombre(nombre).email(nombre + "-" + UUID.randomUUID() + "@test.com")
+                .contrasena("secreta").rol("CLIENTE").build();
+    }
+}
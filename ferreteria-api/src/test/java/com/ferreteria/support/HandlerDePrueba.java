@@ -0,0 +1,46 @@
+package com.ferreteria.support;
+
+import com.ferreteria.outbox.OutboxHandler;
+import com.ferreteria.outbox.OutboxMensaje;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Outbox handler for the {@value #PRUEBA} events the tests publish. It records
+ * the payloads it is given, writes a row per event to outbox_prueba and fails
+ * for the payloads in {@link #fallan}. Part of the shared test context, so it
+ * sees no other event type.
+ */
+@TestComponent
+public class HandlerDePrueba implements OutboxHandler {
+
+    public static final String PRUEBA = "PRUEBA";
+
+    public final List<String> recibidos = new CopyOnWriteArrayList<>();
+    public final Set<String> fallan = ConcurrentHashMap.newKeySet();
+    private final JdbcTemplate jdbcTemplate;
+
+    public HandlerDePrueba(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS outbox_prueba (nombre VARCHAR(100))");
+    }
+
+    @Override
+    public Set<String> tipos() {
+        return Set.of(PRUEBA);
+    }
+
+    @Override
+    public void manejar(OutboxMensaje mensaje) {
+        String nombre = mensaje.payload().replace("\"", "");
+        recibidos.add(nombre);
+        jdbcTemplate.update("INSERT INTO outbox_prueba (nombre) VALUES (?)", nombre);
+        if (fallan.contains(nombre))
+            throw new IllegalStateException("Falla " + nombre);
+    }
+}
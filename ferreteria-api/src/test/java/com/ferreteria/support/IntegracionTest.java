@@ -0,0 +1,78 @@
+package com.ferreteria.support;
+
+import com.ferreteria.entity.DetallePedido;
+import com.ferreteria.entity.Pedido;
+import com.ferreteria.entity.Producto;
+import com.ferreteria.entity.Usuario;
+import com.ferreteria.repository.ProductoRepository;
+import com.ferreteria.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Base of the tests that run against the application on the H2 database of
+ * application-test.yml. Every subclass shares one Spring context (and so one
+ * schema, id allocation and set of in-memory indexes): tests must not add
+ * their own properties, mocks or configuration, and only rely on rows they
+ * created themselves.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(HandlerDePrueba.class)
+public abstract class IntegracionTest {
+
+    @Autowired
+    protected ProductoRepository productoRepository;
+
+    @Autowired
+    protected UsuarioRepository usuarioRepository;
+
+    /** A customer with a unique email. */
+    protected Usuario usuario() {
+        return usuarioRepository.save(Usuario.builder().nombre("Ana").email(UUID.randomUUID() + "@test.com")
+                .contrasena("x").rol("CLIENTE").build());
+    }
+
+    protected Producto producto(int stock) {
+        return producto("Martillo", "10.00", stock);
+    }
+
+    protected Producto producto(String nombre) {
+        return producto(nombre, "10.00", 100);
+    }
+
+    protected Producto producto(String nombre, String precio, int stock) {
+        return productoRepository.save(Producto.builder().nombre(nombre).marca("Stanley")
+                .precio(new BigDecimal(precio)).stock(stock).build());
+    }
+
+    protected int stock(Producto producto) {
+        return productoRepository.findById(producto.getId()).orElseThrow().getStock();
+    }
+
+    /** An order as the client sends it: references by id, one line per entry. */
+    @SafeVarargs
+    protected static Pedido pedido(Usuario usuario, Map.Entry<Producto, Integer>... lineas) {
+        List<DetallePedido> detalles = new ArrayList<>();
+        for (Map.Entry<Producto, Integer> linea : lineas)
+            detalles.add(DetallePedido.builder().producto(Producto.builder().id(linea.getKey().getId()).build())
+                    .cantidad(linea.getValue()).build());
+        Pedido pedido = Pedido.builder().usuario(Usuario.builder().id(usuario.getId()).build()).build();
+        pedido.setDetalles(detalles);
+        return pedido;
+    }
+
+    protected static Map.Entry<Producto, Integer> linea(Producto producto, int cantidad) {
+        return Map.entry(producto, cantidad);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ferreteria.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTest {
+
+    @Test
+    void losCamposEntreComillasGuardanComasYComillasEscapadas() throws IOException {
+        List<List<String>> filas = leer("nombre,marca\n\"Tornillo, 3/4\",\"\"\"Hex\"\" Pro\"\n,\"\"\n");
+
+        assertThat(filas).containsExactly(
+                List.of("nombre", "marca"),
+                List.of("Tornillo, 3/4", "\"Hex\" Pro"),
+                List.of("", ""));
+    }
+
+    @Test
+    void unSaltoDeLineaEntreComillasNoCortaElRegistro() throws IOException {
+        List<List<String>> filas = leer("nombre,descripcion\nLija,\"grano 80\r\nhoja\nsuelta\"\nBrocha,x");
+
+        assertThat(filas).containsExactly(
+                List.of("nombre", "descripcion"),
+                List.of("Lija", "grano 80\r\nhoja\nsuelta"),
+                List.of("Brocha", "x"));
+    }
+
+    @Test
+    void crlfYCrSueltoTerminanElRegistro() throws IOException {
+        List<List<String>> filas = leer("a,b\r\n1,2\r3,4\r\n\"5\",6\r\n");
+
+        assertThat(filas).containsExactly(List.of("a", "b"), List.of("1", "2"), List.of("3", "4"),
+                List.of("5", "6"));
+    }
+
+    @Test
+    void unaComillaSinCerrarEsUnError() {
+        CsvReader reader = new CsvReader(new StringReader("a\n\"sin cerrar"));
+
+        assertThatThrownBy(() -> {
+            reader.next();
+            reader.next();
+        }).isInstanceOf(IOException.class);
+    }
+
+    private static List<List<String>> leer(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<List<String>> filas = new ArrayList<>();
+        for (List<String> fila = reader.next(); fila != null; fila = reader.next())
+            filas.add(fila);
+        return filas;
+    }
+}